@@ -0,0 +1,8 @@
+#!/bin/bash
+
+#use this script from xmod/ to run experiments without windows
+#e.g. ./batch.sh path/to/experiment.tms
+#status is printed to stdout; exit status 0 if every experiment finished
+
+javac ./src/java/xmod/Xmod.java src/java/xmod/*/*.java -cp "lib/*" -d bin/ \
+	 && java -Djava.awt.headless=true -classpath bin:lib/jSerialComm-2.11.0.jar xmod.experimenter.BatchRunner "$@"
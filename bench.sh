@@ -0,0 +1,12 @@
+#!/bin/bash
+
+#Use this script from xmod/ to compile and run the benchmarks
+#Results are written to bench_output.txt and compared with bench/baseline.txt
+#To update the baseline after a deliberate change:
+#   cp bench_output.txt bench/baseline.txt
+
+javac -encoding UTF-8 -d benchout ./bench/*.java ./src/java/xmod/*/*.java -cp "lib/*" \
+	&& for bench in xmod.experimenter.ExperimentBench xmod.status.ReporterBench xmod.serial.SerialBench; do
+		java -cp "benchout:lib/*" -Djava.awt.headless=true \
+			-Dbench.baseline=bench/baseline.txt $bench || exit 1
+	done | tee bench_output.txt
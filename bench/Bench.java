@@ -0,0 +1,159 @@
+package xmod.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Minimal benchmark harness for the benchmarks in bench/.
+ * Each benchmark is warmed up, then timed over several samples and the
+ * median time per operation is printed.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Run all benchmarks with ./bench.sh
+ * If -Dbench.baseline=file is set, each result is compared with the same
+ * benchmark in that file and flagged if it is more than 25% slower
+ */
+
+public final class Bench {
+    private Bench() { }; // Private Constructor
+
+    /** Time in ms to warm up each benchmark. */
+    private static final long WARMUP_MS =
+                                Long.getLong("bench.warmup", 500);
+    /** Time in ms to measure each benchmark. */
+    private static final long MEASURE_MS =
+                                Long.getLong("bench.measure", 1000);
+    /** Number of timed samples per benchmark. */
+    private static final int SAMPLES = 10;
+    /** Ratio to baseline above which a result is flagged. */
+    private static final double SLOWER_RATIO = 1.25;
+    /** Results kept so the JIT cannot remove the work being measured. */
+    private static volatile Object sink;
+    /** Baseline ns/op for each benchmark, null until loaded. */
+    private static Map<String, Double> baseline;
+
+    /** A benchmarked operation. */
+    public interface Op {
+        /**
+         * Runs the operation once.
+         * @throws Exception if the operation fails
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Keeps a result alive.
+     * @param result result of a benchmarked operation
+     */
+    public static void consume(final Object result) {
+        sink = result;
+        return;
+    }
+
+    /**
+     * Prints a section heading.
+     * @param title heading
+     */
+    public static void section(final String title) {
+        System.out.println("# " + title);
+        return;
+    }
+
+    /**
+     * Warms up, times and prints one benchmark.
+     * @param name name of benchmark, without spaces
+     * @param opsPerCall operations done by each call of op
+     * @param op operation to time
+     * @return median time per operation in ns
+     * @throws Exception if the operation fails
+     */
+    public static double run(final String name, final long opsPerCall,
+                            final Op op) throws Exception {
+        long warmupEnd = System.nanoTime() + WARMUP_MS * 1_000_000L;
+        long warmupStart = System.nanoTime();
+        long calls = 0;
+        do {
+            op.run();
+            calls++;
+        } while (System.nanoTime() < warmupEnd);
+        double nsPerCall = (double) (System.nanoTime() - warmupStart) / calls;
+        long callsPerSample = Math.max(1,
+                (long) (MEASURE_MS * 1_000_000.0 / SAMPLES / nsPerCall));
+
+        double[] samples = new double[SAMPLES];
+        for (int s = 0; s < SAMPLES; s++) {
+            long start = System.nanoTime();
+            for (long c = 0; c < callsPerSample; c++) {
+                op.run();
+            }
+            samples[s] = (double) (System.nanoTime() - start)
+                        / (callsPerSample * opsPerCall);
+        }
+        Arrays.sort(samples);
+        double median = samples[SAMPLES / 2];
+        System.out.println(format(name, median));
+        return median;
+    }
+
+    /**
+     * Formats a result, with a comparison to the baseline if there is one.
+     * @param name name of benchmark
+     * @param nsPerOp median time per operation in ns
+     * @return result line
+     */
+    private static String format(final String name, final double nsPerOp) {
+        String line = String.format(Locale.ROOT, "%-44s %14.1f ns/op",
+                                    name, nsPerOp);
+        Double base = baseline().get(name);
+        if (null != base && base > 0) {
+            double ratio = nsPerOp / base;
+            line += String.format(Locale.ROOT, "   baseline %.1f  x%.2f%s",
+                                base, ratio,
+                                (ratio > SLOWER_RATIO) ? "  SLOWER" : "");
+        }
+        return line;
+    }
+
+    /**
+     * Loads the baseline results named by -Dbench.baseline.
+     * Lines are as printed by format(); other lines are ignored
+     * @return map of benchmark name to ns/op
+     */
+    private static synchronized Map<String, Double> baseline() {
+        if (null != baseline) {
+            return baseline;
+        }
+        baseline = new HashMap<String, Double>();
+        String file = System.getProperty("bench.baseline");
+        if (null == file) {
+            return baseline;
+        }
+        Path path = Paths.get(file);
+        try {
+            List<String> lines = Files.readAllLines(path);
+            for (String line : lines) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length < 3 || !fields[2].equals("ns/op")) {
+                    continue;
+                }
+                try {
+                    baseline.put(fields[0], Double.parseDouble(fields[1]));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("# Could not read baseline " + path);
+        }
+        return baseline;
+    }
+}
@@ -0,0 +1,163 @@
+package xmod.experimenter;
+
+import xmod.utils.Bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks for loading tms files and collecting and formatting results.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Uses synthetic tms files of 10^2 to 10^6 trials written to a temp dir
+ */
+
+public final class ExperimentBench {
+    private ExperimentBench() { }; // Private Constructor
+
+    /** Trial counts of the synthetic tms files. */
+    private static final int[] TRIALS = {100, 10_000, 1_000_000};
+    /** Trial counts for the results benchmarks. */
+    private static final int[] RESULT_TRIALS = {100, 1_000, 10_000};
+
+    /**
+     * Writes a synthetic tms file.
+     * @param path where to write it
+     * @param trials number of trials
+     * @throws IOException if it cannot be written
+     */
+    static void writeTms(final Path path, final int trials)
+                                                    throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path,
+                                                StandardCharsets.UTF_8)) {
+            out.write("%%CROSSMODAL STRING\nV\t2\t1\n"
+                        + "list\twnw\tsize\tdepth\tprime\tcond\n");
+            for (int i = 0; i < trials; i++) {
+                out.write("1000.0\t500.0\t0\t" + (i % 4) + "\t0\t1\n");
+                out.write("item" + i + "\t500.0\t1500.0\n");
+            }
+        }
+    }
+
+    /**
+     * Makes a reaction frame where every 3rd box presses a key.
+     * @param trial trial index, used to vary the frame
+     * @return reaction frame
+     */
+    static byte[] makeReaction(final int trial) {
+        byte[] frame = new byte[ReactionFrameDecoder.FRAME_SIZE];
+        for (int box = 0; box < ReactionFrameDecoder.NUM_BOXES; box += 3) {
+            int key = 1 + (trial + box) % 3;
+            frame[box / 4] |= (byte) (key << (2 * (box % 4)));
+            int rt = 600 + trial % 900 + box;
+            frame[2 * box + 4] = (byte) rt;
+            frame[2 * box + 5] = (byte) (rt >> 8);
+        }
+        return frame;
+    }
+
+    /**
+     * Makes a resulter for a loaded tms file.
+     * @param loader loader holding the parsed file
+     * @return resulter
+     */
+    static ExperimentResulter makeResulter(final ExperimentLoader loader) {
+        return new ExperimentResulter(loader.getTMSFileName(),
+                                        loader.getScreenItems().length,
+                                        loader.getTReactionOffset(),
+                                        loader.getCodehead(),
+                                        loader.getCodingArray(),
+                                        loader.getScreenItems());
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args unused
+     * @throws Exception if a benchmark fails
+     */
+    public static void main(final String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("xmodbench");
+        try {
+            benchLoading(dir);
+            benchResults(dir);
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder())
+                    .forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    /**
+     * Benchmarks parsing tms files.
+     * @param dir temp dir for the files
+     * @throws Exception if a benchmark fails
+     */
+    private static void benchLoading(final Path dir) throws Exception {
+        Bench.section("tms loading (per trial)");
+        for (int trials : TRIALS) {
+            Path tms = dir.resolve("bench" + trials + ".tms");
+            writeTms(tms, trials);
+            CharBuffer chars = CharBuffer.wrap(
+                            new String(Files.readAllBytes(tms),
+                                        StandardCharsets.UTF_8));
+            Bench.run("tms.parse." + trials, trials, () -> {
+                TmsParser parser = new TmsParser(chars.duplicate());
+                parser.parse();
+                Bench.consume(parser.getScreenItems());
+            });
+            Path cache = TmsCache.cachePath(tms);
+            Bench.run("loader.parseFile.uncached." + trials, trials, () -> {
+                Files.deleteIfExists(cache);
+                ExperimentLoader loader = new ExperimentLoader();
+                loader.loadFile(tms.toString());
+                loader.parseFile();
+                Bench.consume(loader.getScreenItems());
+            });
+            Bench.run("loader.parseFile.cached." + trials, trials, () -> {
+                ExperimentLoader loader = new ExperimentLoader();
+                loader.loadFile(tms.toString());
+                loader.parseFile();
+                Bench.consume(loader.getScreenItems());
+            });
+        }
+    }
+
+    /**
+     * Benchmarks collecting and formatting results.
+     * @param dir temp dir for the files
+     * @throws Exception if a benchmark fails
+     */
+    private static void benchResults(final Path dir) throws Exception {
+        Bench.section("results (per trial)");
+        for (int trials : RESULT_TRIALS) {
+            Path tms = dir.resolve("results" + trials + ".tms");
+            writeTms(tms, trials);
+            ExperimentLoader loader = new ExperimentLoader();
+            loader.loadFile(tms.toString());
+            loader.parseFile();
+            byte[][] reactions = new byte[trials][];
+            for (int i = 0; i < trials; i++) {
+                reactions[i] = makeReaction(i);
+            }
+            ExperimentResulter resulter = makeResulter(loader);
+            Bench.run("resulter.collectTrialResults." + trials, trials, () -> {
+                for (int i = 0; i < trials; i++) {
+                    resulter.collectTrialResults(reactions[i], i);
+                }
+            });
+            Bench.run("resulter.createResultsText." + trials, trials, () -> {
+                Bench.consume(resulter.createResultsText("01.01.26",
+                                                        "10.00.00"));
+            });
+        }
+    }
+}
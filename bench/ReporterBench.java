@@ -0,0 +1,63 @@
+package xmod.status;
+
+import xmod.utils.Bench;
+
+/**
+ * Benchmarks for building and printing the status shown in the GUI.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ */
+
+public final class ReporterBench {
+    private ReporterBench() { }; // Private Constructor
+
+    /** Messages appended to the status between clears. */
+    private static final int[] MESSAGES = {1, 10, 100};
+
+    /**
+     * Makes a report with a status and message.
+     * @param status status
+     * @param message message
+     * @return report
+     */
+    static ObjectReport makeReport(final String status,
+                                    final String message) {
+        ObjectReport report = new ObjectReport(ReportLabel.STATUS);
+        report.updateValues(ReportCategory.STATUS, status);
+        report.updateValues(ReportCategory.MESSAGE, message);
+        return report;
+    }
+
+    /**
+     * Runs the benchmarks.
+     * @param args unused
+     * @throws Exception if a benchmark fails
+     */
+    public static void main(final String[] args) throws Exception {
+        Bench.section("status reporting");
+        ObjectReport first = makeReport("RUNNING", "Trial 1");
+        ObjectReport second = makeReport("PAUSED", "Trial 2");
+        Reporter switching = new Reporter();
+        // a change of status clears the old values each time
+        Bench.run("reporter.updateValues.newStatus", 2, () -> {
+            switching.updateValues(ReportLabel.STATUS, first);
+            switching.updateValues(ReportLabel.STATUS, second);
+        });
+        for (int messages : MESSAGES) {
+            Reporter reporter = new Reporter();
+            reporter.updateValues(ReportLabel.STATUS,
+                                    makeReport("RUNNING", "start"));
+            for (int i = 1; i < messages; i++) {
+                reporter.updateValues(ReportLabel.STATUS,
+                                    makeReport("RUNNING", "message " + i));
+            }
+            Bench.run("reporter.printValues." + messages, 1, () -> {
+                Bench.consume(reporter.printValues(ReportLabel.STATUS));
+            });
+            Bench.run("reporter.toStringMain." + messages, 1, () -> {
+                Bench.consume(reporter.toStringMain());
+            });
+        }
+    }
+}
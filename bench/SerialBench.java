@@ -0,0 +1,81 @@
+package xmod.serial;
+
+import xmod.utils.Bench;
+
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * Benchmarks for framing the bytes sent to and from the control box.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * The loopback stands in for the jSerialComm event thread: a second thread
+ * appends each reaction frame in two reads, as the port often delivers it
+ * The simulator trial goes through Serial and ControlBoxSimulator
+ */
+
+public final class SerialBench {
+    private SerialBench() { }; // Private Constructor
+
+    /** Bytes in the first read of a split frame. */
+    private static final int FIRST_READ = 7;
+
+    /**
+     * Runs the benchmarks.
+     * @param args unused
+     * @throws Exception if a benchmark fails
+     */
+    public static void main(final String[] args) throws Exception {
+        Bench.section("serial framing");
+        Bench.run("serial.encodeTrialTimings", 1, () -> {
+            Bench.consume(Serial.encodeTrialTimings(2000, 500, 1500));
+        });
+
+        final int size = Serial.REACTION_FRAME_SIZE;
+        byte[] frame = new byte[size];
+        byte[] first = new byte[FIRST_READ];
+        byte[] rest = new byte[size - FIRST_READ];
+        FrameReceiver receiver = new FrameReceiver(8, 250);
+        receiver.expect(size);
+        Bench.run("frameReceiver.appendPoll.whole", 1, () -> {
+            receiver.append(frame, size);
+            Bench.consume(receiver.poll(0));
+        });
+        Bench.run("frameReceiver.appendPoll.split", 1, () -> {
+            receiver.append(first, first.length);
+            receiver.append(rest, rest.length);
+            Bench.consume(receiver.poll(0));
+        });
+
+        // loopback: request a frame from the 'port' thread and wait for it
+        SynchronousQueue<Boolean> requests = new SynchronousQueue<Boolean>();
+        Thread port = new Thread(() -> {
+            try {
+                while (requests.take()) {
+                    receiver.append(first, first.length);
+                    receiver.append(rest, rest.length);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "LOOPBACK PORT");
+        port.start();
+        Bench.run("frameReceiver.loopback", 1, () -> {
+            requests.put(true);
+            Bench.consume(receiver.poll(1000));
+        });
+        requests.put(false);
+        port.join();
+
+        // full trial round trip through Serial and the simulated box
+        ControlBoxSimulator box = new ControlBoxSimulator();
+        box.setLatency(trial -> 0);
+        Serial serial = new Serial(box);
+        Bench.run("serial.simulator.trial", 1, () -> {
+            serial.sendTrialTimings(2000, 500, 1500);
+            Bench.consume(serial.pollChunk(size, 1000));
+        });
+        serial.close();
+    }
+}
@@ -0,0 +1,7 @@
+#!/bin/bash
+
+#use this script from xmod/ to rebuild results files from results journals
+#e.g. ./recover.sh path/to/results/experiment_date_time.journal
+
+javac ./src/java/xmod/Xmod.java src/java/xmod/*/*.java -cp "lib/*" -d bin/ \
+	 && java -classpath bin:lib/jSerialComm-2.11.0.jar xmod.experimenter.JournalRecovery "$@"
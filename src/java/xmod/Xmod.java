@@ -5,13 +5,14 @@ import xmod.audio.AudioLoopPlayer;
 import xmod.view.FontWindow;
 import xmod.view.ExperimentWindow;
 import xmod.view.MainWindow;
+import xmod.view.StatusRenderer;
 
 import xmod.constants.Actions;
 import xmod.constants.Operations;
 
 import xmod.experimenter.ExperimentRunner;
 
-import xmod.serial.Serial;
+import xmod.serial.ControllerPool;
 
 import xmod.utils.Utils;
 
@@ -20,8 +21,11 @@ import xmod.status.Reporter;
 import xmod.status.ReportCategory;
 import xmod.status.ReportLabel;
 import xmod.status.Responses;
+import xmod.status.StatusLog;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
-import java.awt.EventQueue;
 import javax.swing.SwingUtilities;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeEvent;
@@ -46,21 +50,27 @@ public class Xmod implements PropertyChangeListener {
     // Objects.
     /** Reporter to manage status. */
     private Reporter reporter;
-    /** SerialPort for communication to Controller Box. */
-    private Serial serialPort;
+    /** Shows the status in the main window. */
+    private StatusRenderer statusRenderer;
+    /** Log of the status on disk, or null if not logging. */
+    private StatusLog statusLog;
+    /** SerialPort for communication to each Controller Box. */
+    private ControllerPool serialPort;
     /** ExperimentRunner to manage experiment. */
     private ExperimentRunner experimentRunner;
     /** AudioPlayer to play audio file. */
     private AudioPlayer audioPlayer;
     /** AudioLoopPlayer to play audio loop file. */
     private AudioLoopPlayer audioLoopPlayer;
+    /** Time in ms to wait on closing for results still being saved. */
+    private static final int RESULTS_SAVE_TIMEOUT = 30000;
      /**
      * Constructor.
      * @param aMainWindow MainWindow object
      * @param aExpWindow ExpWindow object
      * @param aFontWindow FontWindow object
      * @param aReporter Reporter Object
-     * @param aSerialPort Serial Object
+     * @param aSerialPort ControllerPool Object
      * @param expRunner ExperimentRunner Object
      * @param aAudioPlayer AudioPLayer Object
      * @param aAudioLoopPlayer AudioLoopPlayer object
@@ -69,7 +79,7 @@ public class Xmod implements PropertyChangeListener {
         final ExperimentWindow aExpWindow,
         final FontWindow aFontWindow,
         final Reporter aReporter,
-        final Serial aSerialPort,
+        final ControllerPool aSerialPort,
         final ExperimentRunner expRunner,
         final AudioPlayer aAudioPlayer,
         final AudioLoopPlayer aAudioLoopPlayer) {
@@ -84,6 +94,8 @@ public class Xmod implements PropertyChangeListener {
         this.experimentRunner = expRunner;
         this.audioPlayer = aAudioPlayer;
         this.audioLoopPlayer = aAudioLoopPlayer;
+        this.statusRenderer = new StatusRenderer(this.reporter,
+                                                    this.mainWindow);
         // Set MainWindow Report
         updateWindowText();
     }
@@ -99,8 +111,10 @@ public class Xmod implements PropertyChangeListener {
                 ExperimentWindow expWindow = new ExperimentWindow();
                 FontWindow fontWindow = new FontWindow();
                 //Instantiate Objects
-                Reporter reporter = new Reporter();
-                Serial serialPort = new Serial();
+                Reporter reporter = new Reporter(Integer.getInteger(
+                                        Reporter.HISTORY_PROPERTY,
+                                        ObjectReport.DEFAULT_CAPACITY));
+                ControllerPool serialPort = ControllerPool.create();
                 AudioPlayer audioPlayer = new AudioPlayer();
                 AudioLoopPlayer audioLoopPlayer = new AudioLoopPlayer();
                 ExperimentRunner experimentRunner = new ExperimentRunner(
@@ -111,6 +125,8 @@ public class Xmod implements PropertyChangeListener {
                 Xmod xmod = new Xmod(mainWindow, expWindow, fontWindow,
                                 reporter, serialPort, experimentRunner,
                                 audioPlayer, audioLoopPlayer);
+                xmod.openStatusLog();
+                xmod.reportMissingControllers();
                 // Add observers to respond to buttons/key strokes/error reports
                 mainWindow.addObserver(xmod);
                 expWindow.addObserver(xmod);
@@ -326,7 +342,8 @@ public class Xmod implements PropertyChangeListener {
                                 "",
                                 "");
         updateStatus(abortReport);
-        this.experimentRunner.endExperiment();
+        // the experiment thread ends the run and saves the results once it
+        // sees the flag; saving from here could race with the last trial
     }
 
     /** Tests the system. */
@@ -387,6 +404,8 @@ public class Xmod implements PropertyChangeListener {
         "New Font: " + newFont + " <br/>New font size: " + newSize + " pt",
         "", "");
         updateStatus(report);
+        // Check the loaded experiment still fits in the new font
+        this.experimentRunner.checkScreenItems();
         updateWindowText();
         // Return to the main window
         this.mainWindow.show();
@@ -394,6 +413,49 @@ public class Xmod implements PropertyChangeListener {
         return;
     }
 
+    /**
+     * Starts logging the status to disk if a log directory is set.
+     * e.g. -Dxmod.statusLog=logs
+     */
+    private void openStatusLog() {
+        String logDirectory = System.getProperty(
+                                        StatusLog.DIRECTORY_PROPERTY);
+        if (null == logDirectory) {
+            return;
+        }
+        try {
+            this.statusLog = new StatusLog(Paths.get(logDirectory),
+                                    "xmod_status",
+                                    StatusLog.DEFAULT_MAX_BYTES,
+                                    StatusLog.DEFAULT_MAX_FILES);
+            this.reporter.setLog(this.statusLog);
+        } catch (IOException e) {
+            updateStatus(createReport(ReportLabel.STATUS, "",
+                "Could not open status log in " + logDirectory,
+                "Please check the directory exists and can be written to",
+                Utils.getStackTrace(e)));
+            updateWindowText();
+        }
+        return;
+    }
+
+    /**
+     * Reports control boxes asked for by -Dxmod.controllers but not found.
+     */
+    private void reportMissingControllers() {
+        int missing = this.serialPort.getMissing();
+        if (missing == 0) {
+            return;
+        }
+        updateStatus(createReport(ReportLabel.CONNECTION, "",
+            missing + " of the control boxes asked for were not found;"
+            + " using boxes 00 to " + (this.serialPort.getBoxCount() - 1),
+            "Please check every control box is plugged in then restart XMOD",
+            ""));
+        updateWindowText();
+        return;
+    }
+
      /**
      * Send updates to main Xmod.java.
      * @param reportLabel which section it is for
@@ -437,30 +499,11 @@ public class Xmod implements PropertyChangeListener {
 
     /**
      * Updates the central text box on MainWindow.
-     * Note use of EventQueue schedules task for Event Dispatch Thread
+     * Updates are coalesced by StatusRenderer, which redraws on the Event
+     * Dispatch Thread at most every 50ms
      */
     private void updateWindowText() {
-        EventQueue.invokeLater(new Runnable() {
-          @Override
-            public void run() {
-                StringBuilder mainNewText = new StringBuilder(
-                                    reporter.printValues(ReportLabel.STATUS));
-                mainNewText.append(reporter.printValues(ReportLabel.TMS));
-                mainNewText.append(reporter.printValues(ReportLabel.AUDIO));
-
-                StringBuilder connectionNewText = new StringBuilder(
-                    reporter.printValues(ReportLabel.CONNECTION));
-
-                StringBuilder toolNewText = new StringBuilder(
-                    reporter.printValues(ReportLabel.FONT));
-                toolNewText.append(
-                    reporter.printValues(ReportLabel.AUDIO_LOOP));
-
-                mainWindow.updateMainText(mainNewText.toString());
-                mainWindow.updateConnectionText(connectionNewText.toString());
-                mainWindow.updateToolText(toolNewText.toString());
-            }
-        });
+        this.statusRenderer.requestRender();
     }
 
     /* ******* METHODS RELATED TO SHUTTING DOWN THE APPLICATION ************/
@@ -469,6 +512,14 @@ public class Xmod implements PropertyChangeListener {
      * Handles cleanup on shutting down application.
      */
     private void operationCloseXmod() {
+        this.audioLoopPlayer.close();
+        // let any results still being written reach the disk
+        this.experimentRunner.awaitResultsSaved(RESULTS_SAVE_TIMEOUT);
+        if (null != this.statusLog) {
+            // write out the last lines queued, e.g. from saving results
+            this.reporter.setLog(null);
+            this.statusLog.close();
+        }
         System.exit(0);
     }
 }
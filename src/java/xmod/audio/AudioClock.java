@@ -0,0 +1,196 @@
+package xmod.audio;
+
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * AudioClock gives the playback position of the audio file.
+ * Reads the frame position of the SourceDataLine so the trial loop can
+ * tell where the audio actually is, and stamps when the first sample
+ * was played so start latency and drift can be measured
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Updated by the audio thread, read by the experiment thread.
+ * Times are System.nanoTime values
+ * Drift is the time elapsed since the first sample less the audio played
+ * in that time: it grows if the sound card clock runs slow or the line
+ * underruns, and shrinks if the sound card clock runs fast
+ */
+
+public final class AudioClock {
+    /** ns per second. */
+    private static final double NANOS_PER_SECOND = 1e9;
+    /** Marks a time not yet stamped. */
+    public static final long UNSET = Long.MIN_VALUE;
+
+    /** Line being played, or null if not playing. */
+    private volatile SourceDataLine line;
+    /** Frames per second of the line. */
+    private volatile float frameRate;
+    /** When playing was requested. */
+    private volatile long requestedNanos = UNSET;
+    /** When the line was open and ready to start. */
+    private volatile long openedNanos = UNSET;
+    /** When the first sample was played. */
+    private volatile long firstSampleNanos = UNSET;
+    /** Frame position when the line was stopped. */
+    private volatile long stoppedFrame;
+    /** When the line was stopped. */
+    private volatile long stoppedNanos = UNSET;
+
+    /**
+     * Clears the clock when playing is requested.
+     * @param nanos time of request
+     */
+    void reset(final long nanos) {
+        this.line = null;
+        this.frameRate = 0;
+        this.requestedNanos = nanos;
+        this.openedNanos = UNSET;
+        this.firstSampleNanos = UNSET;
+        this.stoppedFrame = 0;
+        this.stoppedNanos = UNSET;
+        return;
+    }
+
+    /**
+     * Follows a line once it is open.
+     * @param aLine the opened line
+     * @param nanos time the line was opened
+     */
+    void lineOpened(final SourceDataLine aLine, final long nanos) {
+        this.frameRate = aLine.getFormat().getFrameRate();
+        this.openedNanos = nanos;
+        this.line = aLine;
+        return;
+    }
+
+    /**
+     * Stamps the first sample played if not yet stamped.
+     * Called by the audio thread after each write; the moment is worked
+     * back from how far the line had got when it was checked
+     */
+    void checkFirstSample() {
+        SourceDataLine current = this.line;
+        if (this.firstSampleNanos != UNSET || null == current) {
+            return;
+        }
+        long now = System.nanoTime();
+        long frame = current.getLongFramePosition();
+        if (frame > 0) {
+            this.firstSampleNanos = now - framesToNanos(frame);
+        }
+        return;
+    }
+
+    /**
+     * Freezes the clock when the line is stopped.
+     * @param nanos time the line was stopped
+     */
+    void lineStopped(final long nanos) {
+        SourceDataLine current = this.line;
+        if (null == current) {
+            return;
+        }
+        checkFirstSample();
+        this.stoppedFrame = current.getLongFramePosition();
+        this.stoppedNanos = nanos;
+        this.line = null;
+        return;
+    }
+
+    /**
+     * Whether audio is being played.
+     * @return true if first sample has been played and line not stopped
+     */
+    public boolean isRunning() {
+        return null != this.line && this.firstSampleNanos != UNSET;
+    }
+
+    /**
+     * Frames played so far.
+     * @return frame position, or position when stopped
+     */
+    public long getFramePosition() {
+        SourceDataLine current = this.line;
+        if (null == current) {
+            return this.stoppedFrame;
+        }
+        return current.getLongFramePosition();
+    }
+
+    /**
+     * Audio played so far.
+     * @return playback position in ns
+     */
+    public long getPositionNanos() {
+        return framesToNanos(getFramePosition());
+    }
+
+    /**
+     * Difference between time elapsed and audio played.
+     * @return drift in ns, or 0 if no sample played yet
+     */
+    public long getDriftNanos() {
+        long first = this.firstSampleNanos;
+        if (first == UNSET) {
+            return 0;
+        }
+        SourceDataLine current = this.line;
+        long now;
+        long frame;
+        if (null == current) {
+            now = this.stoppedNanos;
+            frame = this.stoppedFrame;
+        } else {
+            // read the position as close as possible to the time
+            now = System.nanoTime();
+            frame = current.getLongFramePosition();
+        }
+        return (now - first) - framesToNanos(frame);
+    }
+
+    /** Getter for when first sample was played.
+     * @return System.nanoTime of first sample, or UNSET
+     */
+    public long getFirstSampleNanos() {
+        return this.firstSampleNanos;
+    }
+
+    /**
+     * Time from playing being requested to the first sample being played.
+     * @return latency in ns, or UNSET
+     */
+    public long getStartLatencyNanos() {
+        if (this.firstSampleNanos == UNSET || this.requestedNanos == UNSET) {
+            return UNSET;
+        }
+        return this.firstSampleNanos - this.requestedNanos;
+    }
+
+    /**
+     * Time from playing being requested to the line being open.
+     * Includes AudioSystem.getLine and SourceDataLine.open
+     * @return latency in ns, or UNSET
+     */
+    public long getOpenLatencyNanos() {
+        if (this.openedNanos == UNSET || this.requestedNanos == UNSET) {
+            return UNSET;
+        }
+        return this.openedNanos - this.requestedNanos;
+    }
+
+    /**
+     * Converts frames to ns at the rate of the line.
+     * @param frames number of frames
+     * @return duration in ns
+     */
+    private long framesToNanos(final long frames) {
+        float rate = this.frameRate;
+        if (rate <= 0) {
+            return 0;
+        }
+        return (long) (frames * NANOS_PER_SECOND / rate);
+    }
+}
@@ -0,0 +1,93 @@
+package xmod.audio;
+
+import java.util.Locale;
+
+/**
+ * AudioHealth tracks underruns and write stalls while audio is played.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * An underrun is counted when the line buffer is found empty before a
+ * write, other than the first: the sound card has run out of audio and
+ * the participant will hear a click or gap
+ * Written by the audio thread only
+ */
+
+final class AudioHealth {
+    /** ns per ms. */
+    private static final double NANOS_PER_MS = 1e6;
+
+    /** Size of the line buffer in bytes. */
+    private int lineBufferBytes;
+    /** Size of each write in bytes. */
+    private int chunkBytes;
+    /** Number of writes to the line. */
+    private long writes;
+    /** Number of underruns. */
+    private long underruns;
+    /** Longest time in ns a write blocked. */
+    private long maxWriteNanos;
+
+    /**
+     * Clears the counts when a line starts playing.
+     * @param bufferBytes size of the line buffer in bytes
+     * @param writeBytes size of each write in bytes
+     */
+    void reset(final int bufferBytes, final int writeBytes) {
+        this.lineBufferBytes = bufferBytes;
+        this.chunkBytes = writeBytes;
+        this.writes = 0;
+        this.underruns = 0;
+        this.maxWriteNanos = 0;
+        return;
+    }
+
+    /**
+     * Records a write to the line.
+     * @param availableBefore bytes free in the line buffer before the write
+     * @param writeNanos time the write took in ns
+     */
+    void recordWrite(final int availableBefore, final long writeNanos) {
+        if (this.writes > 0 && availableBefore >= this.lineBufferBytes) {
+            this.underruns++;
+        }
+        this.writes++;
+        this.maxWriteNanos = Math.max(this.maxWriteNanos, writeNanos);
+        return;
+    }
+
+    /** Getter for number of underruns.
+     * @return this.underruns
+     */
+    long getUnderruns() {
+        return this.underruns;
+    }
+
+    /** Getter for number of writes.
+     * @return this.writes
+     */
+    long getWrites() {
+        return this.writes;
+    }
+
+    /** Getter for longest write.
+     * @return this.maxWriteNanos
+     */
+    long getMaxWriteNanos() {
+        return this.maxWriteNanos;
+    }
+
+    /**
+     * Summary for the end of session report.
+     * @return summary e.g. "0 underruns, longest write stall 23.2ms ..."
+     */
+    String getSummary() {
+        return String.format(Locale.ROOT, "%d underrun%s in %d writes,"
+            + " longest write stall %.1fms (line buffer %d bytes,"
+            + " writes of %d bytes)", this.underruns,
+            (this.underruns == 1) ? "" : "s", this.writes,
+            this.maxWriteNanos / NANOS_PER_MS, this.lineBufferBytes,
+            this.chunkBytes);
+    }
+}
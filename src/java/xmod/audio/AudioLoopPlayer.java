@@ -13,7 +13,7 @@ import java.io.IOException;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.Clip;
-
+import javax.sound.sampled.LineEvent;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
@@ -29,6 +29,9 @@ import java.beans.PropertyChangeSupport;
  * @version 2.0
  * @since 2026-02-02
  * NOTES:
+ * The clip is loaded and opened on first use, then kept open and reused
+ * each time the test audio is toggled. A LineListener keeps isRunning in
+ * step with the clip if the line stops or closes by itself
  */
 
 public class AudioLoopPlayer extends Thread {
@@ -36,10 +39,8 @@ public class AudioLoopPlayer extends Thread {
     private PropertyChangeSupport pcs;
     /** Boolean for running continous test audio. */
     private AtomicBoolean loopRunning;
-    /** Test audio clip. */
+    /** Test audio clip, open once loaded. */
     private Clip clip;
-    /** Test audio input stream. */
-    private AudioInputStream loopInputStream;
     /** Audio file location. */
     private String audioFile;
 
@@ -56,19 +57,22 @@ public class AudioLoopPlayer extends Thread {
         return;
     }
     /** Play Audio Repeatedly.
+     * Toggles the test audio on and off
     */
-    public void loopAudio() {
+    public synchronized void loopAudio() {
         if (isRunning() != null && isRunning()) {
             setLoopRunning(false);
+            if (null != this.clip) {
+                this.clip.stop();
+            }
             return;
         }
-        setLoopRunning(true);
-        new Thread(new Runnable() {
-            public void run() {
-            loop();
+        if (!openClip()) {
             return;
-            }
-        }, "LOOP PLAYER").start();
+        }
+        setLoopRunning(true);
+        this.clip.setFramePosition(0);
+        this.clip.loop(Clip.LOOP_CONTINUOUSLY);
     }
 
     /** Returns true if this.loopRunning is true.
@@ -85,10 +89,31 @@ public class AudioLoopPlayer extends Thread {
         return this.audioFile;
     }
 
-    /** Plays the audio in a loop. */
-    private void loop() {
+    /**
+     * Stops the test audio and releases the clip.
+     */
+    public synchronized void close() {
+        setLoopRunning(false);
+        if (null != this.clip) {
+            Clip toClose = this.clip;
+            this.clip = null;
+            toClose.stop();
+            toClose.close();
+        }
+        return;
+    }
+
+    /**
+     * Loads and opens the clip, if not already open.
+     * @return true if the clip is open
+     */
+    private boolean openClip() {
+        if (null != this.clip && this.clip.isOpen()) {
+            return true;
+        }
+        AudioInputStream loopInputStream;
         try {
-            this.loopInputStream = AudioSystem.getAudioInputStream(
+            loopInputStream = AudioSystem.getAudioInputStream(
                 getClass().getResource(this.audioFile)
             );
         } catch (NullPointerException e) {
@@ -96,65 +121,73 @@ public class AudioLoopPlayer extends Thread {
             updateStatus(Responses.FILE_LOAD_FAILURE,
                         "Could not load test audio as audioFile name null",
                         "", stackTrace);
-            setLoopRunning(false);
-            return;
+            return false;
         } catch (UnsupportedAudioFileException e) {
             String stackTrace = Utils.getStackTrace(e);
             updateStatus(Responses.FILE_LOAD_FAILURE,
                         "Could not load audio file due to "
                     + "unsupported audio file error",
                     "", stackTrace);
-            setLoopRunning(false);
-            return;
+            return false;
         } catch (IOException e) {
             String stackTrace = Utils.getStackTrace(e);
             updateStatus(Responses.AUDIO_ERROR,
                         "Could not play audio file due to error",
                         "", stackTrace);
-            setLoopRunning(false);
-            return;
+            return false;
         }
 
-        try {
-            this.clip = AudioSystem.getClip();
-            this.clip.open(this.loopInputStream);
-            this.clip.loop(Clip.LOOP_CONTINUOUSLY);
-            System.out.println("Running audio");
-            setLoopRunning(true);
+        Clip newClip = null;
+        try (AudioInputStream stream = loopInputStream) {
+            newClip = AudioSystem.getClip();
+            newClip.addLineListener(this::lineUpdate);
+            newClip.open(stream);
         } catch (UnsupportedOperationException e) {
             String stackTrace = Utils.getStackTrace(e);
             updateStatus(Responses.FILE_LOAD_FAILURE,
                         "Could not load test audio due to UnsupportedOperation",
                         "", stackTrace);
-            setLoopRunning(false);
-            return;
-        } catch (LineUnavailableException e) {
+            return false;
+        } catch (LineUnavailableException | IllegalArgumentException
+                    | SecurityException e) {
             String stackTrace = Utils.getStackTrace(e);
             updateStatus(Responses.AUDIO_ERROR,
                     "Could not play test audio due to error",
                     "", stackTrace);
-            setLoopRunning(false);
-            return;
+            return false;
         } catch (IOException e) {
             String stackTrace = Utils.getStackTrace(e);
             updateStatus(Responses.AUDIO_ERROR,
                         "Could not play audio file due to error",
                         "", stackTrace);
-            setLoopRunning(false);
-            return;
+            if (null != newClip) {
+                newClip.close();
+            }
+            return false;
         }
+        this.clip = newClip;
+        return true;
+    }
 
-        while (isRunning()) {
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();  //set the flag back to true
+    /**
+     * Keeps isRunning in step with the clip.
+     * Called by the sound system when the clip stops or closes
+     * @param event line event
+     */
+    private void lineUpdate(final LineEvent event) {
+        if (event.getType() == LineEvent.Type.CLOSE) {
+            setLoopRunning(false);
+        } else if (event.getType() == LineEvent.Type.STOP) {
+            // ignore a late STOP from a previous toggle once restarted
+            Clip source = (Clip) event.getLine();
+            if (!source.isRunning()) {
+                setLoopRunning(false);
             }
         }
-        this.clip.stop();
         return;
     }
-/**
+
+    /**
      * Send updates to main Xmod.java.
      * @param newStatus status
      * @param newMessage message
@@ -33,6 +33,10 @@ import java.beans.PropertyChangeSupport;
  * @version 2.0
  * @since 2025-02-13
  * NOTES:
+ * By default the whole file is decoded into memory when loaded and the
+ * line is opened ahead of time, so starting the experiment does not wait
+ * for the sound system or read from disk. Files over PRELOAD_LIMIT bytes
+ * of PCM are streamed from disk instead
  */
 
 public class AudioPlayer extends Thread {
@@ -40,8 +44,12 @@ public class AudioPlayer extends Thread {
     private PropertyChangeSupport pcs;
     /** Audio file. */
     private String audioFilePath;
-    /** Buffer size. */
+    /** Default size in bytes of each write to the line. */
     private static final int BUFFER_SIZE = 4096;
+    /** System property for the size in bytes of the line buffer. */
+    public static final String LINE_BUFFER_PROPERTY = "xmod.audio.lineBuffer";
+    /** System property for the size in bytes of each write to the line. */
+    public static final String WRITE_CHUNK_PROPERTY = "xmod.audio.writeChunk";
     /** Whether the audio has been successfully loaded. */
     private Boolean audioLoaded = false;
     /** Whether the audio is currently playing. */
@@ -58,6 +66,24 @@ public class AudioPlayer extends Thread {
     private AudioFormat audioFormat;
     /** Dataline info. */
     private DataLine.Info info;
+    /** Playback position of the line. */
+    private final AudioClock clock = new AudioClock();
+    /** Largest audio in bytes of PCM to decode into memory. */
+    private static final long PRELOAD_LIMIT = 256L * 1024 * 1024;
+    /** Size in bytes of the line buffer, or 0 for the line's default. */
+    private int lineBufferSize;
+    /** Size in bytes of each write to the line. */
+    private int writeChunkSize;
+    /** Underruns and write stalls of the current playback. */
+    private final AudioHealth health = new AudioHealth();
+    /** Whether to decode the audio into memory when loaded. */
+    private boolean preload = true;
+    /** Decoded audio, or null if streaming from disk. */
+    private byte[] pcm;
+    /** Number of bytes of decoded audio. */
+    private int pcmLength;
+    /** Last modified time of the decoded file. */
+    private long pcmModified;
 
 
     /**
@@ -65,6 +91,10 @@ public class AudioPlayer extends Thread {
      */
     public AudioPlayer() {
         pcs = new PropertyChangeSupport(this);
+        // Tunable per machine e.g. -Dxmod.audio.lineBuffer=88200
+        this.lineBufferSize = Integer.getInteger(LINE_BUFFER_PROPERTY, 0);
+        this.writeChunkSize = Integer.getInteger(WRITE_CHUNK_PROPERTY,
+                                                    BUFFER_SIZE);
     }
 
     /**
@@ -99,6 +129,13 @@ public class AudioPlayer extends Thread {
         if (null == this.audioFilePath || !isAudioValid(this.audioFilePath)) {
             return;
         }
+        // Replaying the same file: no need to read it again
+        if (canReuseDecoded()) {
+            this.audioLoaded = true;
+            openLine();
+            return;
+        }
+        this.pcm = null;
         try {
             this.originalInputStream = Files.newInputStream(
                                                 Paths.get(this.audioFilePath));
@@ -150,11 +187,112 @@ public class AudioPlayer extends Thread {
 
         this.audioFormat = this.audioStream.getFormat();
         this.info = new DataLine.Info(SourceDataLine.class, this.audioFormat);
+        if (this.preload && !decodeAudio()) {
+            return;
+        }
 
         this.audioLoaded = true;
         updateStatus(Responses.FILE_LOAD_SUCCESS + this.audioFilePath,
                     "Audio Duration: " + this.getAudioLength(),
                     "", "");
+        openLine();
+    }
+
+    /**
+     * Decodes the whole audio file into memory.
+     * Leaves this.pcm null if the file is too large to decode
+     * @return false if the file could not be read
+     */
+    private boolean decodeAudio() {
+        long frames = this.audioStream.getFrameLength();
+        long bytes = frames * this.audioFormat.getFrameSize();
+        if (frames == AudioSystem.NOT_SPECIFIED || bytes <= 0
+            || bytes > PRELOAD_LIMIT) {
+            return true;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(
+                            Paths.get(this.audioFilePath)).toMillis();
+            byte[] decoded = new byte[(int) bytes];
+            this.pcmLength = this.audioStream.readNBytes(decoded, 0,
+                                                        decoded.length);
+            this.pcm = decoded;
+            this.pcmModified = modified;
+            this.audioStream.close();
+        } catch (IOException e) {
+            String stackTrace = Utils.getStackTrace(e);
+            updateStatus(Responses.FILE_LOAD_FAILURE,
+                        "Could not load audio file due to I/O Exception",
+                        "", stackTrace);
+            this.pcm = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether the audio file is already decoded and unchanged on disk.
+     * @return true if decoded audio can be reused
+     */
+    private boolean canReuseDecoded() {
+        if (null == this.pcm || !this.preload) {
+            return false;
+        }
+        try {
+            return this.pcmModified == Files.getLastModifiedTime(
+                            Paths.get(this.audioFilePath)).toMillis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sets whether to decode the audio into memory when loaded.
+     * Takes effect when the audio file is next loaded
+     * @param preloadAudio true to decode into memory
+     */
+    public void setPreload(final boolean preloadAudio) {
+        this.preload = preloadAudio;
+        if (!preloadAudio) {
+            this.pcm = null;
+        }
+        return;
+    }
+
+    /**
+     * Whether the loaded audio is decoded in memory.
+     * @return true if playing will not read from disk
+     */
+    public boolean isPreloaded() {
+        return null != this.pcm;
+    }
+
+    /**
+     * Opens the line to play the audio, if not already open.
+     * @return true if the line is open
+     */
+    private boolean openLine() {
+        if (null != this.sourceDataLine && this.sourceDataLine.isOpen()) {
+            return true;
+        }
+        try {
+            this.sourceDataLine = (SourceDataLine) AudioSystem.getLine(
+                                                                this.info);
+            if (this.lineBufferSize > 0) {
+                this.sourceDataLine.open(this.audioFormat,
+                                            this.lineBufferSize);
+            } else {
+                this.sourceDataLine.open(this.audioFormat);
+            }
+        } catch (LineUnavailableException | IllegalStateException
+                | IllegalArgumentException | SecurityException e) {
+            String stackTrace = Utils.getStackTrace(e);
+            updateStatus(Responses.AUDIO_ERROR,
+                        "Could not open audio line due to error",
+                        "", stackTrace);
+            return false;
+        }
+        return true;
     }
 
     /** Returns audioLoaded flag.
@@ -175,6 +313,7 @@ public class AudioPlayer extends Thread {
                             "", "");
             return;
         }
+        this.clock.reset(System.nanoTime());
         new Thread(new Runnable() {
         public void run() {
             play();
@@ -192,50 +331,27 @@ public class AudioPlayer extends Thread {
             return;
         }
         this.playAudio = true;
-        try {
-            this.sourceDataLine = (SourceDataLine) AudioSystem.getLine(
-                                                                this.info);
-        } catch (LineUnavailableException e) {
-            String stackTrace = Utils.getStackTrace(e);
-            updateStatus(Responses.AUDIO_ERROR,
-                        "Could not play audio file due to error",
-                        "", stackTrace);
-            this.playAudio = false;
-            return;
-        }
-        try {
-            this.sourceDataLine.open(audioFormat);
-        } catch (LineUnavailableException e) {
-           String stackTrace = Utils.getStackTrace(e);
-            updateStatus(Responses.AUDIO_ERROR,
-                        "Could not play audio file due to error",
-                        "", stackTrace);
-            this.playAudio = false;
-            return;
-        } catch (IllegalStateException e) {
-           String stackTrace = Utils.getStackTrace(e);
-            updateStatus(Responses.AUDIO_ERROR,
-                        "Could not play audio file due to error",
-                        "", stackTrace);
-            this.playAudio = false;
-            return;
-        } catch (SecurityException e) {
-           String stackTrace = Utils.getStackTrace(e);
-            updateStatus(Responses.AUDIO_ERROR,
-                        "Could not play audio file due to error",
-                        "", stackTrace);
+        if (!openLine()) {
             this.playAudio = false;
             return;
         }
-
+        this.clock.lineOpened(this.sourceDataLine, System.nanoTime());
+        int chunk = getChunkSize();
+        this.health.reset(this.sourceDataLine.getBufferSize(), chunk);
         this.sourceDataLine.start();
 
-        byte[] bufferBytes = new byte[this.BUFFER_SIZE];
+        if (null != this.pcm) {
+            playDecoded(chunk);
+            reportHealth();
+            stopAudio();
+            return;
+        }
+        byte[] bufferBytes = new byte[chunk];
         int readBytes = -1;
         try {
             while (this.playAudio
                 && (readBytes = this.audioStream.read(bufferBytes)) != -1) {
-                    this.sourceDataLine.write(bufferBytes, 0, readBytes);
+                    writeChunk(bufferBytes, 0, readBytes);
                 }
         } catch (IOException e) {
             String stackTrace = Utils.getStackTrace(e);
@@ -259,23 +375,112 @@ public class AudioPlayer extends Thread {
             this.playAudio = false;
             return;
         }
+        reportHealth();
         stopAudio();
     }
 
+    /**
+     * Plays the decoded audio from the start.
+     * @param chunk size in bytes of each write
+     */
+    private void playDecoded(final int chunk) {
+        int offset = 0;
+        while (this.playAudio && offset < this.pcmLength) {
+            int length = Math.min(chunk, this.pcmLength - offset);
+            int written = writeChunk(this.pcm, offset, length);
+            if (written <= 0) {
+                break; // line stopped or closed
+            }
+            offset += written;
+        }
+        return;
+    }
+
+    /**
+     * Writes to the line, checking for underruns and stalls.
+     * @param buffer audio to write
+     * @param offset index of first byte to write
+     * @param length number of bytes to write
+     * @return number of bytes written
+     */
+    private int writeChunk(final byte[] buffer, final int offset,
+                            final int length) {
+        int available = this.sourceDataLine.available();
+        long start = System.nanoTime();
+        int written = this.sourceDataLine.write(buffer, offset, length);
+        this.health.recordWrite(available, System.nanoTime() - start);
+        this.clock.checkFirstSample();
+        return written;
+    }
+
+    /**
+     * Size of each write, as a whole number of frames.
+     * @return chunk size in bytes
+     */
+    private int getChunkSize() {
+        int frameSize = Math.max(1, this.audioFormat.getFrameSize());
+        return Math.max(frameSize,
+                        this.writeChunkSize - this.writeChunkSize % frameSize);
+    }
+
+    /** Sends the audio health of the playback just finished. */
+    private void reportHealth() {
+        String advice = "";
+        if (this.health.getUnderruns() > 0) {
+            advice = "Audio may have clicked or dropped out. Try a larger"
+                    + " line buffer e.g. -D" + LINE_BUFFER_PROPERTY + "="
+                    + (2 * this.sourceDataLine.getBufferSize());
+        }
+        updateStatus("", "Audio health: " + this.health.getSummary(),
+                        advice, "");
+        return;
+    }
+
+    /**
+     * Sets the size of the line buffer.
+     * Takes effect when the line is next opened
+     * @param bytes size in bytes, or 0 for the line's default
+     */
+    public void setLineBufferSize(final int bytes) {
+        this.lineBufferSize = Math.max(0, bytes);
+        return;
+    }
+
+    /**
+     * Sets the size of each write to the line.
+     * Rounded down to whole frames when played
+     * @param bytes size in bytes
+     */
+    public void setWriteChunkSize(final int bytes) {
+        this.writeChunkSize = Math.max(1, bytes);
+        return;
+    }
+
+    /** Getter for underruns and write stalls of the last playback.
+     * @return health of playback
+     */
+    AudioHealth getHealth() {
+        return this.health;
+    }
+
     /**
      * Stops the audio playing.
      */
     public void stopAudio() {
         this.playAudio = false; // this stops playAudio()
-        sourceDataLine.drain();
-        try {
-            sourceDataLine.close();
-        } catch (SecurityException e) {
-            String stackTrace = Utils.getStackTrace(e);
-                updateStatus(Responses.AUDIO_ERROR,
-                            "Could not stop audio file due to error",
-                            "", stackTrace);
-            return;
+        // no line if there is no sound card, e.g. on a headless machine
+        if (null != sourceDataLine) {
+            sourceDataLine.drain();
+            this.clock.lineStopped(System.nanoTime());
+            try {
+                sourceDataLine.close();
+            } catch (SecurityException e) {
+                String stackTrace = Utils.getStackTrace(e);
+                    updateStatus(Responses.AUDIO_ERROR,
+                                "Could not stop audio file due to error",
+                                "", stackTrace);
+                return;
+            }
         }
 
         try {
@@ -290,6 +495,14 @@ public class AudioPlayer extends Thread {
 
     }
 
+    /**
+     * Getter for the playback position of the audio.
+     * @return clock of the line being played
+     */
+    public AudioClock getClock() {
+        return this.clock;
+    }
+
     /** Returns length of audio file in HH:MM:SS format.
      * @return audio file duration
      */
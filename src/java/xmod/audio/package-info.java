@@ -2,6 +2,7 @@
  * This module controls playing the audio file.
  *
  * AudioPlayer: loads and plays the file
+ * AudioClock: playback position of the file being played
  *
  * @since 2.0
  * @author ELS
@@ -0,0 +1,200 @@
+package xmod.experimenter;
+
+import xmod.audio.AudioPlayer;
+import xmod.constants.Actions;
+import xmod.serial.ControllerPool;
+import xmod.status.ObjectReport;
+import xmod.status.ReportCategory;
+import xmod.status.ReportLabel;
+import xmod.status.Responses;
+import xmod.status.StatusLog;
+import xmod.utils.Utils;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * BatchRunner runs experiments from the command line without any windows.
+ * ExperimentRunner, Serial and AudioPlayer are wired together as in Xmod
+ * and every status update is printed to stdout as one line, in the same
+ * format as the status log: date, time, label, category, value
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Run with ./batch.sh path/to/experiment.tms ...
+ * Add -Dxmod.simulator=true to the java command in batch.sh to run against
+ * the control box simulator, e.g. for overnight soak tests, and
+ * -Dxmod.controllers=n to run on n control boxes
+ * Exit status: 0 all runs finished, 1 usage, 2 an experiment could not be
+ * started, 3 an experiment stopped before its last trial
+ */
+
+public final class BatchRunner implements PropertyChangeListener {
+    /** Exit status when every experiment ran to the end. */
+    static final int EXIT_FINISHED = 0;
+    /** Exit status when the command line is wrong. */
+    static final int EXIT_USAGE = 1;
+    /** Exit status when an experiment could not be started. */
+    static final int EXIT_NOT_STARTED = 2;
+    /** Exit status when an experiment stopped before its last trial. */
+    static final int EXIT_STOPPED = 3;
+    /** Time in ms to wait for the controller box to connect. */
+    private static final int CONNECT_TIMEOUT = 10000;
+    /** Time in ms between checks for the controller box connecting. */
+    private static final int CONNECT_POLL = 100;
+    /** Time in ms to wait for the results of a run to be saved. */
+    private static final int SAVE_TIMEOUT = 60000;
+
+    /** Serial port connection to each controller box. */
+    private final ControllerPool serialPort;
+    /** Audio Player to play the audio file. */
+    private final AudioPlayer audioPlayer;
+    /** Runs the experiment. */
+    private final ExperimentRunner experimentRunner;
+    /** Where status lines are printed. */
+    private final PrintStream out;
+    /** Whether the current experiment started running. */
+    private volatile boolean started;
+    /** Whether the current experiment ran to the end. */
+    private volatile boolean finished;
+
+    /**
+     * Constructor.
+     * @param aSerialPort controller boxes to run the experiments on
+     * @param aAudioPlayer the AudioPlayer object to play the audio file
+     * @param aOut where to print status lines e.g. System.out
+     */
+    public BatchRunner(final ControllerPool aSerialPort,
+                        final AudioPlayer aAudioPlayer,
+                        final PrintStream aOut) {
+        this.serialPort = aSerialPort;
+        this.audioPlayer = aAudioPlayer;
+        this.out = aOut;
+        this.experimentRunner = new ExperimentRunner(this.serialPort, null,
+                                                        this.audioPlayer);
+        this.serialPort.addObserver(this);
+        this.audioPlayer.addObserver(this);
+        this.experimentRunner.addObserver(this);
+    }
+
+    /**
+     * Waits for the controller box to connect.
+     * @param timeoutMs time in ms to wait
+     * @return true if connected
+     */
+    boolean awaitConnection(final int timeoutMs) {
+        int waited = 0;
+        while (!this.serialPort.isSerialConnected() && waited < timeoutMs) {
+            Utils.pause(CONNECT_POLL);
+            waited += CONNECT_POLL;
+        }
+        return this.serialPort.isSerialConnected();
+    }
+
+    /**
+     * Loads and runs one experiment on the calling thread.
+     * The .wav file is found next to the .tms file, as in Xmod
+     * @param tmsFile path of the tms file
+     * @return exit status: EXIT_FINISHED, EXIT_NOT_STARTED or EXIT_STOPPED
+     */
+    public int run(final String tmsFile) {
+        this.started = false;
+        this.finished = false;
+        this.experimentRunner.setUpExperiment(tmsFile);
+        if (!this.experimentRunner.isExperimentLoaded()) {
+            return EXIT_NOT_STARTED;
+        }
+        this.audioPlayer.loadAudio(Utils.getWavFromTMS(tmsFile));
+        try {
+            this.experimentRunner.runMethod();
+        } catch (RuntimeException e) {
+            print(ReportLabel.STATUS, ReportCategory.STATUS,
+                    Responses.EXPERIMENT_ABORTED);
+            print(ReportLabel.STATUS, ReportCategory.STACKTRACE,
+                    Utils.getStackTrace(e));
+            this.experimentRunner.setRunning(false);
+        }
+        // the run is only reported finished once its results are saved
+        this.experimentRunner.awaitResultsSaved(SAVE_TIMEOUT);
+        if (this.finished) {
+            return EXIT_FINISHED;
+        }
+        return this.started ? EXIT_STOPPED : EXIT_NOT_STARTED;
+    }
+
+    /**
+     * Prints status updates and notes how the experiment ended.
+     * @param evt PropertyChangeEvent sent by the pcs
+     */
+    public void propertyChange(final PropertyChangeEvent evt) {
+        String actionType = evt.getPropertyName();
+        if (actionType == Actions.UPDATE) {
+            ObjectReport report = (ObjectReport) evt.getNewValue();
+            ReportLabel label = ReportLabel.valueOf(report.getName());
+            for (Map.Entry<ReportCategory, ArrayList<String>> entry
+                                                    : report.entrySet()) {
+                for (String value : entry.getValue()) {
+                    if (entry.getKey() == ReportCategory.STATUS
+                        && Responses.EXPERIMENT_RUNNING.equals(value)) {
+                        this.started = true;
+                    }
+                    print(label, entry.getKey(), value);
+                }
+            }
+        } else if (actionType == Actions.FINISH_EXPERIMENT) {
+            this.finished = true;
+            print(ReportLabel.STATUS, ReportCategory.STATUS,
+                    Responses.EXPERIMENT_COMPLETE);
+        }
+        return;
+    }
+
+    /**
+     * Prints one status line.
+     * Updates come from several threads, so lines are printed whole
+     * @param label ReportLabel of the value
+     * @param category ReportCategory of the value
+     * @param value status value
+     */
+    private void print(final ReportLabel label,
+                        final ReportCategory category, final String value) {
+        String line = StatusLog.formatLine(label, category, value);
+        synchronized (this.out) {
+            this.out.println(line);
+            this.out.flush();
+        }
+        return;
+    }
+
+    /**
+     * Runs each experiment given on the command line in turn.
+     * Stops at the first experiment which does not run to the end
+     * @param args paths of tms files
+     */
+    public static void main(final String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: BatchRunner <file.tms> ...");
+            System.exit(EXIT_USAGE);
+        }
+        ControllerPool serialPort = ControllerPool.create();
+        BatchRunner batch = new BatchRunner(serialPort, new AudioPlayer(),
+                                            System.out);
+        int status = EXIT_FINISHED;
+        if (serialPort.getMissing() > 0) {
+            batch.print(ReportLabel.CONNECTION, ReportCategory.MESSAGE,
+                serialPort.getMissing() + " control boxes not found");
+            status = EXIT_NOT_STARTED;
+        } else if (!batch.awaitConnection(CONNECT_TIMEOUT)) {
+            status = EXIT_NOT_STARTED;
+        }
+        for (int i = 0; i < args.length && status == EXIT_FINISHED; i++) {
+            status = batch.run(args[i]);
+        }
+        serialPort.close();
+        System.exit(status);
+    }
+}
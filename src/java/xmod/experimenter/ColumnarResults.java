@@ -0,0 +1,390 @@
+package xmod.experimenter;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads results as typed columns in a compact binary file.
+ * Each column is stored whole, one after another, so a reader can load a
+ * column straight into an array (e.g. numpy.frombuffer) without parsing
+ * text. Text columns are dictionary encoded: each distinct value is
+ * stored once and rows hold its index
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Layout (little-endian, strings are u32 byte length then UTF-8):
+ *   "XMRC", u16 version, u16 reserved
+ *   string tms file, string date, string time
+ *   u32 rows, u16 columns
+ *   then for each column: string name, u8 type, then its data
+ *     INT32:  rows x i32
+ *     INT8:   rows x i8
+ *     DICT16: u32 n, n strings, rows x u16 index
+ *     DICT32: u32 n, n strings, rows x i32 index
+ */
+
+final class ColumnarResults {
+    /** File extension. */
+    static final String EXTENSION = "xmr";
+    /** Magic number at start of file, "XMRC" read as little-endian. */
+    static final int MAGIC = 0x43524D58;
+    /** Format version. */
+    static final short VERSION = 1;
+    /** Column type: 32 bit signed integers. */
+    static final byte INT32 = 1;
+    /** Column type: 8 bit signed integers. */
+    static final byte INT8 = 2;
+    /** Column type: dictionary with 16 bit unsigned indices. */
+    static final byte DICT16 = 3;
+    /** Column type: dictionary with 32 bit indices. */
+    static final byte DICT32 = 4;
+    /** Largest dictionary with 16 bit indices. */
+    private static final int DICT16_MAX = 0xFFFF + 1;
+    /** Bytes in the fixed part of the header. */
+    private static final int FIXED_HEADER = 4 + 2 + 2 + 4 + 2;
+
+    /** Number of rows. */
+    private final int rows;
+    /** Column names in order. */
+    private final List<String> names = new ArrayList<String>();
+    /** Column types in order. */
+    private final List<Byte> types = new ArrayList<Byte>();
+    /** Column data in order: int[], byte[] or Dictionary. */
+    private final List<Object> columns = new ArrayList<Object>();
+
+    /** Dictionary encoded column. */
+    private static final class Dictionary {
+        /** Distinct values in order of first appearance. */
+        private final List<byte[]> values = new ArrayList<byte[]>();
+        /** Index into values for each row. */
+        private final int[] indices;
+
+        /**
+         * Constructor.
+         * @param rowCount number of rows
+         */
+        Dictionary(final int rowCount) {
+            this.indices = new int[rowCount];
+        }
+    }
+
+    /**
+     * Constructor.
+     * @param rowCount number of rows in every column
+     */
+    ColumnarResults(final int rowCount) {
+        this.rows = rowCount;
+    }
+
+    /**
+     * Adds a column of 32 bit integers.
+     * @param name column name
+     * @param values one per row
+     */
+    void addIntColumn(final String name, final int[] values) {
+        checkLength(values.length);
+        addColumn(name, INT32, values);
+        return;
+    }
+
+    /**
+     * Adds a column of 8 bit integers.
+     * @param name column name
+     * @param values one per row
+     */
+    void addByteColumn(final String name, final byte[] values) {
+        checkLength(values.length);
+        addColumn(name, INT8, values);
+        return;
+    }
+
+    /**
+     * Adds a dictionary encoded text column.
+     * Row r has the value values[rowIndex[r]], e.g. per trial values
+     * repeated for each box
+     * @param name column name
+     * @param values values to pick from; null is stored as ""
+     * @param rowIndex index into values for each row
+     */
+    void addTextColumn(final String name, final String[] values,
+                        final int[] rowIndex) {
+        checkLength(rowIndex.length);
+        Dictionary dictionary = new Dictionary(this.rows);
+        // encode each distinct source value once
+        int[] codeOf = new int[values.length];
+        Map<String, Integer> seen = new HashMap<String, Integer>();
+        for (int i = 0; i < values.length; i++) {
+            String value = (null == values[i]) ? "" : values[i];
+            Integer code = seen.get(value);
+            if (null == code) {
+                code = dictionary.values.size();
+                seen.put(value, code);
+                dictionary.values.add(
+                            value.getBytes(StandardCharsets.UTF_8));
+            }
+            codeOf[i] = code;
+        }
+        for (int r = 0; r < this.rows; r++) {
+            dictionary.indices[r] = codeOf[rowIndex[r]];
+        }
+        byte type = (dictionary.values.size() <= DICT16_MAX) ? DICT16
+                                                              : DICT32;
+        addColumn(name, type, dictionary);
+        return;
+    }
+
+    /**
+     * Adds a column.
+     * @param name column name
+     * @param type column type
+     * @param data column data
+     */
+    private void addColumn(final String name, final byte type,
+                            final Object data) {
+        this.names.add(name);
+        this.types.add(type);
+        this.columns.add(data);
+        return;
+    }
+
+    /**
+     * Checks a column has one value per row.
+     * @param length number of values
+     */
+    private void checkLength(final int length) {
+        if (length != this.rows) {
+            throw new IllegalArgumentException("Column has " + length
+                + " values but there are " + this.rows + " rows");
+        }
+        return;
+    }
+
+    /**
+     * Writes the columns to file, replacing any existing file.
+     * @param file path to write to
+     * @param tmsFileName tms file of the experiment
+     * @param dateString date of the results
+     * @param timeString time of the results
+     * @throws IOException if the file cannot be written
+     */
+    void write(final Path file, final String tmsFileName,
+                final String dateString, final String timeString)
+                throws IOException {
+        byte[][] header = {utf8(tmsFileName), utf8(dateString),
+                            utf8(timeString)};
+        byte[][] nameBytes = new byte[this.names.size()][];
+        long size = FIXED_HEADER;
+        for (byte[] h : header) {
+            size += Integer.BYTES + h.length;
+        }
+        for (int c = 0; c < this.columns.size(); c++) {
+            nameBytes[c] = utf8(this.names.get(c));
+            size += Integer.BYTES + nameBytes[c].length + 1
+                    + dataSize(this.types.get(c), this.columns.get(c));
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Results too large for one buffer");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size)
+                                        .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+        for (byte[] h : header) {
+            putString(buffer, h);
+        }
+        buffer.putInt(this.rows).putShort((short) this.columns.size());
+        for (int c = 0; c < this.columns.size(); c++) {
+            putString(buffer, nameBytes[c]);
+            byte type = this.types.get(c);
+            buffer.put(type);
+            putData(buffer, type, this.columns.get(c));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file,
+                                    StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        return;
+    }
+
+    /**
+     * Bytes taken by the data of a column.
+     * @param type column type
+     * @param data column data
+     * @return size in bytes
+     */
+    private long dataSize(final byte type, final Object data) {
+        switch (type) {
+            case INT32:
+                return (long) Integer.BYTES * this.rows;
+            case INT8:
+                return this.rows;
+            default:
+                Dictionary dictionary = (Dictionary) data;
+                long size = Integer.BYTES;
+                for (byte[] value : dictionary.values) {
+                    size += Integer.BYTES + value.length;
+                }
+                int indexBytes = (type == DICT16) ? Short.BYTES
+                                                  : Integer.BYTES;
+                return size + (long) indexBytes * this.rows;
+        }
+    }
+
+    /**
+     * Puts the data of a column.
+     * @param buffer buffer to put into
+     * @param type column type
+     * @param data column data
+     */
+    private void putData(final ByteBuffer buffer, final byte type,
+                            final Object data) {
+        switch (type) {
+            case INT32:
+                buffer.asIntBuffer().put((int[]) data);
+                buffer.position(buffer.position()
+                                + Integer.BYTES * this.rows);
+                break;
+            case INT8:
+                buffer.put((byte[]) data);
+                break;
+            default:
+                Dictionary dictionary = (Dictionary) data;
+                buffer.putInt(dictionary.values.size());
+                for (byte[] value : dictionary.values) {
+                    putString(buffer, value);
+                }
+                for (int index : dictionary.indices) {
+                    if (type == DICT16) {
+                        buffer.putShort((short) index);
+                    } else {
+                        buffer.putInt(index);
+                    }
+                }
+                break;
+        }
+        return;
+    }
+
+    /**
+     * Reads a results file back into columns.
+     * Text columns are decoded to one String per row
+     * @param file path to read
+     * @return column name to int[], byte[] or String[] in file order,
+     * with the header strings under "#tms", "#date" and "#time"
+     * @throws IOException if the file cannot be read or is not valid
+     */
+    static Map<String, Object> read(final Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file))
+                                        .order(ByteOrder.LITTLE_ENDIAN);
+        Map<String, Object> columns = new LinkedHashMap<String, Object>();
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+                throw new IOException("Not a results file: " + file);
+            }
+            buffer.getShort(); // reserved
+            columns.put("#tms", getString(buffer));
+            columns.put("#date", getString(buffer));
+            columns.put("#time", getString(buffer));
+            int rowCount = buffer.getInt();
+            int columnCount = Short.toUnsignedInt(buffer.getShort());
+            for (int c = 0; c < columnCount; c++) {
+                String name = getString(buffer);
+                byte type = buffer.get();
+                columns.put(name, getData(buffer, type, rowCount));
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Results file truncated: " + file, e);
+        }
+        return columns;
+    }
+
+    /**
+     * Gets the data of a column.
+     * @param buffer buffer to get from
+     * @param type column type
+     * @param rowCount number of rows
+     * @return int[], byte[] or String[]
+     * @throws IOException if the type is not known
+     */
+    private static Object getData(final ByteBuffer buffer, final byte type,
+                                    final int rowCount) throws IOException {
+        switch (type) {
+            case INT32:
+                int[] ints = new int[rowCount];
+                buffer.asIntBuffer().get(ints);
+                buffer.position(buffer.position()
+                                + Integer.BYTES * rowCount);
+                return ints;
+            case INT8:
+                byte[] bytes = new byte[rowCount];
+                buffer.get(bytes);
+                return bytes;
+            case DICT16:
+            case DICT32:
+                String[] dictionary = new String[buffer.getInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = getString(buffer);
+                }
+                String[] text = new String[rowCount];
+                for (int r = 0; r < rowCount; r++) {
+                    int index = (type == DICT16)
+                                ? Short.toUnsignedInt(buffer.getShort())
+                                : buffer.getInt();
+                    text[r] = dictionary[index];
+                }
+                return text;
+            default:
+                throw new IOException("Unknown column type " + type);
+        }
+    }
+
+    /**
+     * Encodes a string as UTF-8.
+     * @param value string, null treated as ""
+     * @return bytes
+     */
+    private static byte[] utf8(final String value) {
+        return ((null == value) ? "" : value)
+                    .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Puts a length-prefixed string.
+     * @param buffer buffer to put into
+     * @param value UTF-8 bytes
+     */
+    private static void putString(final ByteBuffer buffer,
+                                    final byte[] value) {
+        buffer.putInt(value.length).put(value);
+        return;
+    }
+
+    /**
+     * Gets a length-prefixed string.
+     * @param buffer buffer to get from
+     * @return string
+     */
+    private static String getString(final ByteBuffer buffer) {
+        byte[] value = new byte[buffer.getInt()];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -1,7 +1,6 @@
 package xmod.experimenter;
 
 import xmod.constants.Actions;
-import xmod.constants.Typesetting;
 import xmod.status.ObjectReport;
 import xmod.status.ReportCategory;
 import xmod.status.ReportLabel;
@@ -9,11 +8,16 @@ import xmod.status.Responses;
 
 import xmod.utils.Utils;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
@@ -53,8 +57,16 @@ public class ExperimentLoader {
     /**  array of visual trial items. */
     private String[] screenItems;
 
-    /** list of lines in the tms file. */
-    private ArrayList<String> tmsFileLines;
+    /** raw contents of the tms file, from loadFile until parseFile. */
+    private MappedByteBuffer tmsBytes;
+    /** size of the tms file in bytes. */
+    private long tmsSize;
+    /** last modified time of the tms file in ms. */
+    private long tmsModified;
+    /** crc32 of the tms file contents. */
+    private long tmsCrc;
+    /** Whether the last parse was read from the .tmsc cache. */
+    private Boolean loadedFromCache = false;
 
     /** time in ms reserved for communication with controller.
      * Note why this is 400ms is unknown - but was set in Xmod 1.0
@@ -132,6 +144,20 @@ public class ExperimentLoader {
         return this.screenItems;
     }
 
+    /** Getter for size of the tms file as last loaded.
+     * @return this.tmsSize
+     */
+    public long getTmsSize() {
+        return this.tmsSize;
+    }
+
+    /** Getter for crc32 of the tms file as last loaded.
+     * @return this.tmsCrc
+     */
+    public long getTmsCrc() {
+        return this.tmsCrc;
+    }
+
     /**
      * Reads the tms file into a buffer to be parsed.
      * Checks that file has a valid filename and exists
@@ -141,6 +167,7 @@ public class ExperimentLoader {
      * @return returns whether file loaded or not
      */
     public Boolean loadFile(final String filepath) {
+        this.tmsLoaded = false;
 
         if (null == filepath) {
             updateStatus(Responses.NO_FILE_SELECTED,
@@ -167,22 +194,24 @@ public class ExperimentLoader {
         //Now filepath must exist and have .tms extension so read the file:
 
         this.tmsFileName = this.tmsFilePath;
-        this.tmsFileLines = new ArrayList<String>();
-        try (// This will automatically close the BufferedReader at the end
-            BufferedReader file = new BufferedReader(
-                                    new FileReader(new File(this.tmsFilePath))
-                                    );
-        ) {
-            String line;
-            while ((line = file.readLine()) != null) {
-                this.tmsFileLines.add(line);
-            }
-            if (this.tmsFileLines.size() == 0) {
+        this.tmsBytes = null;
+        // Map the file; it is only decoded if the .tmsc cache is stale
+        Path path = Paths.get(this.tmsFilePath);
+        try (FileChannel channel = FileChannel.open(path,
+                                    StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
                 updateStatus(Responses.NO_FILE_SELECTED,
                 "Could not load file " + filepath + " as file is empty",
                 "Please try again", "");
                 return false;
             }
+            this.tmsSize = channel.size();
+            this.tmsModified = Files.getLastModifiedTime(path).toMillis();
+            this.tmsBytes = channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, this.tmsSize);
+            CRC32 crc = new CRC32();
+            crc.update(this.tmsBytes.duplicate());
+            this.tmsCrc = crc.getValue();
         } catch (IOException e) {
             String stackTrace = Utils.getStackTrace(e);
             updateStatus(Responses.NO_FILE_SELECTED,
@@ -194,116 +223,89 @@ public class ExperimentLoader {
     };
 
     /**
-     * Initialises the experiment arrays and parses tms information.
-     * Creates arrays the length of the tms file
+     * Parses the tms information into the experiment arrays.
+     * Uses the .tmsc cache if the file is unchanged (see TmsCache)
+     * otherwise parses the file in a single pass (see TmsParser)
      * Generates the code head
      * Corrects the timeouts to account for tcommreserve
      */
     public void parseFile() {
+        this.tmsLoaded = false;
+        this.loadedFromCache = false;
         try {
-            initialiseArrays();
-            getTmsInfo();
-            extractInfo();
+            if (null == this.tmsBytes) {
+                throw new ExperimentLoaderException("TMS file not loaded");
+            }
+            Path cacheFile = TmsCache.cachePath(Paths.get(this.tmsFilePath));
+            // same charset as FileReader
+            Charset charset = Charset.defaultCharset();
+            TmsCache cache = TmsCache.read(cacheFile, this.tmsSize,
+                                            this.tmsModified, this.tmsCrc,
+                                            charset.name());
+            if (null == cache) {
+                CharBuffer tmsChars = charset.decode(
+                                                this.tmsBytes.duplicate());
+                TmsParser parser = new TmsParser(tmsChars);
+                parser.parse();
+                cache = new TmsCache(parser.getCodehead(),
+                                    parser.getTReactionTimeout(),
+                                    parser.getTReactionOffset(),
+                                    parser.getTMonitorOn(),
+                                    parser.getTMonitorOff(),
+                                    parser.getCodingArray(),
+                                    parser.getScreenItems());
+                writeCache(cache, cacheFile, charset);
+            } else {
+                this.loadedFromCache = true;
+            }
+            this.codehead = cache.getCodehead();
+            this.tReactionTimeout = cache.getTReactionTimeout();
+            this.tReactionOffset = cache.getTReactionOffset();
+            this.tMonitorOn = cache.getTMonitorOn();
+            this.tMonitorOff = cache.getTMonitorOff();
+            this.codingArray = cache.getCodingArray();
+            this.screenItems = cache.getScreenItems();
             correctTimeouts();
             this.tmsLoaded = true;
         } catch (ExperimentLoaderException e) {
             updateStatus(Responses.NO_FILE_SELECTED,
-            "Failed to parse the tms file " + this.tmsFilePath,
+            "Failed to parse the tms file " + this.tmsFilePath
+            + "<br/>" + e.getMessage(),
             "Please try again with a valid .tms file",
-            e.getMessage()
+            Utils.getStackTrace(e)
             );
+        } finally {
+            // let go of the mapping so the file can be edited or replaced
+            // (Windows keeps a mapped file open) and reloaded
+            this.tmsBytes = null;
         }
     };
 
     /**
-     * Gets size of arrays needed to hold all the experiment info from tms file.
-     * @return integer length
-     */
-    private int getArraySize() {
-        if (null == this.tmsFileLines) {
-            return -1;
-        }
-        // ignore first two lines of tms file
-        int length = (int) Math.floor((this.tmsFileLines.size() - 2) / 2);
-        // if even, need to ignore that last one
-        // last char in tms file is a carriage return to empty element created
-        if (length / 2 == 0) {
-            length = length - 1;
-        }
-        return length;
-    }
-
-    /**
-     * Sets up all the arrays needed to hold experiment info from tms file.
-     */
-    private void initialiseArrays() throws ExperimentLoaderException {
-        int length = getArraySize();
-        if (length == -1) {
-            throw new ExperimentLoaderException("TMS file has no trials");
-        }
-        this.tReactionTimeout = new int[length]; // timeout from RT start
-        this.tReactionOffset = new int[length]; //offset to start recording RT
-        this.tMonitorOn = new int[length]; // time to monitor on from bleep
-        this.tMonitorOff = new int[length]; // time to monitor off from bleep
-        this.codingArray = new String[length]; // contains codee text fields
-        this.screenItems = new String[length]; // array of visual trial items
-        return;
-    };
-
-    /**
-     * Collects tmsVersion and the generates the codehead for the results file.
-     * Removes lines from tms that are not needed
+     * Saves the parsed file as a .tmsc cache for next time.
+     * Failure only costs a reparse next time, so it is not reported
+     * @param cache parsed contents
+     * @param cacheFile where to save it
+     * @param charset charset the file was decoded with
      */
-    private void getTmsInfo() throws ExperimentLoaderException {
+    private void writeCache(final TmsCache cache, final Path cacheFile,
+                            final Charset charset) {
         try {
-            // remove first element (%% CROSSMODAL STRING)
-            this.tmsFileLines.remove(0);
-            // remove tms version line
-            this.tmsFileLines.remove(0);
-            // extract codehead info
-            codehead = this.tmsFileLines.get(0).trim() + Typesetting.CR;
-            this.tmsFileLines.remove(0);
-        } catch (IndexOutOfBoundsException e) {
-            throw new ExperimentLoaderException("TMS file lacks first 3 lines");
+            cache.write(cacheFile, this.tmsSize, this.tmsModified,
+                        this.tmsCrc, charset.name());
+        } catch (IOException | SecurityException e) {
+            return;
         }
         return;
-    };
+    }
 
-    /**
-     * Extracts the timings and items from the tms file to populate the arrays.
-     * Note first three lines of file have been removed by gettmsInfo
-     * therefore this.tmsFileLines only has the experiment trials now
+    /** Whether the last parse was read from the .tmsc cache.
+     * @return this.loadedFromCache
      */
-    private void extractInfo() {
-        int length = this.tmsFileLines.size();
-        final int numLineComponents = 3;
-        for (int i = 0; i < length / 2; i++) { // length/2 as 2 lines per trial
-            // Get Timing Info on every other line
-            //starts with even lines as 0 indexed
-            // tmsLine will have length 3 when split by tabs
-            String[] tmsTimingLine = this.tmsFileLines.get(2 * i)
-                                        .split("\t", numLineComponents);
-            this.tReactionTimeout[i] = (int) Float.parseFloat(
-                                            tmsTimingLine[0].trim()
-                                            ); // 2000.0 in .tms -> 2000 here
-            this.tReactionOffset[i] = (int) Float.parseFloat(
-                                            tmsTimingLine[1].trim()
-                                            );
-            // remove trailing whitespace from coding array
-            this.codingArray[i] = tmsTimingLine[2].trim();
-            // Get Visual Info: screen item and monitor timing
-            String[] tmsVisualLine = this.tmsFileLines.get(2 * i + 1)
-                                                        .split("\t");
-            this.screenItems[i] = tmsVisualLine[0].trim();
-            this.tMonitorOn[i] = (int) Float.parseFloat(
-                                                tmsVisualLine[1].trim());
-            this.tMonitorOff[i] = (int) Float.parseFloat(
-                                                tmsVisualLine[2].trim());
-        }
-        return;
+    public Boolean isLoadedFromCache() {
+        return this.loadedFromCache;
     }
 
-
     /**
      * Corrects the timeouts to account for the tcommreserve.
      * tcommreserve is the time in ms reserved for communication with controller
@@ -353,14 +355,3 @@ public class ExperimentLoader {
         pcs.addPropertyChangeListener(Actions.UPDATE, l);
     }
 }
-
-/** Custom Exception to stop parsing if errors occur. */
-class ExperimentLoaderException extends Exception {
-    /** Constructor.
-     * @param msg message to use in the exception report
-    */
-    ExperimentLoaderException(final String msg) {
-        super(msg);
-    }
-
-}
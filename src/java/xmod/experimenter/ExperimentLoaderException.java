@@ -0,0 +1,21 @@
+package xmod.experimenter;
+
+/** Custom Exception to stop parsing if errors occur.
+ * Thrown by TmsParser and ExperimentLoader
+ * @author ELS
+ * @version 2.1
+ * @since 2025-06-09
+ */
+
+class ExperimentLoaderException extends Exception {
+    /** Serial version. */
+    private static final long serialVersionUID = 1L;
+
+    /** Constructor.
+     * @param msg message to use in the exception report
+    */
+    ExperimentLoaderException(final String msg) {
+        super(msg);
+    }
+
+}
@@ -2,6 +2,7 @@ package xmod.experimenter;
 
 import xmod.constants.Actions;
 import xmod.constants.Typesetting;
+import xmod.serial.ControllerPool;
 import xmod.status.ObjectReport;
 import xmod.status.ReportCategory;
 import xmod.status.ReportLabel;
@@ -9,12 +10,20 @@ import xmod.status.Responses;
 
 import xmod.utils.Utils;
 import java.io.IOException;
-
+import java.io.StringWriter;
+import java.io.Writer;
+
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
-import java.util.Arrays;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 
@@ -47,23 +56,57 @@ public class ExperimentResulter {
     /** Item to show on screen for each trial (extracted from expLoader). */
     private String[] screenItems;
 
-    /** Array holding if participant exists at that box. */
-    private Boolean[] boxInUse;
-    /** Array holding character key pressed for each reaction. */
-    private String[][] cKey;
-    /** Array holding numeric key pressed for each reaction. */
-    private String[][] nKey;
-    /** Array holding flag for reaction pressed for each reaction. */
-    private Boolean[][] rFlag;
-    /** Array holding reaction time for each reaction. */
-    private int[][] reacTime;
+    /** Number of controller boxes whose frames make up each reaction. */
+    private int controllers;
+    /** Number of boxes across all controller boxes. */
+    private int numBoxes;
+    /** Bit per box set if participant exists at that box. */
+    private long boxesInUse;
+    /** Key code of each reaction, indexed trial * numBoxes + box. */
+    private byte[] keyCodes;
+    /** Reaction time of each reaction, indexed trial * numBoxes + box. */
+    private int[] reacTimes;
 
     /** Directory to save results to. */
     private Path resultsDir;
     /** Name of results file. */
     private Path resultsFile;
-    /** Number of boxes in the system - fixed at 16. */
-    private static final int NUM_BOXES = 16;
+    /** Journal of reaction frames for this run, null if not journalling. */
+    private ResultsJournal journal;
+    /** Size and crc32 of the tms file, recorded in the journal. */
+    private ResultsJournal.TmsStamp tmsStamp =
+                                        ResultsJournal.TmsStamp.UNKNOWN;
+    /** Most _n suffixes tried for a journal name already in use. */
+    private static final int MAX_JOURNAL_SUFFIX = 99;
+    /** Number of boxes on each controller box - fixed at 16. */
+    private static final int BOXES_PER_CONTROLLER =
+                                            ReactionFrameDecoder.NUM_BOXES;
+    /** Bytes in the reaction frame of each controller box. */
+    private static final int FRAME_SIZE = ReactionFrameDecoder.FRAME_SIZE;
+    /** Most boxes across all controller boxes. */
+    private static final int MAX_BOXES = ControllerPool.MAX_CONTROLLERS
+                                            * BOXES_PER_CONTROLLER;
+    /** Key code of a reaction not yet collected. */
+    private static final byte KEY_UNSET = ReactionFrameDecoder.KEY_UNSET;
+    /** Key code of a reaction with no key pressed. */
+    private static final byte KEY_NONE = ReactionFrameDecoder.KEY_NONE;
+    /** Character key for each key code ("L", "R", "M" for keys 1, 2, 3). */
+    private static final String[] C_KEYS = {null, ".", "L", "R", "M"};
+    /** Numeric key for each key code, as printed in the results file. */
+    private static final String[] N_KEYS = {null, ".", "1", "3", "2"};
+    /** Numeric key for each key code in the .xmr file, 0 for no key. */
+    private static final byte[] N_KEY_VALUES = {-1, 0, 1, 3, 2};
+    /** Box labels as printed in the results file ("00" to "63"). */
+    private static final String[] BOX_LABELS = new String[MAX_BOXES];
+    static {
+        final int twoDigits = 10;
+        for (int boxNo = 0; boxNo < MAX_BOXES; boxNo++) {
+            //Add zero if box number is less than 10
+            BOX_LABELS[boxNo] = ((boxNo >= twoDigits)
+                                ? Integer.toString(boxNo)
+                                : "0" + Integer.toString(boxNo));
+        }
+    }
 
     /** Constructor.
      * @param experimentLength number of trials in experiment
@@ -79,8 +122,34 @@ public class ExperimentResulter {
                                 final String experimentCodehead,
                                 final String[] experimentCodingArray,
                                 final String[] experimentScreenItems) {
+        this(fileName, experimentLength, tReactionTOffset,
+                experimentCodehead, experimentCodingArray,
+                experimentScreenItems, 1);
+    }
+
+    /** Constructor for results from several controller boxes.
+     * Boxes are numbered across the controllers: controller c has boxes
+     * 16c to 16c + 15
+     * @param experimentLength number of trials in experiment
+     * @param tReactionTOffset offset for each trial
+     * @param experimentCodehead labels for the columns
+     * @param fileName must include path
+     * @param experimentCodingArray all the coding info from the tms file
+     * @param experimentScreenItems items for each trial
+     * @param controllerCount number of controller boxes, 1 to 4
+    */
+    public ExperimentResulter(final String fileName,
+                                final int experimentLength,
+                                final int[] tReactionTOffset,
+                                final String experimentCodehead,
+                                final String[] experimentCodingArray,
+                                final String[] experimentScreenItems,
+                                final int controllerCount) {
 
         this.pcs = new PropertyChangeSupport(this);
+        this.controllers = Math.max(1, Math.min(controllerCount,
+                                            ControllerPool.MAX_CONTROLLERS));
+        this.numBoxes = this.controllers * BOXES_PER_CONTROLLER;
 
         this.expLength = experimentLength;
         this.tReactionOffset = tReactionTOffset;
@@ -128,7 +197,8 @@ public class ExperimentResulter {
      * For a given trial, parse the byte array from the control box.
      * This records the pressed key and reaction time
      * Need to run this for each trial
-     * @param reaction byte array from control box
+     * @param reaction byte array from control box; with several controller
+     * boxes, their frames one after another
      * @param currentTrialIndex integer to decide where the results are saved
      */
     public void collectTrialResults(final byte[] reaction,
@@ -136,11 +206,136 @@ public class ExperimentResulter {
         if (null == reaction) {
             return;
         }
-        for (int box = 0; box < this.NUM_BOXES; box++) {
-            int reactionOutput = getOutput(reaction, box);
-            getPressedKeys(reactionOutput, box, currentTrialIndex);
-            getReactionTime(reaction, box, currentTrialIndex);
+        int cell = currentTrialIndex * this.numBoxes;
+        for (int c = 0; c < this.controllers; c++) {
+            int pressed = ReactionFrameDecoder.decode(reaction,
+                                    c * FRAME_SIZE,
+                                    this.tReactionOffset[currentTrialIndex],
+                                    this.keyCodes, this.reacTimes,
+                                    cell + c * BOXES_PER_CONTROLLER);
+            this.boxesInUse |= (long) pressed << (c * BOXES_PER_CONTROLLER);
         }
+        appendToJournal(reaction, currentTrialIndex);
+    }
+
+    /**
+     * Starts a journal of the reaction frames for this run.
+     * Each trial is appended as it is collected so the results can be
+     * rebuilt with JournalRecovery if Xmod stops before printing them
+     */
+    public void openJournal() {
+        closeJournal(false);
+        String dateString = Utils.getDate();
+        String timeString = Utils.getTime();
+        String bareName = Utils.getBareName(this.tmsFileName) + "_"
+                            + dateString + "_" + timeString;
+        try {
+            this.journal = createJournal(bareName, dateString, timeString);
+        } catch (IOException e) {
+            this.journal = null;
+            updateStatus("", "Could not create results journal",
+                "Results will only be saved at the end of the experiment",
+                Utils.getStackTrace(e));
+        }
+        return;
+    }
+
+    /**
+     * Creates the journal file, adding _1, _2 etc. to the name if a journal
+     * with the same date and time (to the second) is already there, e.g.
+     * from a run started within the same second.
+     * @param bareName name of the journal without suffix or extension
+     * @param dateString date the run started
+     * @param timeString time the run started
+     * @return journal open for appending
+     * @throws IOException if the journal cannot be created
+     */
+    private ResultsJournal createJournal(final String bareName,
+                                        final String dateString,
+                                        final String timeString)
+                                        throws IOException {
+        for (int suffix = 0;; suffix++) {
+            String journalFilename = bareName
+                                + ((suffix == 0) ? "" : "_" + suffix)
+                                + "." + ResultsJournal.EXTENSION;
+            try {
+                return ResultsJournal.create(
+                        Paths.get(this.resultsDir.toString(), journalFilename),
+                        this.tmsFileName, this.tmsStamp, dateString,
+                        timeString, this.expLength,
+                        this.controllers * FRAME_SIZE);
+            } catch (FileAlreadyExistsException e) {
+                if (suffix >= MAX_JOURNAL_SUFFIX) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a trial to the journal, if one is open.
+     * @param reaction byte array from control box
+     * @param currentTrialIndex index of the trial
+     */
+    private void appendToJournal(final byte[] reaction,
+                                    final int currentTrialIndex) {
+        ResultsJournal current = this.journal;
+        if (null == current) {
+            return;
+        }
+        try {
+            current.append(currentTrialIndex, reaction);
+        } catch (IOException e) {
+            // stop journalling but keep what was written
+            closeJournal(false);
+            updateStatus("", "Could not write to results journal "
+                + current.getPath(),
+                "Results will only be saved at the end of the experiment",
+                Utils.getStackTrace(e));
+        }
+        return;
+    }
+
+    /**
+     * Closes the journal, if one is open.
+     * @param delete true to delete the journal once results are saved
+     */
+    private void closeJournal(final boolean delete) {
+        ResultsJournal current = this.journal;
+        if (null == current) {
+            return;
+        }
+        this.journal = null;
+        try {
+            current.close();
+            if (delete) {
+                Files.deleteIfExists(current.getPath());
+            }
+        } catch (IOException e) {
+            // journal is only needed if the results were not saved
+        }
+        return;
+    }
+
+    /**
+     * Sets the size and crc32 of the tms file, as loaded, so JournalRecovery
+     * can check the journal is rebuilt against the same file.
+     * Call before openJournal
+     * @param tmsSize size of the tms file in bytes
+     * @param tmsCrc crc32 of the tms file contents
+     */
+    public void setTmsStamp(final long tmsSize, final long tmsCrc) {
+        this.tmsStamp = new ResultsJournal.TmsStamp(tmsSize, tmsCrc);
+        return;
+    }
+
+    /**
+     * Return location of the journal.
+     * @return journal file as string or null if not journalling
+     */
+    String getJournalFile() {
+        ResultsJournal current = this.journal;
+        return (null == current) ? null : current.getPath().toString();
     }
 
     /**
@@ -152,114 +347,192 @@ public class ExperimentResulter {
     }
     /**
      * Save the results of all the trials to file.
+     * @return true if the results text file was saved
      */
-    public void printResults() {
+    public boolean printResults() {
         // Get time and date strings
-        String dateString = Utils.getDate();
-        String timeString = Utils.getTime();
-        // Get results as string
-        String resultsString = createResultsText(dateString, timeString);
-        byte[] byteString = resultsString.getBytes();
+        return printResults(Utils.getDate(), Utils.getTime());
+    }
 
+    /**
+     * Save the results of all the trials to file.
+     * Each file is written under a temporary name and renamed into place,
+     * so it is never left half written. The journal is deleted once the
+     * results are saved
+     * @param dateString date representation
+     * @param timeString time representation
+     * @return true if the results text file was saved
+     */
+    boolean printResults(final String dateString, final String timeString) {
         // Set results filename
         String tmsBareFileName = Utils.getBareName(this.tmsFileName);
         String resultsFilename = tmsBareFileName + "_"
                             + dateString + "_" + timeString + ".txt";
         resultsFile = Paths.get(this.resultsDir.toString(),
                                     resultsFilename);
-        // Write to file
+        // Stream to file; same charset and replacement as String.getBytes()
+        CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
         try {
-            Files.write(resultsFile, byteString);
-            updateStatus("", "Results successfully printed to file "
-                        + resultsFile, "", "");
+            ResultsPersistence.writeAtomically(resultsFile, (file) -> {
+                try (FileChannel channel = FileChannel.open(file,
+                                    StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING);
+                    Writer out = Channels.newWriter(channel, encoder, -1)) {
+                    writeResults(out, dateString, timeString);
+                    out.flush();
+                    // on disk before the journal is deleted
+                    channel.force(false);
+                }
+            });
         } catch (IOException e) {
             updateStatus("",
                 "Could not create results file",
                 "Please check stack trace and ensure permissions are correct",
                 Utils.getStackTrace(e));
+            closeJournal(false);
+            return false;
         }
+        closeJournal(true);
+        updateStatus("", "Results successfully printed to file "
+                    + resultsFile, "", "");
+        printColumnarResults(tmsBareFileName, dateString, timeString);
+        return true;
     }
 
     /**
-     * instantiate the arrays to hold the results.
+     * Save the results as typed columns next to the results text file.
+     * Failure is reported but leaves the text file as the record
+     * @param tmsBareFileName tms file name without path or extension
+     * @param dateString date representation
+     * @param timeString time representation
      */
-    public void createResultArrays() {
-        this.boxInUse = new Boolean[this.NUM_BOXES];
-        Arrays.fill(this.boxInUse, false);
-        this.cKey = new String[this.NUM_BOXES][this.expLength];
-        this.nKey = new String[this.NUM_BOXES][this.expLength];
-        this.rFlag = new Boolean[this.NUM_BOXES][this.expLength];
-        this.reacTime = new int[this.NUM_BOXES][this.expLength];
+    private void printColumnarResults(final String tmsBareFileName,
+                                        final String dateString,
+                                        final String timeString) {
+        Path columnarFile = this.resultsDir.resolve(tmsBareFileName + "_"
+                                    + dateString + "_" + timeString + "."
+                                    + ColumnarResults.EXTENSION);
+        try {
+            ColumnarResults columns = createColumnarResults();
+            ResultsPersistence.writeAtomically(columnarFile, (file) ->
+                columns.write(file, this.tmsFileName, dateString, timeString));
+        } catch (IOException e) {
+            updateStatus("",
+                "Could not create columnar results file " + columnarFile,
+                "The results text file is complete",
+                Utils.getStackTrace(e));
+        }
+        return;
     }
 
     /**
-     * Parse the pressed key byte.
-     * 1 byte covers the reactions of 4 boxes, with 2 bits per box
-     * The mask only looks at hte two bits for each box
-     * The right shift makes them in the 2 and 4 position
-     * @param reaction byte array from control box
-     * @param box integer box identifier
-     * @return the number corresponding to the pressed key for that box
+     * Create the results as typed columns, one row per row of the text.
+     * Each field of the codehead gets its own dictionary encoded column
+     * @return columns
      */
-    private int getOutput(final byte[] reaction, final int box) {
-        final int maskOne = 3;
-        final int maskTwo = 12;
-        final int maskThree = 48;
-        final int maskFour = 192;
-        final int shiftOne = 0;
-        final int shiftTwo = 2;
-        final int shiftThree = 4;
-        final int shiftFour = 6;
-
+    ColumnarResults createColumnarResults() {
+        int rowCount = 0;
+        for (int cell = 0; cell < this.keyCodes.length; cell++) {
+            if ((this.boxesInUse & (1L << (cell % this.numBoxes))) != 0
+                && KEY_UNSET != this.keyCodes[cell]) {
+                rowCount++;
+            }
+        }
+        int[] trials = new int[rowCount];
+        byte[] boxes = new byte[rowCount];
+        int[] times = new int[rowCount];
+        byte[] keys = new byte[rowCount];
+        int[] trialIndices = new int[rowCount];
+        int row = 0;
+        int cell = 0;
+        for (int trialIndex = 0; trialIndex < this.expLength; trialIndex++) {
+            for (int boxNo = 0; boxNo < this.numBoxes; boxNo++, cell++) {
+                if ((this.boxesInUse & (1L << boxNo)) == 0
+                    || KEY_UNSET == this.keyCodes[cell]) {
+                    continue;
+                }
+                trials[row] = trialIndex + 1;
+                boxes[row] = (byte) boxNo;
+                times[row] = this.reacTimes[cell];
+                keys[row] = N_KEY_VALUES[this.keyCodes[cell]];
+                trialIndices[row] = trialIndex;
+                row++;
+            }
+        }
+        ColumnarResults columns = new ColumnarResults(rowCount);
+        columns.addIntColumn("Item", trials);
+        columns.addByteColumn("SJ", boxes);
+        columns.addTextColumn("Target", this.screenItems, trialIndices);
+        columns.addIntColumn("ReacTime", times);
+        columns.addByteColumn("Key", keys);
+        addCodingColumns(columns, trialIndices);
+        return columns;
+    }
 
-        if (null == reaction) {
-            return -1;
+    /**
+     * Add a column for each field of the coding array.
+     * Fields beyond those named in the codehead are named code1, code2...
+     * by their position
+     * @param columns columns to add to
+     * @param trialIndices trial of each row
+     */
+    private void addCodingColumns(final ColumnarResults columns,
+                                    final int[] trialIndices) {
+        String[] names = this.specificCodehead.trim()
+                                        .split(Typesetting.TAB, -1);
+        String[][] fields = new String[this.expLength][];
+        int fieldCount = names.length;
+        for (int trial = 0; trial < this.expLength; trial++) {
+            String coding = this.codingArray[trial];
+            fields[trial] = (null == coding) ? new String[0]
+                                        : coding.split(Typesetting.TAB, -1);
+            fieldCount = Math.max(fieldCount, fields[trial].length);
+        }
+        String[] values = new String[this.expLength];
+        for (int field = 0; field < fieldCount; field++) {
+            for (int trial = 0; trial < this.expLength; trial++) {
+                values[trial] = (field < fields[trial].length)
+                                ? fields[trial][field] : "";
+            }
+            String name = (field < names.length && !names[field].isEmpty())
+                            ? names[field] : "code" + (field + 1);
+            columns.addTextColumn(name, values, trialIndices);
         }
-        int[] pressedKeys = {reaction[0], reaction[1],
-                                reaction[2], reaction[3]};
-        int[] masks = {maskOne, maskTwo, maskThree, maskFour};
-        int[] shiftRights = {shiftOne, shiftTwo, shiftThree, shiftFour};
-        final int boxDivisor = 4;
-        int pressedKey = pressedKeys[(int) ((box) / boxDivisor)];
-        int x = (box) % boxDivisor;
-        int mask = masks[x];
-        int rightShift = shiftRights[x];
-        int output = (pressedKey & mask) >> rightShift;
-        return output;
+        return;
+    }
+
+    /**
+     * instantiate the arrays to hold the results.
+     */
+    public void createResultArrays() {
+        this.boxesInUse = 0;
+        this.keyCodes = new byte[this.numBoxes * this.expLength];
+        this.reacTimes = new int[this.numBoxes * this.expLength];
     }
 
     /**
      * Record the pressed keys in the result arrays.
      * @param output reaction byte
-     * @param boxNo which box(1-16)
+     * @param boxNo which box(0-15, or up to 63 with several controllers)
      * @param currentIndex index of current trial
      */
     public void getPressedKeys(final int output, final int boxNo,
                                 final int currentIndex) {
+        final int cell = currentIndex * this.numBoxes + boxNo;
         switch (output) {
             case 1:
-                this.boxInUse[boxNo] = true;
-                this.cKey[boxNo][currentIndex] = "L";
-                this.nKey[boxNo][currentIndex] = "1";
-                this.rFlag[boxNo][currentIndex] = true;
-                break;
             case 2:
-                this.boxInUse[boxNo] = true;
-                this.cKey[boxNo][currentIndex] = "R";
-                this.nKey[boxNo][currentIndex] = "3";
-                this.rFlag[boxNo][currentIndex] = true;
-                break;
             case 3:
-                this.boxInUse[boxNo] = true;
-                this.cKey[boxNo][currentIndex] = "M";
-                this.nKey[boxNo][currentIndex] = "2";
-                this.rFlag[boxNo][currentIndex] = true;
+                // key codes 2, 3, 4 are keys 1, 2, 3
+                this.boxesInUse |= 1L << boxNo;
+                this.keyCodes[cell] = (byte) (output + 1);
                 break;
             default:
-                this.cKey[boxNo][currentIndex] = ".";
-                this.nKey[boxNo][currentIndex] = ".";
-                this.rFlag[boxNo][currentIndex] = false;
-                this.reacTime[boxNo][currentIndex] = 0;
+                this.keyCodes[cell] = KEY_NONE;
+                this.reacTimes[cell] = 0;
                 break;
             }
     }
@@ -267,15 +540,17 @@ public class ExperimentResulter {
     /**
      * Record the reaction times in the result arrays.
      * @param reaction reaction byte array
-     * @param boxNo which box(1-16)
+     * @param boxNo which box(0-15, or up to 63 with several controllers)
      * @param index index of current trial
      */
     public void getReactionTime(final byte[] reaction,
                                         final int boxNo, final int index) {
-        if (null != reaction && cKey[boxNo][index] != ".") {
+        final int cell = index * this.numBoxes + boxNo;
+        if (null != reaction && this.keyCodes[cell] != KEY_NONE) {
             //int x = (currentIndex * 2) + 3 - 1;
             // which byte look at in reaction array
-            final int x = ((boxNo + 1) * 2) + 2;
+            final int x = (boxNo / BOXES_PER_CONTROLLER) * FRAME_SIZE
+                        + ((boxNo % BOXES_PER_CONTROLLER + 1) * 2) + 2;
             // box 0 should look at reaction[4..5],
             // box 1 should look at reaction[6..7],
             // box 15 should look at reaction[34..35]
@@ -289,7 +564,7 @@ public class ExperimentResulter {
             int highByte = (int) reaction[x + 1] * highByteMultiplier;
             int reactionTime = highByte + lowByte
                                                 - this.tReactionOffset[index];
-            this.reacTime[boxNo][index] = reactionTime;
+            this.reacTimes[cell] = reactionTime;
         }
     }
 
@@ -299,8 +574,28 @@ public class ExperimentResulter {
      * @param timeString time representation
      * @return results rtext
      */
-    private String createResultsText(final String dateString,
+    String createResultsText(final String dateString,
                                     final String timeString) {
+        StringWriter out = new StringWriter();
+        try {
+            writeResults(out, dateString, timeString);
+        } catch (IOException e) {
+            // StringWriter does not throw
+        }
+        return out.toString();
+    }
+
+    /**
+     * Writes the results text one row at a time.
+     * Each row is built in one reused StringBuilder; the file name and
+     * date/time part that repeats on every row is built once
+     * @param out where to write the results
+     * @param dateString date representation
+     * @param timeString time representation
+     * @throws IOException if writing fails
+     */
+    void writeResults(final Writer out, final String dateString,
+                        final String timeString) throws IOException {
         String genericCodehead = "Item" + Typesetting.TAB
                                 + "File" + Typesetting.TAB
                                 + "Date Time SJ" + Typesetting.TAB
@@ -308,39 +603,39 @@ public class ExperimentResulter {
                                 + "ReacTime" + Typesetting.TAB
                                 + "Key" + Typesetting.TAB;
         // for the experiment specific coding headers
-        String codehead = genericCodehead + this.specificCodehead;
-        String results = codehead;
+        out.write(genericCodehead);
+        out.write(this.specificCodehead);
+        String rowFileDate = Typesetting.TAB + this.tmsFileName
+                            + Typesetting.TAB
+                            + dateString + " " + timeString + " ";
+        StringBuilder row = new StringBuilder();
+        int cell = 0;
         for (int trialIndex = 0; trialIndex < this.expLength; trialIndex++) {
-            for (int boxNo = 0; boxNo < this.NUM_BOXES; boxNo++) {
-                if (!this.boxInUse[boxNo]) {
+            for (int boxNo = 0; boxNo < this.numBoxes; boxNo++, cell++) {
+                if ((this.boxesInUse & (1L << boxNo)) == 0) {
                     continue;
                 }
-                if (null != this.rFlag[boxNo][trialIndex]) {
-                    results = results + Integer.toString(trialIndex + 1)
-                            + Typesetting.TAB
-                            + this.tmsFileName
-                            + Typesetting.TAB
-                            + dateString + " " + timeString + " "
-                            //Add zero if box number is less than 0
-                            + ((boxNo >= 10)
-                                ? Integer.toString(boxNo)
-                                : "0" + Integer.toString(boxNo))
-                            + Typesetting.TAB
-                            + this.screenItems[trialIndex]
-                            + Typesetting.TAB
-                            + Integer.toString(this.reacTime[boxNo][trialIndex])
-                            + Typesetting.TAB
-                            + this.nKey[boxNo][trialIndex]
-                            + Typesetting.TAB
-                            + this.codingArray[trialIndex]
-                            + Typesetting.CR;
+                byte keyCode = this.keyCodes[cell];
+                if (KEY_UNSET != keyCode) {
+                    row.setLength(0);
+                    row.append(trialIndex + 1)
+                        .append(rowFileDate)
+                        .append(BOX_LABELS[boxNo])
+                        .append(Typesetting.TAB)
+                        .append(this.screenItems[trialIndex])
+                        .append(Typesetting.TAB)
+                        .append(this.reacTimes[cell])
+                        .append(Typesetting.TAB)
+                        .append(N_KEYS[keyCode])
+                        .append(Typesetting.TAB)
+                        .append(this.codingArray[trialIndex])
+                        .append(Typesetting.CR);
+                    out.append(row);
                 }
             }
         }
-        return results;
-        }
-
-
+        return;
+    }
 
     /** Send updates to main Xmod.java.
      * @param newStatus status
@@ -378,29 +673,60 @@ public class ExperimentResulter {
     }
 
 // GETTERS PREDOMINATLEY FOR TESTING //
+// Each builds a [box][trial] view of the packed arrays
     /** Returns character key of reaction.
-     * @return this.cKey
+     * @return [box][trial] character keys, null if not collected
      */
     public String[][] getCKey() {
-        return this.cKey;
+        return keyView(C_KEYS);
     }
     /** Returns numeric key of reaction.
-     * @return this.nKey
+     * @return [box][trial] numeric keys, null if not collected
      */
     public String[][] getNKey() {
-        return this.nKey;
+        return keyView(N_KEYS);
     }
     /** Returns reaction flag of reaction.
-     * @return this.rFlag
+     * @return [box][trial] true if a key was pressed, null if not collected
      */
     public Boolean[][] getRFlag() {
-        return this.rFlag;
+        Boolean[][] view = new Boolean[this.numBoxes][this.expLength];
+        for (int boxNo = 0; boxNo < this.numBoxes; boxNo++) {
+            for (int trial = 0; trial < this.expLength; trial++) {
+                byte keyCode = this.keyCodes[trial * this.numBoxes + boxNo];
+                if (KEY_UNSET != keyCode) {
+                    view[boxNo][trial] = (KEY_NONE != keyCode);
+                }
+            }
+        }
+        return view;
     }
     /** Returns time of reaction.
-     * @return this.reacTime
+     * @return [box][trial] reaction times
      */
     public int[][] getReacTime() {
-        return this.reacTime;
+        int[][] view = new int[this.numBoxes][this.expLength];
+        for (int boxNo = 0; boxNo < this.numBoxes; boxNo++) {
+            for (int trial = 0; trial < this.expLength; trial++) {
+                view[boxNo][trial] =
+                            this.reacTimes[trial * this.numBoxes + boxNo];
+            }
+        }
+        return view;
+    }
+    /** Builds a [box][trial] view of the key codes.
+     * @param labels label for each key code
+     * @return [box][trial] labels
+     */
+    private String[][] keyView(final String[] labels) {
+        String[][] view = new String[this.numBoxes][this.expLength];
+        for (int boxNo = 0; boxNo < this.numBoxes; boxNo++) {
+            for (int trial = 0; trial < this.expLength; trial++) {
+                view[boxNo][trial] =
+                    labels[this.keyCodes[trial * this.numBoxes + boxNo]];
+            }
+        }
+        return view;
     }
 
 }
@@ -1,8 +1,10 @@
 package xmod.experimenter;
 
+import xmod.audio.AudioClock;
 import xmod.audio.AudioPlayer;
 import xmod.constants.Actions;
 
+import xmod.serial.ControllerPool;
 import xmod.serial.Serial;
 import xmod.serial.SerialBytesReceivedException;
 
@@ -18,6 +20,18 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -30,9 +44,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
  */
 
 public class ExperimentRunner implements PropertyChangeListener {
-    /** Serial port connection to controller box. */
-    private Serial serialPort;
-    /** Experiment window to display the visual trial items. */
+    /** Serial port connection to each controller box. */
+    private ControllerPool controllers;
+    /** Experiment window to display the visual trial items, or null. */
     private ExperimentWindow expWindow;
     /** Audio Player to play the audio file. */
     private AudioPlayer audioPlayer;
@@ -44,7 +58,34 @@ public class ExperimentRunner implements PropertyChangeListener {
     private PropertyChangeSupport pcs;
 
     /** Full set of reactions from controller box in bytes. */
-    private static final int REACTION_SET = 36;
+    private static final int REACTION_SET = Serial.REACTION_FRAME_SIZE;
+    /** Time in ms to wait between checks for abort while awaiting reactions.
+     */
+    private static final int REACTION_POLL_SLICE = 100;
+    /** System property for the time in ms to wait for a reaction set
+     * beyond the trial's own timings before giving up on the run; 0 waits
+     * for as long as it takes.
+     */
+    public static final String REACTION_WAIT_PROPERTY = "xmod.reactionWait";
+    /** Default time in ms to wait beyond the trial's own timings. */
+    static final int DEFAULT_REACTION_WAIT = 60000;
+    /** Audio drift in ns at which to warn the audio is out of step. */
+    private static final long AUDIO_DRIFT_WARNING = 20000000L;
+    /** Ending of the trial timing report filename. */
+    private static final String TIMING_SUFFIX = "_timing.txt";
+    /** Most items which cannot be shown listed in the status. */
+    private static final int PROBLEMS_LISTED = 10;
+    /** Time in ms to wait for outstanding results at the end of a run. */
+    private static final int RESULT_DRAIN_TIMEOUT = 5000;
+    /** Decodes reaction sets off the experiment thread. */
+    private ExecutorService resultCollector;
+    /** Times each phase of each trial of the current run. */
+    private TrialTimer trialTimer;
+    /** Whether the current run has been ended, by abort or finishing. */
+    private boolean ended = false;
+    /** Completes when the results of the last run have been saved. */
+    private volatile CompletableFuture<Boolean> resultsSaved =
+                                    CompletableFuture.completedFuture(true);
     /** Experiment Length. */
     private int expLength;
     /** Whether the experiment is loaded. */
@@ -68,20 +109,36 @@ public class ExperimentRunner implements PropertyChangeListener {
     private String[] codingArray;
     /**  array of visual trial items. */
     private String[] screenItems;
+    /** Trial timings pre-encoded as frames for the controller box. */
+    private byte[][] trialFrames;
 
     /**
      * Constructor.
      * @param aSerialPort Serial object for communication to controller box
-     * @param aExpWindow the ExperimentWindow shown to participants
+     * @param aExpWindow the ExperimentWindow shown to participants, or null
+     * to run without a screen e.g. from BatchRunner
      * @param aAudioPlayer the AudioPlayer object to play the audio file
      */
 
     public ExperimentRunner(final Serial aSerialPort,
                             final ExperimentWindow aExpWindow,
                             final AudioPlayer aAudioPlayer) {
+        this(new ControllerPool(aSerialPort), aExpWindow, aAudioPlayer);
+    }
+
+    /**
+     * Constructor for one or more controller boxes.
+     * @param aControllers controller boxes to run the experiment on
+     * @param aExpWindow the ExperimentWindow shown to participants, or null
+     * to run without a screen e.g. from BatchRunner
+     * @param aAudioPlayer the AudioPlayer object to play the audio file
+     */
+    public ExperimentRunner(final ControllerPool aControllers,
+                            final ExperimentWindow aExpWindow,
+                            final AudioPlayer aAudioPlayer) {
         this.pcs = new PropertyChangeSupport(this);
 
-        this.serialPort = aSerialPort;
+        this.controllers = aControllers;
         this.expWindow = aExpWindow;
         this.audioPlayer = aAudioPlayer;
         this.expLoader = new ExperimentLoader();
@@ -92,10 +149,23 @@ public class ExperimentRunner implements PropertyChangeListener {
 
     /**
      * Creates ExperimentLoader object and loads the experiment.
-     * Sends update to Xmod.
+     * Sends update to Xmod, then checks every item can be shown.
      *  @param filename tms filepath
      */
     public void setUpExperiment(final String filename) {
+        loadExperiment(filename);
+        if (this.experimentLoaded) {
+            checkScreenItems();
+        }
+        return;
+    }
+
+    /**
+     * Loads the experiment, e.g. again before a repeat run.
+     * Sends update to Xmod.
+     *  @param filename tms filepath
+     */
+    private void loadExperiment(final String filename) {
         this.expFile = filename;
         Boolean nextStep = false;
         Boolean loaded = this.expLoader.loadFile(this.expFile);
@@ -113,6 +183,7 @@ public class ExperimentRunner implements PropertyChangeListener {
             this.tMonitorOff = this.expLoader.getTMonitorOff();
             this.codingArray = this.expLoader.getCodingArray();
             this.screenItems = this.expLoader.getScreenItems();
+            encodeTrialFrames();
             int[] tReactionOffset = this.expLoader.getTReactionOffset();
             String codehead = this.expLoader.getCodehead();
             this.expResulter = new ExperimentResulter(filename,
@@ -120,9 +191,16 @@ public class ExperimentRunner implements PropertyChangeListener {
                                                         tReactionOffset,
                                                         codehead,
                                                         this.codingArray,
-                                                        this.screenItems
+                                                        this.screenItems,
+                                                        this.controllers.size()
                                                     );
+            this.expResulter.setTmsStamp(this.expLoader.getTmsSize(),
+                                        this.expLoader.getTmsCrc());
             this.expResulter.addObserver(this);
+            if (null != this.expWindow) {
+                // shaped now so no text is shaped during the trials
+                this.expWindow.warmText(this.screenItems);
+            }
             updateStatus(Responses.FILE_LOAD_SUCCESS + filename,
                         "Total number of trials: " + this.expLength,
                         "", "", ReportLabel.TMS);
@@ -145,6 +223,59 @@ public class ExperimentRunner implements PropertyChangeListener {
 
     }
 
+    /**
+     * Checks every screen item can be shown in the experiment window.
+     * Reports the trials whose items use a character the font lacks or do
+     * not fit on the screen, so they can be fixed before the run
+     */
+    public void checkScreenItems() {
+        if (null == this.expWindow || !this.experimentLoaded) {
+            return;
+        }
+        SortedMap<Integer, String> problems =
+                                this.expWindow.checkText(this.screenItems);
+        if (problems.isEmpty()) {
+            updateStatus("", "All " + this.expLength
+                        + " items can be shown in the chosen font", "", "",
+                        ReportLabel.TMS);
+            return;
+        }
+        StringBuilder message = new StringBuilder();
+        message.append(problems.size())
+            .append(" items cannot be shown properly:");
+        int listed = 0;
+        for (Map.Entry<Integer, String> problem : problems.entrySet()) {
+            if (listed == PROBLEMS_LISTED) {
+                message.append("<br/>... and ")
+                    .append(problems.size() - listed).append(" more");
+                break;
+            }
+            message.append("<br/>Trial ").append(problem.getKey() + 1)
+                .append(" \"").append(this.screenItems[problem.getKey()])
+                .append("\": ").append(problem.getValue());
+            listed++;
+        }
+        updateStatus("", message.toString(),
+            "Please choose another font or size with CHECK FONT,"
+            + " or correct the items in the .tms file",
+            "", ReportLabel.TMS);
+        return;
+    }
+
+    /**
+     * Encodes the timings of every trial ready to send to the controller box.
+     */
+    private void encodeTrialFrames() {
+        this.trialFrames = new byte[this.expLength][];
+        for (int i = 0; i < this.expLength; i++) {
+            this.trialFrames[i] = Serial.encodeTrialTimings(
+                                        this.tReactionTimeout[i],
+                                        this.tMonitorOn[i],
+                                        this.tMonitorOff[i]);
+        }
+        return;
+    }
+
     /** Returns true if experiment loaded.
      * @return this.experimentLoaded;
      */
@@ -266,7 +397,7 @@ public class ExperimentRunner implements PropertyChangeListener {
             return;
         }
 
-        if  (!this.serialPort.isSerialConnected()) {
+        if  (!this.controllers.isSerialConnected()) {
             updateStatus(Responses.EXPERIMENT_NOT_READY,
                         "Cannot begin experiment as not connected"
                         + " to controller box",
@@ -278,7 +409,8 @@ public class ExperimentRunner implements PropertyChangeListener {
         // If no
         if (this.previouslyRun.get()) {
             try {
-                setUpExperiment(this.expFile);
+                // items were checked when the file was first loaded
+                loadExperiment(this.expFile);
                 this.audioPlayer.setUpPlayer();
             } catch (NullPointerException e) {
                 updateStatus(Responses.EXPERIMENT_NOT_READY,
@@ -291,49 +423,288 @@ public class ExperimentRunner implements PropertyChangeListener {
         // Set flag to true
         setPreviouslyRun(true);
         setRunning(true);
+        synchronized (this) {
+            this.ended = false;
+        }
         updateStatus(Responses.EXPERIMENT_RUNNING,
                         "", "Press ESC key to abort", "",
                         ReportLabel.STATUS);
         this.audioPlayer.playAudio();
-        this.expWindow.updateText("");
-        this.expWindow.show();
-        this.serialPort.turnOffMonitor();
+        displayItem("");
+        if (null != this.expWindow) {
+            this.expWindow.show();
+        }
+        prepareItem(0);
+        this.controllers.turnOffMonitor();
 
+        this.resultCollector = Executors.newSingleThreadExecutor(
+                                    (r) -> new Thread(r, "RESULT COLLECTOR"));
+        this.expResulter.openJournal();
+        final TrialTimer timer = new TrialTimer(this.expLength);
+        this.trialTimer = timer;
+        final AudioClock clock = this.audioPlayer.getClock();
+        boolean driftReported = false;
+        // Arm the first trial; later trials are armed as soon as the
+        // previous reaction set arrives, before anything else is done
+        long stamp = System.nanoTime();
+        if (this.expLength > 0) {
+            long shown = displayItem(this.screenItems[0]);
+            prepareItem(1);
+            timer.record(TrialTimer.DISPLAY, 0, shown - stamp);
+            this.controllers.sendTrialFrame(this.trialFrames[0]);
+            stamp = System.nanoTime();
+            timer.record(TrialTimer.ARM, 0, stamp - shown);
+        }
         for (int trialIndex = 0; trialIndex < this.expLength; trialIndex++) {
             // to faciliate aborting the experiment
             if  (!this.running.get()) {
                 System.out.println("Quit running");
                 break;
             }
-            //Show Window and screen item
-            this.expWindow.updateText(this.screenItems[trialIndex]);
-            this.serialPort.sendTrialTimings(
-                                this.tReactionTimeout[trialIndex],
-                                this.tMonitorOn[trialIndex],
-                                this.tMonitorOff[trialIndex]
-                                );
             // complete set of reactions is 36 bytes
+            byte[] reaction;
             try {
-                byte[] reaction = this.serialPort.receiveChunk(
-                                                            this.REACTION_SET
-                                                            );
-                // collects button pressed and reaction time for all 16 boxes
-                this.expResulter.collectTrialResults(reaction, trialIndex);
+                reaction = awaitReaction(trialIndex);
             } catch (SerialBytesReceivedException e) {
                 this.running.set(false);
                 break; // quit the experiment running
             }
+            if (null == reaction) {
+                break; // aborted or timed out while waiting
+            }
+            long received = System.nanoTime();
+            timer.record(TrialTimer.WAIT, trialIndex, received - stamp);
+            if (clock.isRunning()) {
+                long drift = clock.getDriftNanos();
+                timer.recordAudio(trialIndex, clock.getPositionNanos(), drift);
+                if (!driftReported
+                    && Math.abs(drift) > AUDIO_DRIFT_WARNING) {
+                    driftReported = true;
+                    updateStatus("", "Audio is " + (drift / 1000000)
+                        + "ms out of step with the system clock at trial "
+                        + (trialIndex + 1),
+                        "See the trial timing report when the experiment"
+                        + " ends", "", ReportLabel.STATUS);
+                }
+            }
+            int nextIndex = trialIndex + 1;
+            if (nextIndex < this.expLength && this.running.get()) {
+                this.controllers.sendTrialFrame(this.trialFrames[nextIndex]);
+                stamp = System.nanoTime();
+                timer.record(TrialTimer.ARM, nextIndex, stamp - received);
+            } else {
+                stamp = received;
+            }
+            // collects button pressed and reaction time for all 16 boxes
+            submitTrialResults(reaction, trialIndex);
+            long submitted = System.nanoTime();
+            timer.record(TrialTimer.SUBMIT, trialIndex, submitted - stamp);
+            //Show next screen item while the box waits for its trigger
+            if (nextIndex < this.expLength) {
+                // onset is when the item reached the screen
+                stamp = displayItem(this.screenItems[nextIndex]);
+                // drawn while waiting for this trial's reactions
+                prepareItem(nextIndex + 1);
+                timer.record(TrialTimer.DISPLAY, nextIndex,
+                                                        stamp - submitted);
+                timer.record(TrialTimer.ONSET, nextIndex, stamp - received);
+            } else {
+                stamp = submitted;
+            }
         }
         endExperiment();
     }
 
 
-    /** Exit the experiment. */
-    public void endExperiment() {
+    /**
+     * Waits for the reaction set for the current trial.
+     * Wakes as soon as the full frame arrives, checking for abort in between
+     * @param trialIndex index of current trial
+     * @return reaction set or null if aborted or timed out
+     */
+    private byte[] awaitReaction(final int trialIndex)
+                                        throws SerialBytesReceivedException {
+        long limit = reactionWaitLimit(trialIndex);
+        long waited = 0;
+        while (this.running.get()) {
+            byte[] reaction = this.controllers.pollChunk(REACTION_SET,
+                                                    REACTION_POLL_SLICE);
+            if (null != reaction) {
+                return reaction;
+            }
+            waited += REACTION_POLL_SLICE;
+            if (limit > 0 && waited >= limit) {
+                this.controllers.dropPartialFrame();
+                updateStatus("", "No reactions received from controller box"
+                    + " for trial " + (trialIndex + 1) + " after "
+                    + (waited / 1000) + "s",
+                    "Please check connection to the controller box", "",
+                    ReportLabel.STATUS);
+                this.running.set(false);
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Time to wait for a trial's reaction set before giving up on the run.
+     * The trial's monitor on, reaction timeout and monitor off times plus
+     * the -Dxmod.reactionWait margin, which covers waiting for the trigger
+     * in the audio
+     * @param trialIndex index of the trial
+     * @return limit in ms, or 0 to wait for as long as it takes
+     */
+    long reactionWaitLimit(final int trialIndex) {
+        int margin = Integer.getInteger(REACTION_WAIT_PROPERTY,
+                                        DEFAULT_REACTION_WAIT);
+        if (margin <= 0) {
+            return 0;
+        }
+        return (long) this.tMonitorOn[trialIndex]
+                + this.tReactionTimeout[trialIndex]
+                + this.tMonitorOff[trialIndex] + margin;
+    }
+
+    /**
+     * Hands a reaction set to the result collector thread.
+     * @param reaction reaction set from the controller box
+     * @param trialIndex index of the trial it belongs to
+     */
+    private void submitTrialResults(final byte[] reaction,
+                                    final int trialIndex) {
+        final ExperimentResulter resulter = this.expResulter;
+        final TrialTimer timer = this.trialTimer;
+        Runnable collect = () -> {
+            long start = System.nanoTime();
+            resulter.collectTrialResults(reaction, trialIndex);
+            timer.record(TrialTimer.COLLECT, trialIndex,
+                            System.nanoTime() - start);
+        };
+        try {
+            this.resultCollector.execute(collect);
+        } catch (RejectedExecutionException e) {
+            // results already being saved; never write them from here
+            updateStatus("", "Reactions for trial " + (trialIndex + 1)
+                + " arrived after the results were saved and are not in"
+                + " the results file", "", "", ReportLabel.STATUS);
+        }
+        return;
+    }
+
+    /**
+     * Writes the timing report for the run next to the results file.
+     * e.g. results/exp_date_time_timing.txt
+     * @param resulter ExperimentResulter which printed the results
+     * @param timer TrialTimer of the run, or null if none
+     */
+    private void printTimingReport(final ExperimentResulter resulter,
+                                    final TrialTimer timer) {
+        if (null == timer) {
+            return;
+        }
+        String resultsFile = resulter.getResultsFile();
+        String reportFile = resultsFile.replaceFirst("\\.txt$", "")
+                            + TIMING_SUFFIX;
+        try {
+            ResultsPersistence.writeAtomically(Paths.get(reportFile),
+                (file) -> timer.writeReport(file,
+                                    "Trial timing for " + resultsFile));
+        } catch (IOException e) {
+            updateStatus("", "Could not create trial timing report",
+                "Please check stack trace and ensure permissions are correct",
+                Utils.getStackTrace(e), ReportLabel.STATUS);
+        }
+        return;
+    }
+
+    /**
+     * Waits for the result collector to finish any outstanding trials.
+     * @param collector result collector of the run, or null if none
+     * @return true if no trial is still being collected
+     */
+    private boolean drainTrialResults(final ExecutorService collector) {
+        if (null == collector) {
+            return true;
+        }
+        collector.shutdown();
+        try {
+            return collector.awaitTermination(RESULT_DRAIN_TIMEOUT,
+                                            TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Exit the experiment.
+     * Called by the experiment thread once it has left the trial loop, so
+     * no more trials are handed to the result collector; to abort, clear
+     * the running flag and the loop ends within REACTION_POLL_SLICE.
+     * Stops the audio and hides the window straight away; the results are
+     * saved on the results writer thread so the trial loop is not held up
+     * by the disk. Only the first call for a run does anything
+     * @return completes with true once the results file has been saved
+     */
+    public synchronized CompletableFuture<Boolean> endExperiment() {
+        if (this.ended) {
+            return this.resultsSaved;
+        }
+        this.ended = true;
         this.audioPlayer.stopAudio();
-        this.expResulter.printResults();
+        // taken now so a new run cannot change them while saving
+        final boolean completed = this.running.get();
+        final ExperimentResulter resulter = this.expResulter;
+        final ExecutorService collector = this.resultCollector;
+        final TrialTimer timer = this.trialTimer;
+        this.trialTimer = null;
+        if (null != timer) {
+            AudioClock clock = this.audioPlayer.getClock();
+            timer.setAudioLatency(clock.getStartLatencyNanos(),
+                                    clock.getOpenLatencyNanos());
+        }
+        this.resultsSaved = ResultsPersistence.submit(() -> {
+            try {
+                if (!drainTrialResults(collector)) {
+                    // a trial may still be writing the results arrays, so
+                    // printing them now could save a half collected trial
+                    updateStatus("", "Timed out collecting the last trial"
+                        + " results; results file not saved",
+                        "Results to date are kept in the journal "
+                        + resulter.getJournalFile() + "; see RECOVERING"
+                        + " RESULTS in README.txt", "", ReportLabel.STATUS);
+                    setRunning(false);
+                    return false;
+                }
+                boolean saved = resulter.printResults();
+                printTimingReport(resulter, timer);
+                reportEnd(completed, resulter);
+                return saved;
+            } catch (RuntimeException e) {
+                updateStatus("", "Could not save results",
+                    "Results to date are kept in the journal; see"
+                    + " RECOVERING RESULTS in README.txt",
+                    Utils.getStackTrace(e), ReportLabel.STATUS);
+                setRunning(false);
+                return false;
+            }
+        });
+        if (null != this.expWindow) {
+            this.expWindow.hide();
+        }
+        return this.resultsSaved;
+    }
+
+    /**
+     * Tells Xmod how the run ended, once its results are saved.
+     * @param completed true if the run was not aborted
+     * @param resulter ExperimentResulter which printed the results
+     */
+    private void reportEnd(final boolean completed,
+                            final ExperimentResulter resulter) {
         //If experiment not aborted
-        if (this.running.get()) {
+        if (completed) {
             //tells main Xmod instance experiment is finished
             //so it can change window views etc
             this.pcs.firePropertyChange(Actions.FINISH_EXPERIMENT, false, true);
@@ -343,10 +714,53 @@ public class ExperimentRunner implements PropertyChangeListener {
             updateStatus(Responses.EXPERIMENT_ABORTED,
                         "Experiment aborted by user<br/>"
                         + "Results to date printed to file in "
-                        + this.expResulter.getResultsFile(),
+                        + resulter.getResultsFile(),
                         "", "", ReportLabel.STATUS);
         }
-        this.expWindow.hide();
+        return;
+    }
+
+    /**
+     * Waits for the results of the last run to be saved.
+     * @param timeoutMs maximum time to wait in ms
+     * @return true if saved, false if saving failed or is still going on
+     */
+    public boolean awaitResultsSaved(final long timeoutMs) {
+        try {
+            return this.resultsSaved.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // reported by the save itself, or still saving
+        }
+        return false;
+    }
+
+    /**
+     * Shows an item to participants, if there is a window to show it in.
+     * @param item text to show
+     * @return System.nanoTime when the item reached the screen, or now if
+     * there is no window or the item did not change the screen
+     */
+    private long displayItem(final String item) {
+        if (null != this.expWindow) {
+            long flipped = this.expWindow.updateText(item);
+            if (flipped >= 0) {
+                return flipped;
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Draws the item for a trial off screen ready to be shown.
+     * @param trialIndex index of the trial, ignored if past the end
+     */
+    private void prepareItem(final int trialIndex) {
+        if (null != this.expWindow && trialIndex < this.expLength) {
+            this.expWindow.prepareText(this.screenItems[trialIndex]);
+        }
+        return;
     }
     /**
      * To allow main Xmod instance to listen for updates.
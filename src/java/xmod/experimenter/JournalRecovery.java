@@ -0,0 +1,91 @@
+package xmod.experimenter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * JournalRecovery rebuilds a results file from a results journal.
+ * Used when Xmod stopped (crash, power cut, serial hang) before the results
+ * of a run were printed; the journal is left in the results directory.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Run with ./recover.sh path/to/results/file.journal
+ * The tms file named in the journal must still exist and be unchanged;
+ * its size and crc32 are kept in the journal and checked
+ */
+
+public final class JournalRecovery {
+    private JournalRecovery() { }; // Private Constructor
+
+    /**
+     * Rebuilds the results file for a journal.
+     * The results file is stamped with the date and time the run started
+     * @param journalFile path of the journal
+     * @return path of the results file written
+     * @throws IOException if the journal or tms file cannot be read, the
+     * tms file has changed since the run or the results cannot be written
+     */
+    public static String recover(final String journalFile) throws IOException {
+        ResultsJournal journal = ResultsJournal.read(Paths.get(journalFile));
+        String tmsFileName = journal.getTmsFileName();
+        ExperimentLoader loader = new ExperimentLoader();
+        if (loader.loadFile(tmsFileName)) {
+            loader.parseFile();
+        }
+        if (!loader.getTMSLoaded()) {
+            throw new IOException("Could not load tms file " + tmsFileName);
+        }
+        if (!journal.getTmsStamp().matches(loader.getTmsSize(),
+                                            loader.getTmsCrc())) {
+            throw new IOException("tms file " + tmsFileName
+                    + " has changed since the run was recorded;"
+                    + " put back the original to recover the results");
+        }
+        int expLength = loader.getScreenItems().length;
+        int controllers = journal.getFrameSize()
+                            / ReactionFrameDecoder.FRAME_SIZE;
+        ExperimentResulter resulter = new ExperimentResulter(tmsFileName,
+                                                expLength,
+                                                loader.getTReactionOffset(),
+                                                loader.getCodehead(),
+                                                loader.getCodingArray(),
+                                                loader.getScreenItems(),
+                                                controllers);
+        journal.replay(resulter, expLength);
+        resulter.printResults(journal.getDateString(),
+                                journal.getTimeString());
+        Path resultsFile = Paths.get(resulter.getResultsFile());
+        if (!Files.isRegularFile(resultsFile)) {
+            throw new IOException("Could not write results file "
+                                    + resultsFile);
+        }
+        return resultsFile.toString();
+    }
+
+    /**
+     * Recovers each journal given on the command line.
+     * @param args paths of journals
+     */
+    public static void main(final String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: JournalRecovery <file.journal> ...");
+            System.exit(1);
+        }
+        int failures = 0;
+        for (String journalFile : args) {
+            try {
+                System.out.println("Recovered " + journalFile + " to "
+                                    + recover(journalFile));
+            } catch (IOException e) {
+                System.out.println("Could not recover " + journalFile + ": "
+                                    + e.getMessage());
+                failures++;
+            }
+        }
+        System.exit((failures == 0) ? 0 : 1);
+    }
+}
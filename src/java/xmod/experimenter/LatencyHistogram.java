@@ -0,0 +1,144 @@
+package xmod.experimenter;
+
+/**
+ * Fixed-size histogram of latencies in ns with log-linear buckets.
+ * As in HdrHistogram, each power of two is split into 16 linear buckets
+ * so percentiles are within about 6% of the true value at any scale,
+ * with no allocation when recording.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Not thread safe: each histogram should have a single writer
+ */
+
+final class LatencyHistogram {
+    /** Bits of linear resolution within each power of two. */
+    private static final int SUB_BUCKET_BITS = 4;
+    /** Linear buckets within each power of two. */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Values below this are counted exactly. */
+    private static final int EXACT_LIMIT = 2 * SUB_BUCKETS;
+    /** Number of buckets needed to cover all positive longs. */
+    private static final int BUCKETS = EXACT_LIMIT
+                        + (Long.SIZE - 1 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+    /** Percent in a whole. */
+    private static final double PERCENT = 100.0;
+
+    /** Count of values in each bucket. */
+    private final long[] counts = new long[BUCKETS];
+    /** Number of values recorded. */
+    private long count;
+    /** Sum of values recorded. */
+    private long sum;
+    /** Smallest value recorded. */
+    private long min = Long.MAX_VALUE;
+    /** Largest value recorded. */
+    private long max;
+
+    /**
+     * Records a value.
+     * @param value latency in ns; negative values are recorded as 0
+     */
+    void record(final long value) {
+        long v = Math.max(0, value);
+        this.counts[bucketOf(v)]++;
+        this.count++;
+        this.sum += v;
+        this.min = Math.min(this.min, v);
+        this.max = Math.max(this.max, v);
+        return;
+    }
+
+    /**
+     * Finds the bucket for a value.
+     * @param value non-negative value
+     * @return bucket index
+     */
+    static int bucketOf(final long value) {
+        if (value < EXACT_LIMIT) {
+            return (int) value;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value))
+                    - SUB_BUCKET_BITS;
+        int top = (int) (value >>> shift); // SUB_BUCKETS to 2*SUB_BUCKETS-1
+        return EXACT_LIMIT + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    /**
+     * Smallest value in a bucket.
+     * @param bucket bucket index
+     * @return lower bound of bucket
+     */
+    static long lowestValueIn(final int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - EXACT_LIMIT) / SUB_BUCKETS + 1;
+        long top = (bucket - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return top << shift;
+    }
+
+    /**
+     * Largest value in a bucket.
+     * @param bucket bucket index
+     * @return upper bound of bucket
+     */
+    static long highestValueIn(final int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - EXACT_LIMIT) / SUB_BUCKETS + 1;
+        return lowestValueIn(bucket) + (1L << shift) - 1;
+    }
+
+    /**
+     * Value at a percentile, as the upper bound of its bucket.
+     * Capped at the largest value recorded
+     * @param percentile percentile (0-100)
+     * @return value or 0 if nothing recorded
+     */
+    long percentile(final double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long target = Math.max(1,
+                    (long) Math.ceil(percentile / PERCENT * this.count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += this.counts[bucket];
+            if (seen >= target) {
+                return Math.min(highestValueIn(bucket), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    /** Getter for number of values recorded.
+     * @return this.count
+     */
+    long getCount() {
+        return this.count;
+    }
+
+    /** Mean of values recorded.
+     * @return mean or 0 if nothing recorded
+     */
+    double getMean() {
+        return (this.count == 0) ? 0 : (double) this.sum / this.count;
+    }
+
+    /** Getter for smallest value recorded.
+     * @return this.min or 0 if nothing recorded
+     */
+    long getMin() {
+        return (this.count == 0) ? 0 : this.min;
+    }
+
+    /** Getter for largest value recorded.
+     * @return this.max
+     */
+    long getMax() {
+        return this.max;
+    }
+}
@@ -0,0 +1,107 @@
+package xmod.experimenter;
+
+import xmod.serial.Serial;
+
+/**
+ * Decodes the reaction frame sent by the control box after each trial.
+ * All 16 boxes are decoded in one pass without allocating, using a lookup
+ * table for the key codes.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Frame layout (36 bytes):
+ *  bytes 0-3: pressed keys, 2 bits per box, box 0 in the low bits of byte 0
+ *  bytes 4-35: reaction time per box, 2 bytes little-endian, high byte signed
+ * Key bits: 0 = no key, 1 = key 1 (L), 2 = key 3 (R), 3 = key 2 (M)
+ */
+
+final class ReactionFrameDecoder {
+    private ReactionFrameDecoder() { }; // Private Constructor
+
+    /** Bytes in a reaction frame. */
+    static final int FRAME_SIZE = Serial.REACTION_FRAME_SIZE;
+    /** Number of boxes in a frame. */
+    static final int NUM_BOXES = 16;
+    /** Key code of a reaction not yet collected. */
+    static final byte KEY_UNSET = 0;
+    /** Key code of a reaction with no key pressed. */
+    static final byte KEY_NONE = 1;
+    /** Boxes covered by each key byte. */
+    private static final int BOXES_PER_BYTE = 4;
+    /** Bytes before the reaction times. */
+    private static final int KEY_BYTES = NUM_BOXES / BOXES_PER_BYTE;
+    /** Values of an unsigned byte. */
+    private static final int BYTE_VALUES = 256;
+    /** Key code for each (key byte, box in byte): index byte * 4 + box. */
+    private static final byte[] KEY_CODES =
+                                    new byte[BYTE_VALUES * BOXES_PER_BYTE];
+    static {
+        final int bitsPerBox = 2;
+        final int boxMask = 3;
+        for (int value = 0; value < BYTE_VALUES; value++) {
+            for (int slot = 0; slot < BOXES_PER_BYTE; slot++) {
+                int keyBits = (value >> (bitsPerBox * slot)) & boxMask;
+                // no key -> KEY_NONE, keys 1-3 -> 2-4
+                KEY_CODES[value * BOXES_PER_BYTE + slot] =
+                                        (byte) (KEY_NONE + keyBits);
+            }
+        }
+    }
+
+    /**
+     * Decodes a frame into the packed result arrays.
+     * Reaction times have the trial offset removed and are 0 if no key
+     * was pressed
+     * @param frame reaction frame from the control box
+     * @param offset reaction time offset of the trial
+     * @param keyCodes key code per cell, written at cell to cell + 15
+     * @param reacTimes reaction time per cell, written at cell to cell + 15
+     * @param cell index of box 0 of the trial in the arrays
+     * @return bit per box set if a key was pressed
+     */
+    static int decode(final byte[] frame, final int offset,
+                        final byte[] keyCodes, final int[] reacTimes,
+                        final int cell) {
+        return decode(frame, 0, offset, keyCodes, reacTimes, cell);
+    }
+
+    /**
+     * Decodes one controller's frame from within a merged frame.
+     * Controller c's frame starts at c * FRAME_SIZE
+     * @param frame merged reaction frame from all controller boxes
+     * @param start index of the first byte of this controller's frame
+     * @param offset reaction time offset of the trial
+     * @param keyCodes key code per cell, written at cell to cell + 15
+     * @param reacTimes reaction time per cell, written at cell to cell + 15
+     * @param cell index of box 0 of this controller in the arrays
+     * @return bit per box set if a key was pressed
+     */
+    static int decode(final byte[] frame, final int start, final int offset,
+                        final byte[] keyCodes, final int[] reacTimes,
+                        final int cell) {
+        if (frame.length - start < FRAME_SIZE) {
+            throw new IllegalArgumentException("Reaction frame has "
+                        + (frame.length - start) + " bytes, expected "
+                        + FRAME_SIZE);
+        }
+        int pressed = 0;
+        int box = 0;
+        for (int keyByte = 0; keyByte < KEY_BYTES; keyByte++) {
+            int base = (frame[start + keyByte] & 0xFF) * BOXES_PER_BYTE;
+            for (int slot = 0; slot < BOXES_PER_BYTE; slot++, box++) {
+                byte keyCode = KEY_CODES[base + slot];
+                int rtByte = start + KEY_BYTES + 2 * box;
+                // low byte unsigned, high byte signed
+                int reactionTime = (frame[rtByte + 1] << Byte.SIZE)
+                                    | (frame[rtByte] & 0xFF);
+                // all ones if a key was pressed, else 0
+                int pressedMask = -((keyCode - KEY_NONE + 3) >> 2);
+                keyCodes[cell + box] = keyCode;
+                reacTimes[cell + box] = (reactionTime - offset) & pressedMask;
+                pressed |= (pressedMask & 1) << box;
+            }
+        }
+        return pressed;
+    }
+}
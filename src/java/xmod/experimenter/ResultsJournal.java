@@ -0,0 +1,376 @@
+package xmod.experimenter;
+
+import xmod.serial.Serial;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of the raw reaction frames of a run.
+ * Each trial's frame is written as it is collected so the results can be
+ * rebuilt by JournalRecovery if Xmod stops before printing them.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Layout (big-endian):
+ *  magic, version, frame size, expected trials,
+ *  (frame size is 36 bytes per controller box, see ControllerPool)
+ *  tms file size and crc32 (longs, -1 if not known),
+ *  tms file name, date, time (each as length + UTF-8 bytes),
+ *  then one record per trial: trial index + 1, raw reaction frame
+ * The file is preallocated for the expected trials; a record starting
+ * with 0 is an unused slot and marks the end of the journal.
+ */
+
+final class ResultsJournal {
+    /** Extension of the journal file. */
+    static final String EXTENSION = "journal";
+    /** Identifies a journal file ("XMJL"). */
+    private static final int MAGIC = 0x584D4A4C;
+    /** Version of the layout; bump if the layout changes. */
+    private static final int VERSION = 1;
+    /** Bytes in the reaction frame of one controller box. */
+    private static final int FRAME_SIZE = Serial.REACTION_FRAME_SIZE;
+    /** Number of records written between forced syncs to disk. */
+    private static final int SYNC_RECORDS = 8;
+    /** Longest time in ms records are left unsynced. */
+    private static final long SYNC_PERIOD = 1000;
+
+    /** Size and crc32 of the tms file a journal was recorded with. */
+    static final class TmsStamp {
+        /** Stamp of a tms file that is not known. */
+        static final TmsStamp UNKNOWN = new TmsStamp(-1, -1);
+        /** Size of the tms file in bytes, or -1. */
+        private final long size;
+        /** Crc32 of the tms file contents, or -1. */
+        private final long crc;
+
+        /** Constructor.
+         * @param aSize size of the tms file in bytes
+         * @param aCrc crc32 of the tms file contents
+         */
+        TmsStamp(final long aSize, final long aCrc) {
+            this.size = aSize;
+            this.crc = aCrc;
+        }
+
+        /**
+         * Checks a tms file is the one the journal was recorded with.
+         * @param aSize size of the tms file in bytes
+         * @param aCrc crc32 of the tms file contents
+         * @return true if it matches or the stamp is not known
+         */
+        boolean matches(final long aSize, final long aCrc) {
+            if (this.size < 0) {
+                return true;
+            }
+            return this.size == aSize && this.crc == aCrc;
+        }
+    }
+
+    /** Location of the journal. */
+    private final Path path;
+    /** Path and name of tms file the results belong to. */
+    private final String tmsFileName;
+    /** Size and crc32 of the tms file. */
+    private final TmsStamp tmsStamp;
+    /** Date the run started. */
+    private final String dateString;
+    /** Time the run started. */
+    private final String timeString;
+    /** Open channel when writing; null once closed or when read back. */
+    private FileChannel channel;
+    /** Offset of the first record. */
+    private long recordsStart;
+    /** Reused buffer for one record. */
+    private ByteBuffer record;
+    /** Number of records written or read. */
+    private int records;
+    /** Number of records written since the last sync. */
+    private int unsynced;
+    /** Time (System.nanoTime) of the last sync. */
+    private long lastSync;
+    /** Bytes in the reaction frame of each record. */
+    private final int frameSize;
+    /** Bytes in each record. */
+    private final int recordBytes;
+    /** Trial index of each record read back. */
+    private int[] trialIndices;
+    /** Reaction frame of each record read back. */
+    private byte[][] reactions;
+
+    /** Constructor.
+     * @param journalPath location of the journal
+     * @param fileName path and name of tms file
+     * @param stamp size and crc32 of the tms file
+     * @param date date the run started
+     * @param time time the run started
+     * @param aFrameSize bytes in the reaction frame of each record
+     */
+    private ResultsJournal(final Path journalPath, final String fileName,
+                            final TmsStamp stamp, final String date,
+                            final String time, final int aFrameSize) {
+        this.frameSize = aFrameSize;
+        this.recordBytes = 4 + aFrameSize;
+        this.path = journalPath;
+        this.tmsFileName = fileName;
+        this.tmsStamp = stamp;
+        this.dateString = date;
+        this.timeString = time;
+    }
+
+    /**
+     * Creates a new journal, preallocated for the expected trials.
+     * @param journalPath location of the journal
+     * @param fileName path and name of tms file
+     * @param stamp size and crc32 of the tms file as loaded, checked by
+     * JournalRecovery before it rebuilds the results
+     * @param date date the run started
+     * @param time time the run started
+     * @param expectedTrials number of trials in the experiment
+     * @param frameSize bytes in the merged reaction frame of each trial,
+     * 36 per controller box
+     * @return journal open for appending
+     * @throws IOException if the journal cannot be created, e.g.
+     * FileAlreadyExistsException if the file is already there
+     */
+    static ResultsJournal create(final Path journalPath,
+                                final String fileName, final TmsStamp stamp,
+                                final String date, final String time,
+                                final int expectedTrials,
+                                final int frameSize) throws IOException {
+        ResultsJournal journal = new ResultsJournal(journalPath, fileName,
+                                            stamp, date, time, frameSize);
+        byte[] name = fileName.getBytes(StandardCharsets.UTF_8);
+        byte[] dateBytes = date.getBytes(StandardCharsets.UTF_8);
+        byte[] timeBytes = time.getBytes(StandardCharsets.UTF_8);
+        final int fixedInts = 7;
+        final int fixedLongs = 2;
+        ByteBuffer header = ByteBuffer.allocate(fixedInts * 4
+                                        + fixedLongs * 8 + name.length
+                                        + dateBytes.length + timeBytes.length);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.putInt(frameSize).putInt(expectedTrials);
+        header.putLong(stamp.size).putLong(stamp.crc);
+        header.putInt(name.length).put(name);
+        header.putInt(dateBytes.length).put(dateBytes);
+        header.putInt(timeBytes.length).put(timeBytes);
+        header.flip();
+
+        FileChannel channel = FileChannel.open(journalPath,
+                                        StandardOpenOption.CREATE_NEW,
+                                        StandardOpenOption.WRITE);
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            journal.recordsStart = channel.position();
+            // Preallocate so appends do not have to grow the file
+            long end = journal.recordsStart
+                    + (long) Math.max(0, expectedTrials) * journal.recordBytes;
+            if (end > journal.recordsStart) {
+                channel.write(ByteBuffer.allocate(1), end - 1);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        journal.channel = channel;
+        journal.record = ByteBuffer.allocateDirect(journal.recordBytes);
+        journal.lastSync = System.nanoTime();
+        return journal;
+    }
+
+    /**
+     * Appends the reaction frame of one trial.
+     * Synced to disk every few records or after SYNC_PERIOD ms
+     * @param trialIndex index of the trial
+     * @param reaction reaction frame from the control box
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void append(final int trialIndex, final byte[] reaction)
+                                                        throws IOException {
+        if (null == this.channel) {
+            return;
+        }
+        this.record.clear();
+        this.record.putInt(trialIndex + 1);
+        this.record.put(reaction, 0,
+                        Math.min(reaction.length, this.frameSize));
+        // short frames are padded with zeros
+        while (this.record.hasRemaining()) {
+            this.record.put((byte) 0);
+        }
+        this.record.flip();
+        long position = this.recordsStart
+                        + (long) this.records * this.recordBytes;
+        while (this.record.hasRemaining()) {
+            position += this.channel.write(this.record, position);
+        }
+        this.records++;
+        this.unsynced++;
+        long now = System.nanoTime();
+        if (this.unsynced >= SYNC_RECORDS || now - this.lastSync
+                    >= TimeUnit.MILLISECONDS.toNanos(SYNC_PERIOD)) {
+            this.channel.force(false);
+            this.unsynced = 0;
+            this.lastSync = now;
+        }
+        return;
+    }
+
+    /**
+     * Syncs and closes the journal.
+     * @throws IOException if the journal cannot be synced
+     */
+    synchronized void close() throws IOException {
+        if (null == this.channel) {
+            return;
+        }
+        try {
+            this.channel.force(true);
+        } finally {
+            this.channel.close();
+            this.channel = null;
+        }
+        return;
+    }
+
+    /**
+     * Reads back a journal, stopping at the first unused or partial record.
+     * @param journalPath location of the journal
+     * @return journal holding the records read
+     * @throws IOException if the file cannot be read or is not a journal
+     */
+    static ResultsJournal read(final Path journalPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalPath,
+                                                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(journalPath
+                                        + " is not a results journal");
+            }
+            int frameSize = buffer.getInt();
+            if (frameSize <= 0 || frameSize % FRAME_SIZE != 0) {
+                throw new IOException(journalPath
+                                        + " is not a results journal");
+            }
+            int expectedTrials = buffer.getInt();
+            TmsStamp stamp = new TmsStamp(buffer.getLong(),
+                                            buffer.getLong());
+            ResultsJournal journal = new ResultsJournal(journalPath,
+                                        readString(buffer), stamp,
+                                        readString(buffer),
+                                        readString(buffer), frameSize);
+            int capacity = Math.max(expectedTrials,
+                                    buffer.remaining() / journal.recordBytes);
+            journal.trialIndices = new int[capacity];
+            journal.reactions = new byte[capacity][];
+            while (buffer.remaining() >= journal.recordBytes) {
+                int trialIndex = buffer.getInt() - 1;
+                if (trialIndex < 0) {
+                    break;
+                }
+                byte[] reaction = new byte[frameSize];
+                buffer.get(reaction);
+                journal.trialIndices[journal.records] = trialIndex;
+                journal.reactions[journal.records] = reaction;
+                journal.records++;
+            }
+            return journal;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | NegativeArraySizeException e) {
+            throw new IOException(journalPath + " is truncated", e);
+        }
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     * @param buffer buffer to read from
+     * @return string
+     */
+    private static String readString(final ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Passes each record read back to the resulter.
+     * Records for trials beyond the experiment length are skipped
+     * @param resulter resulter to collect the results
+     * @param expLength number of trials in the experiment
+     * @return number of records replayed
+     */
+    int replay(final ExperimentResulter resulter, final int expLength) {
+        int replayed = 0;
+        for (int i = 0; i < this.records; i++) {
+            if (this.trialIndices[i] >= expLength) {
+                continue;
+            }
+            resulter.collectTrialResults(this.reactions[i],
+                                        this.trialIndices[i]);
+            replayed++;
+        }
+        return replayed;
+    }
+
+    /** Getter for location of the journal.
+     * @return this.path
+     */
+    Path getPath() {
+        return this.path;
+    }
+
+    /** Getter for path and name of tms file.
+     * @return this.tmsFileName
+     */
+    String getTmsFileName() {
+        return this.tmsFileName;
+    }
+
+    /** Getter for size and crc32 of the tms file.
+     * @return this.tmsStamp
+     */
+    TmsStamp getTmsStamp() {
+        return this.tmsStamp;
+    }
+
+    /** Getter for date the run started.
+     * @return this.dateString
+     */
+    String getDateString() {
+        return this.dateString;
+    }
+
+    /** Getter for time the run started.
+     * @return this.timeString
+     */
+    String getTimeString() {
+        return this.timeString;
+    }
+
+    /** Getter for bytes in the reaction frame of each record.
+     * @return this.frameSize
+     */
+    int getFrameSize() {
+        return this.frameSize;
+    }
+
+    /** Getter for number of records written or read.
+     * @return this.records
+     */
+    synchronized int getRecords() {
+        return this.records;
+    }
+}
@@ -0,0 +1,89 @@
+package xmod.experimenter;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Saves results files off the experiment thread and the Event Dispatch
+ * Thread, so a slow disk (e.g. a network home directory) never holds up
+ * the next trial or the GUI.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Each file is written in full to name.tmp next to it, synced, then
+ * renamed over the final name, so a results file is either complete or
+ * absent; never half written. A .tmp file left behind by a crash can be
+ * deleted; the journal still holds the results
+ * Saves run one at a time, in the order they were submitted
+ */
+
+final class ResultsPersistence {
+    private ResultsPersistence() { }; // Private Constructor
+
+    /** Ending added to the name of a file while it is written. */
+    static final String TEMP_SUFFIX = ".tmp";
+    /** Runs the saves one after another. */
+    private static final ExecutorService WRITER =
+                                Executors.newSingleThreadExecutor((r) -> {
+        Thread t = new Thread(r, "RESULTS WRITER");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Writes the contents of a file. */
+    interface ContentWriter {
+        /**
+         * Writes the whole file.
+         * @param file path to write to
+         * @throws IOException if the file cannot be written
+         */
+        void write(Path file) throws IOException;
+    }
+
+    /**
+     * Runs a save on the results writer thread.
+     * @param <T> result of the save
+     * @param save save to run
+     * @return completes with the result of the save, or exceptionally if
+     * it throws
+     */
+    static <T> CompletableFuture<T> submit(final Supplier<T> save) {
+        return CompletableFuture.supplyAsync(save, WRITER);
+    }
+
+    /**
+     * Writes a file to a temporary file then renames it into place.
+     * @param target final path of the file
+     * @param writer writes the contents; must sync them to disk if needed
+     * @throws IOException if the file cannot be written or renamed; the
+     * temporary file is removed and any existing target left unchanged
+     */
+    static void writeAtomically(final Path target,
+                                final ContentWriter writer)
+                                throws IOException {
+        Path temp = target.resolveSibling(target.getFileName()
+                                            + TEMP_SUFFIX);
+        try {
+            writer.write(temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // some network shares cannot rename atomically
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return;
+    }
+}
@@ -0,0 +1,345 @@
+package xmod.experimenter;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiled binary form of a parsed .tms file, saved next to it as .tmsc.
+ * Lets ExperimentLoader skip parsing when the .tms file has not changed.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Layout (big-endian):
+ *  magic, version, source size, source mtime, source crc32,
+ *  charset the source was decoded with (length + UTF-8 bytes),
+ *  trial count, string count, strings (length + UTF-8 bytes),
+ *  codehead string index, coding string indices, screen item indices,
+ *  tReactionTimeout, tReactionOffset, tMonitorOn, tMonitorOff
+ * Timings are stored before the tcommreserve correction.
+ * Repeated strings (e.g. coding fields) are stored once.
+ * The strings are as decoded with the default charset of the JVM that
+ * wrote the cache, so a JVM with another default charset parses again
+ */
+
+final class TmsCache {
+    /** Extension of the cache file. */
+    static final String EXTENSION = "tmsc";
+    /** Identifies a cache file ("TMSC"). */
+    private static final int MAGIC = 0x544D5343;
+    /** Version of the layout; bump if the layout changes. */
+    private static final int VERSION = 1;
+    /** Bytes in the fixed header, without the charset name. */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4;
+    /** Number of int arrays with one value per trial. */
+    private static final int INT_ARRAYS = 6;
+
+    /** Number of trials. */
+    private final int trials;
+    /** Codehead from the tms file. */
+    private final String codehead;
+    /** timeout from RT start. */
+    private final int[] tReactionTimeout;
+    /** offset from start to start recording RT. */
+    private final int[] tReactionOffset;
+    /** time to turn monitor on from bleep. */
+    private final int[] tMonitorOn;
+    /** time to turn monitor off from bleep. */
+    private final int[] tMonitorOff;
+    /**  contains code text fields. */
+    private final String[] codingArray;
+    /**  array of visual trial items. */
+    private final String[] screenItems;
+
+    /** Constructor.
+     * @param aCodehead codehead
+     * @param timeouts timeout from RT start
+     * @param offsets offset from start to start recording RT
+     * @param monitorOn time to turn monitor on from bleep
+     * @param monitorOff time to turn monitor off from bleep
+     * @param coding code text fields
+     * @param items visual trial items
+     */
+    TmsCache(final String aCodehead, final int[] timeouts,
+            final int[] offsets, final int[] monitorOn,
+            final int[] monitorOff, final String[] coding,
+            final String[] items) {
+        this.trials = items.length;
+        this.codehead = aCodehead;
+        this.tReactionTimeout = timeouts;
+        this.tReactionOffset = offsets;
+        this.tMonitorOn = monitorOn;
+        this.tMonitorOff = monitorOff;
+        this.codingArray = coding;
+        this.screenItems = items;
+    }
+
+    /**
+     * Returns the cache file for a tms file.
+     * @param tmsPath path of tms file
+     * @return path of cache file
+     */
+    static Path cachePath(final Path tmsPath) {
+        String name = tmsPath.getFileName().toString();
+        int dotIndex = name.lastIndexOf('.');
+        String bare = (dotIndex > 0) ? name.substring(0, dotIndex) : name;
+        return tmsPath.resolveSibling(bare + "." + EXTENSION);
+    }
+
+    /**
+     * Reads the cache if it matches the source file.
+     * @param cacheFile path of cache file
+     * @param size size of source tms file
+     * @param mtime last modified time of source tms file in ms
+     * @param crc crc32 of source tms file
+     * @param charset name of the charset the source would be decoded with
+     * @return cache contents or null if missing, stale or unreadable
+     */
+    static TmsCache read(final Path cacheFile, final long size,
+                        final long mtime, final long crc,
+                        final String charset) {
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile,
+                                                StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != size || buffer.getLong() != mtime
+                || buffer.getLong() != crc) {
+                return null;
+            }
+            String cachedCharset = readString(buffer);
+            if (null == cachedCharset || !cachedCharset.equals(charset)) {
+                return null;
+            }
+            // lengths are checked against what is left before allocating,
+            // so a corrupt header cannot ask for a huge array
+            int trials = buffer.getInt();
+            int stringCount = buffer.getInt();
+            if (!fits(buffer, trials, INT_ARRAYS * 4)
+                || !fits(buffer, stringCount, 4)) {
+                return null;
+            }
+            String[] strings = new String[stringCount];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+                if (null == strings[i]) {
+                    return null;
+                }
+            }
+            String codehead = strings[buffer.getInt()];
+            IntBuffer ints = buffer.asIntBuffer();
+            String[] coding = readStrings(ints, strings, trials);
+            String[] items = readStrings(ints, strings, trials);
+            int[] timeouts = readInts(ints, trials);
+            int[] offsets = readInts(ints, trials);
+            int[] monitorOn = readInts(ints, trials);
+            int[] monitorOff = readInts(ints, trials);
+            return new TmsCache(codehead, timeouts, offsets, monitorOn,
+                                monitorOff, coding, items);
+        } catch (IOException | BufferUnderflowException
+                | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            // corrupt or truncated: treat as a miss and it will be rewritten
+            return null;
+        }
+    }
+
+    /**
+     * Whether a number of values could be in what is left of a buffer.
+     * @param buffer buffer to read from
+     * @param count number of values
+     * @param bytesEach fewest bytes each value takes
+     * @return true if count is not negative and the values would fit
+     */
+    private static boolean fits(final ByteBuffer buffer, final int count,
+                                final int bytesEach) {
+        return count >= 0
+                && (long) count * bytesEach <= buffer.remaining();
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string.
+     * @param buffer buffer to read from
+     * @return string or null if the length does not fit in the buffer
+     */
+    private static String readString(final ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (!fits(buffer, length, 1)) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads an array of ints.
+     * @param ints buffer to read from
+     * @param length number of ints
+     * @return array
+     */
+    private static int[] readInts(final IntBuffer ints, final int length) {
+        int[] values = new int[length];
+        ints.get(values);
+        return values;
+    }
+
+    /**
+     * Reads an array of string table indices and looks them up.
+     * @param ints buffer to read from
+     * @param strings string table
+     * @param length number of indices
+     * @return array of strings
+     */
+    private static String[] readStrings(final IntBuffer ints,
+                                        final String[] strings,
+                                        final int length) {
+        String[] values = new String[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = strings[ints.get()];
+        }
+        return values;
+    }
+
+    /**
+     * Writes the cache file, replacing any existing one.
+     * Written to a temporary file first so a half written cache is never read
+     * @param cacheFile path of cache file
+     * @param size size of source tms file
+     * @param mtime last modified time of source tms file in ms
+     * @param crc crc32 of source tms file
+     * @param charset name of the charset the source was decoded with
+     * @throws IOException if the file cannot be written
+     */
+    void write(final Path cacheFile, final long size, final long mtime,
+                final long crc, final String charset) throws IOException {
+        // Intern strings into a table
+        Map<String, Integer> index = new HashMap<String, Integer>();
+        ArrayList<byte[]> table = new ArrayList<byte[]>();
+        int codeheadIndex = intern(this.codehead, index, table);
+        int[] codingIndices = new int[this.trials];
+        int[] itemIndices = new int[this.trials];
+        for (int i = 0; i < this.trials; i++) {
+            codingIndices[i] = intern(this.codingArray[i], index, table);
+            itemIndices[i] = intern(this.screenItems[i], index, table);
+        }
+        byte[] charsetBytes = charset.getBytes(StandardCharsets.UTF_8);
+        int length = HEADER_BYTES + charsetBytes.length + 4;
+        for (byte[] bytes : table) {
+            length += 4 + bytes.length;
+        }
+        length += INT_ARRAYS * 4 * this.trials;
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        buffer.putLong(size).putLong(mtime).putLong(crc);
+        buffer.putInt(charsetBytes.length).put(charsetBytes);
+        buffer.putInt(this.trials).putInt(table.size());
+        for (byte[] bytes : table) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        buffer.putInt(codeheadIndex);
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.put(codingIndices).put(itemIndices);
+        ints.put(this.tReactionTimeout).put(this.tReactionOffset);
+        ints.put(this.tMonitorOn).put(this.tMonitorOff);
+        buffer.rewind();
+
+        Path temp = cacheFile.resolveSibling(
+                                    cacheFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        return;
+    }
+
+    /**
+     * Adds a string to the string table if not already there.
+     * @param value string
+     * @param index map of string to table index
+     * @param table UTF-8 bytes of each string
+     * @return index of the string in the table
+     */
+    private static int intern(final String value,
+                                final Map<String, Integer> index,
+                                final ArrayList<byte[]> table) {
+        Integer existing = index.get(value);
+        if (null != existing) {
+            return existing;
+        }
+        int newIndex = table.size();
+        table.add(value.getBytes(StandardCharsets.UTF_8));
+        index.put(value, newIndex);
+        return newIndex;
+    }
+
+    /** Getter for codehead.
+     * @return this.codehead
+     */
+    String getCodehead() {
+        return this.codehead;
+    }
+
+    /** Getter for timeout from RT start.
+     * @return this.tReactionTimeout
+     */
+    int[] getTReactionTimeout() {
+        return this.tReactionTimeout;
+    }
+
+    /** Getter for recording offset from RT start.
+     * @return this.tReactionOffset
+     */
+    int[] getTReactionOffset() {
+        return this.tReactionOffset;
+    }
+
+    /** Getter for time to turn monitor on from bleep.
+     * @return this.tMonitorOn
+     */
+    int[] getTMonitorOn() {
+        return this.tMonitorOn;
+    }
+
+    /** Getter for time to turn monitor off from bleep.
+     * @return this.tMonitorOff
+     */
+    int[] getTMonitorOff() {
+        return this.tMonitorOff;
+    }
+
+    /** Getter for coding array.
+     * @return this.codingArray
+     */
+    String[] getCodingArray() {
+        return this.codingArray;
+    }
+
+    /** Getter for array of visual trial items.
+     * @return this.screenItems
+     */
+    String[] getScreenItems() {
+        return this.screenItems;
+    }
+}
@@ -0,0 +1,384 @@
+package xmod.experimenter;
+
+import xmod.constants.Typesetting;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Single pass parser for the contents of a .tms file.
+ * Walks the characters once, parsing the tab separated fields in place
+ * and filling the timing arrays directly.
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * TMS layout: %%CROSSMODAL STRING line, version line, codehead line,
+ * then two lines per trial:
+ *  timeout TAB offset TAB coding fields...
+ *  screen item TAB monitor on TAB monitor off
+ */
+
+final class TmsParser {
+    /** Initial guess at the number of characters per trial. */
+    private static final int CHARS_PER_TRIAL = 64;
+    /** Smallest initial array capacity. */
+    private static final int MIN_CAPACITY = 16;
+    /** Radix for numeric fields. */
+    private static final int RADIX = 10;
+
+    /** Contents of the tms file. */
+    private final CharBuffer chars;
+    /** Position of the start of the next line. */
+    private int pos;
+    /** Line number (1-indexed) of the current line. */
+    private int lineNumber;
+    /** Start of the current line. */
+    private int lineStart;
+    /** End of the current line (exclusive, without line terminator). */
+    private int lineEnd;
+
+    /** Number of trials parsed. */
+    private int trials;
+    /** Codehead from the tms file. */
+    private String codehead;
+    /** timeout from RT start. */
+    private int[] tReactionTimeout;
+    /** offset from start to start recording RT. */
+    private int[] tReactionOffset;
+    /** time to turn monitor on from bleep. */
+    private int[] tMonitorOn;
+    /** time to turn monitor off from bleep. */
+    private int[] tMonitorOff;
+    /**  contains code text fields. */
+    private String[] codingArray;
+    /**  array of visual trial items. */
+    private String[] screenItems;
+
+    /** Constructor.
+     * @param tmsChars contents of the tms file
+     */
+    TmsParser(final CharBuffer tmsChars) {
+        this.chars = tmsChars;
+        this.pos = 0;
+        this.lineNumber = 0;
+    }
+
+    /**
+     * Parses the whole file.
+     * @throws ExperimentLoaderException naming the line at fault
+     */
+    void parse() throws ExperimentLoaderException {
+        // skip %%CROSSMODAL STRING and tms version lines
+        if (!nextLine() || !nextLine() || !nextLine()) {
+            throw new ExperimentLoaderException("TMS file lacks first 3 lines");
+        }
+        this.codehead = trimmed(this.lineStart, this.lineEnd) + Typesetting.CR;
+        initialiseArrays();
+
+        while (nextNonBlankLine()) {
+            if (this.trials == this.screenItems.length) {
+                growArrays();
+            }
+            parseTimingLine(this.trials);
+            int timingLine = this.lineNumber;
+            if (!nextLine() || this.lineStart == this.lineEnd) {
+                throw new ExperimentLoaderException("Line " + timingLine
+                    + ": trial has no screen item line after it");
+            }
+            parseVisualLine(this.trials);
+            this.trials++;
+        }
+        if (this.trials == 0) {
+            throw new ExperimentLoaderException("TMS file has no trials");
+        }
+        trimArrays();
+        return;
+    }
+
+    /**
+     * Parses timeout, offset and coding fields of a trial timing line.
+     * @param i trial index
+     */
+    private void parseTimingLine(final int i) throws ExperimentLoaderException {
+        int tab1 = nextTab(this.lineStart);
+        int tab2 = (tab1 < this.lineEnd) ? nextTab(tab1 + 1) : this.lineEnd;
+        if (tab2 >= this.lineEnd) {
+            throw new ExperimentLoaderException("Line " + this.lineNumber
+                + ": expected timeout, offset and coding fields"
+                + " separated by tabs");
+        }
+        // 2000.0 in .tms -> 2000 here
+        this.tReactionTimeout[i] = parseNumber(this.lineStart, tab1, 1);
+        this.tReactionOffset[i] = parseNumber(tab1 + 1, tab2, 2);
+        // remove trailing whitespace from coding array
+        this.codingArray[i] = trimmed(tab2 + 1, this.lineEnd);
+        return;
+    }
+
+    /**
+     * Parses screen item and monitor timings of a trial visual line.
+     * @param i trial index
+     */
+    private void parseVisualLine(final int i) throws ExperimentLoaderException {
+        int tab1 = nextTab(this.lineStart);
+        int tab2 = (tab1 < this.lineEnd) ? nextTab(tab1 + 1) : this.lineEnd;
+        if (tab2 >= this.lineEnd) {
+            throw new ExperimentLoaderException("Line " + this.lineNumber
+                + ": expected screen item, monitor on and monitor off fields"
+                + " separated by tabs");
+        }
+        int tab3 = nextTab(tab2 + 1);
+        this.screenItems[i] = trimmed(this.lineStart, tab1);
+        this.tMonitorOn[i] = parseNumber(tab1 + 1, tab2, 2);
+        this.tMonitorOff[i] = parseNumber(tab2 + 1, tab3, 3);
+        return;
+    }
+
+    /**
+     * Moves to the next line.
+     * Handles \n, \r\n and \r line endings
+     * @return false if there are no more lines
+     */
+    private boolean nextLine() {
+        int limit = this.chars.limit();
+        if (this.pos >= limit) {
+            return false;
+        }
+        this.lineStart = this.pos;
+        int i = this.pos;
+        while (i < limit) {
+            char c = this.chars.get(i);
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            i++;
+        }
+        this.lineEnd = i;
+        if (i < limit && this.chars.get(i) == '\r') {
+            i++;
+        }
+        if (i < limit && this.chars.get(i) == '\n') {
+            i++;
+        }
+        this.pos = i;
+        this.lineNumber++;
+        return true;
+    }
+
+    /**
+     * Moves to the next line with any content.
+     * @return false if there are no more non-blank lines
+     */
+    private boolean nextNonBlankLine() {
+        while (nextLine()) {
+            if (trimStart(this.lineStart, this.lineEnd) < this.lineEnd) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds the next tab in the current line.
+     * @param from index to search from
+     * @return index of the tab or this.lineEnd if there are none
+     */
+    private int nextTab(final int from) {
+        int i = from;
+        while (i < this.lineEnd && this.chars.get(i) != '\t') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Skips leading whitespace.
+     * @param start start of field
+     * @param end end of field
+     * @return index of first non-whitespace char or end
+     */
+    private int trimStart(final int start, final int end) {
+        int i = start;
+        while (i < end && this.chars.get(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Skips trailing whitespace.
+     * @param start start of field
+     * @param end end of field
+     * @return index after last non-whitespace char or start
+     */
+    private int trimEnd(final int start, final int end) {
+        int i = end;
+        while (i > start && this.chars.get(i - 1) <= ' ') {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Returns a field with whitespace removed, as String.trim() would.
+     * @param start start of field
+     * @param end end of field
+     * @return trimmed string
+     */
+    private String trimmed(final int start, final int end) {
+        int s = trimStart(start, end);
+        int e = trimEnd(s, end);
+        return this.chars.subSequence(s, e).toString();
+    }
+
+    /**
+     * Parses a decimal number in place, truncating any fraction.
+     * Matches (int) Float.parseFloat(field.trim()) for plain decimals and
+     * falls back to it for anything else e.g. exponents
+     * @param start start of field
+     * @param end end of field
+     * @param field field number (1-indexed) for error messages
+     * @return integer value
+     */
+    private int parseNumber(final int start, final int end, final int field)
+                                            throws ExperimentLoaderException {
+        int s = trimStart(start, end);
+        int e = trimEnd(s, end);
+        int i = s;
+        boolean negative = false;
+        if (i < e && (this.chars.get(i) == '-' || this.chars.get(i) == '+')) {
+            negative = this.chars.get(i) == '-';
+            i++;
+        }
+        int digitsStart = i;
+        long value = 0;
+        while (i < e && isDigit(this.chars.get(i))
+                && value <= Integer.MAX_VALUE) {
+            value = value * RADIX + (this.chars.get(i) - '0');
+            i++;
+        }
+        boolean plain = i > digitsStart && value <= Integer.MAX_VALUE;
+        if (plain && i < e && this.chars.get(i) == '.') {
+            i++;
+            while (i < e && isDigit(this.chars.get(i))) {
+                i++;
+            }
+        }
+        if (plain && i == e) {
+            return (int) (negative ? -value : value);
+        }
+        String text = this.chars.subSequence(s, e).toString();
+        try {
+            return (int) Float.parseFloat(text);
+        } catch (NumberFormatException exc) {
+            throw new ExperimentLoaderException("Line " + this.lineNumber
+                + ", field " + field + ": '" + text + "' is not a number");
+        }
+    }
+
+    /**
+     * Checks for an ASCII digit.
+     * @param c character
+     * @return true if c is 0-9
+     */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Sets up the arrays, sized from an estimate of the number of trials.
+     */
+    private void initialiseArrays() {
+        int remaining = this.chars.limit() - this.pos;
+        int capacity = Math.max(MIN_CAPACITY, remaining / CHARS_PER_TRIAL);
+        this.tReactionTimeout = new int[capacity];
+        this.tReactionOffset = new int[capacity];
+        this.tMonitorOn = new int[capacity];
+        this.tMonitorOff = new int[capacity];
+        this.codingArray = new String[capacity];
+        this.screenItems = new String[capacity];
+        return;
+    }
+
+    /**
+     * Doubles the capacity of the arrays.
+     */
+    private void growArrays() {
+        resizeArrays(this.screenItems.length * 2);
+        return;
+    }
+
+    /**
+     * Shrinks the arrays to the number of trials parsed.
+     */
+    private void trimArrays() {
+        if (this.screenItems.length != this.trials) {
+            resizeArrays(this.trials);
+        }
+        return;
+    }
+
+    /**
+     * Copies the arrays into arrays of a new size.
+     * @param size new size
+     */
+    private void resizeArrays(final int size) {
+        this.tReactionTimeout = Arrays.copyOf(this.tReactionTimeout, size);
+        this.tReactionOffset = Arrays.copyOf(this.tReactionOffset, size);
+        this.tMonitorOn = Arrays.copyOf(this.tMonitorOn, size);
+        this.tMonitorOff = Arrays.copyOf(this.tMonitorOff, size);
+        this.codingArray = Arrays.copyOf(this.codingArray, size);
+        this.screenItems = Arrays.copyOf(this.screenItems, size);
+        return;
+    }
+
+    /** Getter for codehead.
+     * @return this.codehead
+     */
+    String getCodehead() {
+        return this.codehead;
+    }
+
+    /** Getter for timeout from RT start.
+     * @return this.tReactionTimeout
+     */
+    int[] getTReactionTimeout() {
+        return this.tReactionTimeout;
+    }
+
+    /** Getter for recording offset from RT start.
+     * @return this.tReactionOffset
+     */
+    int[] getTReactionOffset() {
+        return this.tReactionOffset;
+    }
+
+    /** Getter for time to turn monitor on from bleep.
+     * @return this.tMonitorOn
+     */
+    int[] getTMonitorOn() {
+        return this.tMonitorOn;
+    }
+
+    /** Getter for time to turn monitor off from bleep.
+     * @return this.tMonitorOff
+     */
+    int[] getTMonitorOff() {
+        return this.tMonitorOff;
+    }
+
+    /** Getter for coding array.
+     * @return this.codingArray
+     */
+    String[] getCodingArray() {
+        return this.codingArray;
+    }
+
+    /** Getter for array of visual trial items.
+     * @return this.screenItems
+     */
+    String[] getScreenItems() {
+        return this.screenItems;
+    }
+}
@@ -0,0 +1,326 @@
+package xmod.experimenter;
+
+import xmod.constants.Typesetting;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Times each phase of every trial with System.nanoTime.
+ * Durations for the most recent trials are kept in a ring buffer which is
+ * allocated up front, and every duration also goes into a LatencyHistogram
+ * for that phase so the percentiles cover the whole session
+ * The audio position and drift of each trial are kept alongside
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * COLLECT is recorded on the result collector thread and the other phases
+ * on the experiment thread, so each phase only has one writer. Read the
+ * report once the result collector has been drained
+ */
+
+final class TrialTimer {
+    /** Waiting for the reaction set of the trial. */
+    static final int WAIT = 0;
+    /** Writing the trial frame to the controller box. */
+    static final int ARM = 1;
+    /** Showing the screen item of the trial. */
+    static final int DISPLAY = 2;
+    /** From the previous reaction set arriving to the item being shown. */
+    static final int ONSET = 3;
+    /** Handing the reaction set to the result collector. */
+    static final int SUBMIT = 4;
+    /** Decoding the reaction set on the result collector. */
+    static final int COLLECT = 5;
+    /** Number of phases. */
+    static final int PHASES = 6;
+    /** Column names for each phase then audio position and drift. */
+    private static final String[] COLUMN_NAMES = {"wait", "arm", "display",
+                            "onset", "submit", "collect", "audio", "drift"};
+    /** Audio playback position when the reaction set arrived. */
+    private static final int AUDIO = PHASES;
+    /** Audio drift when the reaction set arrived. */
+    private static final int DRIFT = PHASES + 1;
+    /** Values kept for each trial. */
+    private static final int ROW = PHASES + 2;
+    /** Most trials kept in the ring buffer. */
+    static final int MAX_TRIALS_KEPT = 4096;
+    /** Marks a value not recorded for a trial. */
+    static final long UNSET = Long.MIN_VALUE;
+    /** Percentiles in the summary. */
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    /** Column names for each percentile. */
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99",
+                                                        "p99.9"};
+    /** ns per ms. */
+    private static final double NANOS_PER_MS = 1e6;
+
+    /** Values in ns, ROW per trial, for the last trials. */
+    private final long[] ring;
+    /** Number of trials the ring holds. */
+    private final int capacity;
+    /** Histogram of all durations for each phase. */
+    private final LatencyHistogram[] histograms;
+    /** One more than the highest trial index recorded. */
+    private int trialsTimed;
+    /** Trials with audio recorded. */
+    private int audioTrials;
+    /** Drift of last trial with audio recorded. */
+    private long lastDrift;
+    /** Drift furthest from 0. */
+    private long largestDrift;
+    /** Time from requesting audio to the first sample played. */
+    private long audioStartLatency = UNSET;
+    /** Time from requesting audio to the line being open. */
+    private long audioOpenLatency = UNSET;
+
+    /**
+     * Constructor.
+     * @param expectedTrials number of trials in the experiment
+     */
+    TrialTimer(final int expectedTrials) {
+        this.capacity = Math.max(1, Math.min(expectedTrials,
+                                            MAX_TRIALS_KEPT));
+        this.ring = new long[this.capacity * ROW];
+        Arrays.fill(this.ring, UNSET);
+        this.histograms = new LatencyHistogram[PHASES];
+        for (int phase = 0; phase < PHASES; phase++) {
+            this.histograms[phase] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records how long a phase of a trial took.
+     * @param phase phase e.g. TrialTimer.WAIT
+     * @param trialIndex index of the trial
+     * @param nanos duration in ns
+     */
+    void record(final int phase, final int trialIndex, final long nanos) {
+        int start = (phase == COLLECT) ? (trialIndex % this.capacity) * ROW
+                                        : startRow(trialIndex);
+        this.ring[start + phase] = nanos;
+        this.histograms[phase].record(nanos);
+        return;
+    }
+
+    /**
+     * Records where the audio was for a trial.
+     * @param trialIndex index of the trial
+     * @param positionNanos audio playback position in ns
+     * @param driftNanos audio drift in ns, see AudioClock
+     */
+    void recordAudio(final int trialIndex, final long positionNanos,
+                        final long driftNanos) {
+        int start = startRow(trialIndex);
+        this.ring[start + AUDIO] = positionNanos;
+        this.ring[start + DRIFT] = driftNanos;
+        this.audioTrials++;
+        this.lastDrift = driftNanos;
+        if (Math.abs(driftNanos) > Math.abs(this.largestDrift)) {
+            this.largestDrift = driftNanos;
+        }
+        return;
+    }
+
+    /**
+     * Records the latency of starting the audio.
+     * @param startNanos from request to first sample played, or UNSET
+     * @param openNanos from request to line open, or UNSET
+     */
+    void setAudioLatency(final long startNanos, final long openNanos) {
+        this.audioStartLatency = startNanos;
+        this.audioOpenLatency = openNanos;
+        return;
+    }
+
+    /**
+     * Finds the row of a trial on the experiment thread.
+     * A new trial overwrites the oldest row
+     * @param trialIndex index of the trial
+     * @return index of the start of the row in the ring
+     */
+    private int startRow(final int trialIndex) {
+        int start = (trialIndex % this.capacity) * ROW;
+        if (trialIndex >= this.trialsTimed) {
+            if (trialIndex >= this.capacity) {
+                Arrays.fill(this.ring, start, start + ROW, UNSET);
+            }
+            this.trialsTimed = trialIndex + 1;
+        }
+        return start;
+    }
+
+    /**
+     * Duration of a phase of a trial still in the ring buffer.
+     * @param phase phase e.g. TrialTimer.WAIT
+     * @param trialIndex index of the trial
+     * @return duration in ns or UNSET if not timed or no longer kept
+     */
+    long getDuration(final int phase, final int trialIndex) {
+        return getValue(phase, trialIndex);
+    }
+
+    /**
+     * Audio drift of a trial still in the ring buffer.
+     * @param trialIndex index of the trial
+     * @return drift in ns or UNSET if not recorded or no longer kept
+     */
+    long getDrift(final int trialIndex) {
+        return getValue(DRIFT, trialIndex);
+    }
+
+    /**
+     * Value of a trial still in the ring buffer.
+     * @param column column e.g. TrialTimer.WAIT
+     * @param trialIndex index of the trial
+     * @return value in ns or UNSET if not recorded or no longer kept
+     */
+    private long getValue(final int column, final int trialIndex) {
+        if (trialIndex < firstTrialKept() || trialIndex >= this.trialsTimed) {
+            return UNSET;
+        }
+        return this.ring[(trialIndex % this.capacity) * ROW + column];
+    }
+
+    /** Getter for histogram of a phase.
+     * @param phase phase e.g. TrialTimer.WAIT
+     * @return histogram
+     */
+    LatencyHistogram getHistogram(final int phase) {
+        return this.histograms[phase];
+    }
+
+    /** Getter for number of trials timed.
+     * @return this.trialsTimed
+     */
+    int getTrialsTimed() {
+        return this.trialsTimed;
+    }
+
+    /**
+     * Index of oldest trial in the ring buffer.
+     * @return trial index
+     */
+    private int firstTrialKept() {
+        return Math.max(0, this.trialsTimed - this.capacity);
+    }
+
+    /**
+     * Writes the timing report to file.
+     * @param reportFile path to write to
+     * @param title first line of the report
+     * @throws IOException if the file cannot be written
+     */
+    void writeReport(final Path reportFile, final String title)
+                                                        throws IOException {
+        try (FileChannel channel = FileChannel.open(reportFile,
+                                    StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING);
+            Writer out = Channels.newWriter(channel,
+                                StandardCharsets.UTF_8.newEncoder(), -1)) {
+            out.write(createReport(title));
+            out.flush();
+            // on disk before it is renamed into place
+            channel.force(false);
+        }
+        return;
+    }
+
+    /**
+     * Creates the timing report.
+     * A summary of each phase in ms followed by each trial kept
+     * @param title first line of the report
+     * @return report text
+     */
+    String createReport(final String title) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(title).append(Typesetting.CR);
+        sb.append("Trials timed: ").append(this.trialsTimed)
+            .append(Typesetting.CR);
+        sb.append("Times in ms. onset is from the previous reaction set"
+            + " arriving to the item being shown").append(Typesetting.CR);
+        sb.append("Audio start latency: ");
+        appendMsOrUnset(sb, this.audioStartLatency);
+        sb.append(" (line open after ");
+        appendMsOrUnset(sb, this.audioOpenLatency);
+        sb.append(")").append(Typesetting.CR);
+        sb.append("Audio drift: last ");
+        appendMsOrUnset(sb, (this.audioTrials == 0) ? UNSET : this.lastDrift);
+        sb.append(", largest ");
+        appendMsOrUnset(sb,
+                    (this.audioTrials == 0) ? UNSET : this.largestDrift);
+        sb.append(Typesetting.CR);
+        sb.append(Typesetting.CR);
+
+        sb.append("phase").append(Typesetting.TAB).append("count")
+            .append(Typesetting.TAB).append("mean");
+        for (String name : PERCENTILE_NAMES) {
+            sb.append(Typesetting.TAB).append(name);
+        }
+        sb.append(Typesetting.TAB).append("max").append(Typesetting.CR);
+        for (int phase = 0; phase < PHASES; phase++) {
+            LatencyHistogram h = this.histograms[phase];
+            sb.append(COLUMN_NAMES[phase]).append(Typesetting.TAB)
+                .append(h.getCount()).append(Typesetting.TAB);
+            appendMs(sb, h.getMean());
+            for (double p : PERCENTILES) {
+                sb.append(Typesetting.TAB);
+                appendMs(sb, h.percentile(p));
+            }
+            sb.append(Typesetting.TAB);
+            appendMs(sb, h.getMax());
+            sb.append(Typesetting.CR);
+        }
+        sb.append(Typesetting.CR);
+
+        sb.append("trial");
+        for (String name : COLUMN_NAMES) {
+            sb.append(Typesetting.TAB).append(name);
+        }
+        sb.append(Typesetting.CR);
+        for (int trial = firstTrialKept(); trial < this.trialsTimed;
+                                                                trial++) {
+            sb.append(trial + 1);
+            for (int column = 0; column < ROW; column++) {
+                sb.append(Typesetting.TAB);
+                appendMsOrUnset(sb, getValue(column, trial));
+            }
+            sb.append(Typesetting.CR);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends a value in ms, or - if not recorded.
+     * @param sb builder to append to
+     * @param nanos value in ns or UNSET
+     */
+    private static void appendMsOrUnset(final StringBuilder sb,
+                                        final long nanos) {
+        if (nanos == UNSET) {
+            sb.append("-");
+        } else {
+            appendMs(sb, nanos);
+        }
+        return;
+    }
+
+    /**
+     * Appends a duration in ms to 3 decimal places.
+     * @param sb builder to append to
+     * @param nanos duration in ns
+     */
+    private static void appendMs(final StringBuilder sb, final double nanos) {
+        sb.append(String.format(Locale.ROOT, "%.3f", nanos / NANOS_PER_MS));
+        return;
+    }
+}
@@ -0,0 +1,414 @@
+package xmod.serial;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+
+/** ControlBoxSimulator is an in-process stand-in for the control box.
+ * It decodes the commands Serial sends and replies as the box would, so
+ * the trial loop can run without the hardware e.g. for tests and benchmarks.
+ *
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Supported commands: MAIL_TOUT (+2 bytes), CROSSMODEL (+4 bytes),
+ * ENABLE_EXT_INT0, GET_SOURCE to GET_KEYS, ADJUST_ON, ADJUST_OFF, FLASH_LED
+ * ENABLE_EXT_INT0 arms a trial; its reaction frame is sent after the
+ * scripted latency (default: the reaction timeout sent with MAIL_TOUT)
+ * Faults can be injected: dropped, truncated or split frames, failed
+ * writes and disconnection
+ */
+
+public class ControlBoxSimulator implements SerialTransport {
+    /** Replies to GET_SOURCE to GET_KEYS, in order. */
+    private static final String[] INFO = {"XMOD CONTROL BOX SIMULATOR",
+                                        "2.1", "2026-10-17", "2026-10-17",
+                                        "16", "3"};
+    /** Argument bytes following MAIL_TOUT. */
+    private static final int MAIL_TOUT_ARGS = 2;
+    /** Argument bytes following CROSSMODEL. */
+    private static final int CROSSMODEL_ARGS = 4;
+    /** High -low byte separator. */
+    private static final int HIGH_LOW_BYTE_SEPARATOR = 256;
+
+    /** Sends replies from its own thread, as the port's event thread does. */
+    private ScheduledExecutorService port;
+    /** Where replies and events go. */
+    private volatile Listener listener;
+    /** Whether the link is open. */
+    private volatile boolean open;
+    /** Reaction frame for each trial index. */
+    private IntFunction<byte[]> reactions = ControlBoxSimulator::pressKey;
+    /** Latency in ms from arming to the reaction frame; null for timeout. */
+    private IntUnaryOperator latency;
+
+    /** Command waiting for its argument bytes, or -1. */
+    private int pendingCommand = -1;
+    /** Argument bytes received for the pending command. */
+    private final int[] args = new int[CROSSMODEL_ARGS];
+    /** Number of argument bytes received. */
+    private int argCount;
+    /** Reaction timeout sent with the last MAIL_TOUT. */
+    private int reactionTimeout;
+    /** Monitor on time sent with the last CROSSMODEL. */
+    private int monitorOn;
+    /** Monitor off time sent with the last CROSSMODEL. */
+    private int monitorOff;
+    /** Whether the monitors are on. */
+    private boolean monitorsOn;
+    /** Number of FLASH_LED commands. */
+    private int ledFlashes;
+    /** Number of bytes that were not a known command. */
+    private int unknownBytes;
+    /** Number of trials armed by ENABLE_EXT_INT0. */
+    private int trialsArmed;
+    /** Number of reaction frames sent (whole or truncated). */
+    private int framesSent;
+
+    /** Number of upcoming frames to drop. */
+    private int framesToDrop;
+    /** Bytes of the next frame to send, or -1 for all. */
+    private int truncateNextFrame = -1;
+    /** Bytes in the first of two reads of each frame, or 0 to not split. */
+    private int splitAt;
+    /** Frames to send before disconnecting, or -1 to stay connected. */
+    private int disconnectAfter = -1;
+    /** Whether writes fail. */
+    private boolean failWrites;
+    /** Whether the box has been unplugged since the link was opened. */
+    private boolean unplugged;
+
+    /**
+     * Default reaction script: box 0 presses keys 1, 2, 3 in turn.
+     * @param trial trial index
+     * @return reaction frame
+     */
+    static byte[] pressKey(final int trial) {
+        final int baseRt = 500;
+        byte[] frame = new byte[Serial.REACTION_FRAME_SIZE];
+        frame[0] = (byte) (1 + trial % 3);
+        int rt = baseRt + trial;
+        frame[4] = (byte) (rt % HIGH_LOW_BYTE_SEPARATOR);
+        frame[5] = (byte) (rt / HIGH_LOW_BYTE_SEPARATOR);
+        return frame;
+    }
+
+    /**
+     * Sets the reaction frame sent for each trial.
+     * @param script reaction frame for each trial index
+     */
+    public synchronized void setReactions(final IntFunction<byte[]> script) {
+        this.reactions = script;
+        return;
+    }
+
+    /**
+     * Sets the time from arming a trial to sending its reaction frame.
+     * @param script latency in ms for each trial index; null to wait for
+     * the reaction timeout as the box does
+     */
+    public synchronized void setLatency(final IntUnaryOperator script) {
+        this.latency = script;
+        return;
+    }
+
+    /**
+     * Drops the next frames as if lost on the line.
+     * @param count number of frames to drop
+     */
+    public synchronized void dropFrames(final int count) {
+        this.framesToDrop = count;
+        return;
+    }
+
+    /**
+     * Sends only the start of the next frame.
+     * @param bytes number of bytes to send
+     */
+    public synchronized void truncateNextFrame(final int bytes) {
+        this.truncateNextFrame = bytes;
+        return;
+    }
+
+    /**
+     * Delivers each frame in two reads.
+     * @param firstRead bytes in the first read, or 0 to not split
+     */
+    public synchronized void splitFrames(final int firstRead) {
+        this.splitAt = firstRead;
+        return;
+    }
+
+    /**
+     * Disconnects after sending a number of frames.
+     * @param frames frames to send first, or -1 to stay connected
+     */
+    public synchronized void disconnectAfter(final int frames) {
+        this.disconnectAfter = frames;
+        return;
+    }
+
+    /**
+     * Makes writes fail as if the port had gone.
+     * @param fail true to fail writes
+     */
+    public synchronized void failWrites(final boolean fail) {
+        this.failWrites = fail;
+        return;
+    }
+
+    @Override
+    public String getName() {
+        return "simulator";
+    }
+
+    @Override
+    public synchronized boolean open() {
+        if (!this.open) {
+            this.port = Executors.newSingleThreadScheduledExecutor((r) -> {
+                Thread thread = new Thread(r, "CONTROL BOX SIMULATOR");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.open = true;
+        }
+        this.unplugged = false;
+        return true;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.open;
+    }
+
+    @Override
+    public synchronized void close() {
+        this.open = false;
+        if (null != this.port) {
+            this.port.shutdownNow();
+            this.port = null;
+        }
+        return;
+    }
+
+    @Override
+    public synchronized void flushIOBuffers() {
+        this.pendingCommand = -1;
+        this.argCount = 0;
+        return;
+    }
+
+    @Override
+    public void setListener(final Listener aListener) {
+        this.listener = aListener;
+        return;
+    }
+
+    @Override
+    public synchronized int writeBytes(final byte[] buffer, final int length,
+                                        final int offset) {
+        if (!this.open || this.failWrites || this.unplugged) {
+            return -1;
+        }
+        for (int i = offset; i < offset + length; i++) {
+            receive(buffer[i] & 0xFF);
+        }
+        return length;
+    }
+
+    /**
+     * Handles one byte sent to the box.
+     * @param value byte value (0-255)
+     */
+    private void receive(final int value) {
+        if (this.pendingCommand >= 0) {
+            this.args[this.argCount++] = value;
+            if (this.pendingCommand == Serial.MAIL_TOUT
+                && this.argCount == MAIL_TOUT_ARGS) {
+                this.reactionTimeout = word(0);
+                this.pendingCommand = -1;
+            } else if (this.pendingCommand == Serial.CROSSMODEL
+                && this.argCount == CROSSMODEL_ARGS) {
+                this.monitorOn = word(0);
+                this.monitorOff = word(2);
+                this.pendingCommand = -1;
+            }
+            return;
+        }
+        if (value == Serial.MAIL_TOUT || value == Serial.CROSSMODEL) {
+            this.pendingCommand = value;
+            this.argCount = 0;
+        } else if (value == Serial.ENABLE_EXT_INT0) {
+            armTrial();
+        } else if (value >= Serial.GET_SOURCE && value <= Serial.GET_KEYS) {
+            byte[] reply = INFO[value - Serial.GET_SOURCE]
+                                .getBytes(StandardCharsets.US_ASCII);
+            deliver(reply, reply.length, 0);
+        } else if (value == Serial.ADJUST_ON) {
+            this.monitorsOn = true;
+        } else if (value == Serial.ADJUST_OFF) {
+            this.monitorsOn = false;
+        } else if (value == Serial.FLASH_LED) {
+            this.ledFlashes++;
+        } else {
+            this.unknownBytes++;
+        }
+        return;
+    }
+
+    /**
+     * Reads a low, high byte pair of arguments.
+     * @param first index of low byte
+     * @return value
+     */
+    private int word(final int first) {
+        return this.args[first]
+                + this.args[first + 1] * HIGH_LOW_BYTE_SEPARATOR;
+    }
+
+    /**
+     * Arms a trial and schedules its reaction frame, applying any faults.
+     */
+    private void armTrial() {
+        int trial = this.trialsArmed++;
+        long delay = (null == this.latency) ? this.reactionTimeout
+                                        : this.latency.applyAsInt(trial);
+        if (this.framesToDrop > 0) {
+            this.framesToDrop--;
+            return;
+        }
+        byte[] frame = this.reactions.apply(trial);
+        int length = frame.length;
+        if (this.truncateNextFrame >= 0) {
+            length = Math.min(length, this.truncateNextFrame);
+            this.truncateNextFrame = -1;
+        }
+        this.framesSent++;
+        boolean disconnect = false;
+        if (this.disconnectAfter >= 0
+            && this.framesSent >= this.disconnectAfter) {
+            disconnect = true;
+            this.disconnectAfter = -1;
+        }
+        deliver(frame, length, delay);
+        if (disconnect) {
+            schedule(this::unplug, delay);
+        }
+        return;
+    }
+
+    /**
+     * Unplugs the box: writes fail until the link is closed and reopened.
+     * As with the real port, the link stays open until Serial closes it
+     * and the event comes from another thread
+     */
+    private void unplug() {
+        synchronized (this) {
+            this.unplugged = true;
+        }
+        Listener current = this.listener;
+        if (null != current) {
+            new Thread(current::disconnected,
+                        "CONTROL BOX SIMULATOR DISCONNECT").start();
+        }
+        return;
+    }
+
+    /**
+     * Sends bytes to the listener after a delay, split if asked to.
+     * @param data bytes to send
+     * @param length number of bytes to send
+     * @param delay delay in ms
+     */
+    private void deliver(final byte[] data, final int length,
+                            final long delay) {
+        final int first = (this.splitAt > 0 && this.splitAt < length)
+                            ? this.splitAt : length;
+        schedule(() -> {
+            Listener current = this.listener;
+            if (null == current || !this.open || this.unplugged) {
+                return;
+            }
+            current.bytesReceived(data, first);
+            if (first < length) {
+                byte[] rest = new byte[length - first];
+                System.arraycopy(data, first, rest, 0, rest.length);
+                current.bytesReceived(rest, rest.length);
+            }
+        }, delay);
+        return;
+    }
+
+    /**
+     * Runs a task on the port thread after a delay.
+     * @param task task
+     * @param delay delay in ms
+     */
+    private void schedule(final Runnable task, final long delay) {
+        ScheduledExecutorService current = this.port;
+        if (null != current) {
+            current.schedule(task, Math.max(0, delay), TimeUnit.MILLISECONDS);
+        }
+        return;
+    }
+
+    /** Getter for reaction timeout sent with the last MAIL_TOUT.
+     * @return this.reactionTimeout
+     */
+    public synchronized int getReactionTimeout() {
+        return this.reactionTimeout;
+    }
+
+    /** Getter for monitor on time sent with the last CROSSMODEL.
+     * @return this.monitorOn
+     */
+    public synchronized int getMonitorOn() {
+        return this.monitorOn;
+    }
+
+    /** Getter for monitor off time sent with the last CROSSMODEL.
+     * @return this.monitorOff
+     */
+    public synchronized int getMonitorOff() {
+        return this.monitorOff;
+    }
+
+    /** Getter for whether the monitors are on.
+     * @return this.monitorsOn
+     */
+    public synchronized boolean isMonitorsOn() {
+        return this.monitorsOn;
+    }
+
+    /** Getter for number of FLASH_LED commands.
+     * @return this.ledFlashes
+     */
+    public synchronized int getLedFlashes() {
+        return this.ledFlashes;
+    }
+
+    /** Getter for number of bytes that were not a known command.
+     * @return this.unknownBytes
+     */
+    public synchronized int getUnknownBytes() {
+        return this.unknownBytes;
+    }
+
+    /** Getter for number of trials armed.
+     * @return this.trialsArmed
+     */
+    public synchronized int getTrialsArmed() {
+        return this.trialsArmed;
+    }
+
+    /** Getter for number of reaction frames sent.
+     * @return this.framesSent
+     */
+    public synchronized int getFramesSent() {
+        return this.framesSent;
+    }
+}
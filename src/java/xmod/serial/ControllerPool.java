@@ -0,0 +1,306 @@
+package xmod.serial;
+
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** ControllerPool drives one or more control boxes as a single box.
+ * Each control box has 16 boxes; with several, boxes are numbered across
+ * them in port name order: controller c has boxes 16c to 16c + 15
+ *
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Each controller has its own Serial, so bytes from each box are framed
+ * on that port's own event thread. Trials are armed on every controller
+ * at once, each from its own sender thread, and the reaction frames are
+ * merged in controller order: controller c's frame at c * 36 bytes.
+ * With one controller, calls go straight to its Serial
+ * Set the number of controllers with -Dxmod.controllers=n (1 to 4)
+ */
+
+public final class ControllerPool {
+    /** System property for the number of control boxes to use. */
+    public static final String CONTROLLERS_PROPERTY = "xmod.controllers";
+    /** Most control boxes in a pool. */
+    public static final int MAX_CONTROLLERS = 4;
+    /** Boxes on each control box. */
+    public static final int BOXES_PER_CONTROLLER = 16;
+
+    /** Serial link to each control box, in box numbering order. */
+    private final Serial[] controllers;
+    /** Thread per control box for arming trials; null with one box. */
+    private final ExecutorService[] senders;
+    /** Reaction frame received from each box for the current trial. */
+    private final byte[][] pending;
+    /** Number of control boxes asked for but not found. */
+    private final int missing;
+
+    /**
+     * Constructor.
+     * @param serials serial link to each control box, in numbering order
+     */
+    public ControllerPool(final Serial... serials) {
+        this(0, serials);
+    }
+
+    /**
+     * Constructor.
+     * @param missingCount number of control boxes asked for but not found
+     * @param serials serial link to each control box, in numbering order
+     */
+    private ControllerPool(final int missingCount, final Serial... serials) {
+        if (serials.length == 0 || serials.length > MAX_CONTROLLERS) {
+            throw new IllegalArgumentException("A pool needs 1 to "
+                + MAX_CONTROLLERS + " controllers, not " + serials.length);
+        }
+        this.controllers = serials.clone();
+        this.missing = missingCount;
+        this.pending = new byte[serials.length][];
+        if (serials.length == 1) {
+            this.senders = null;
+            return;
+        }
+        this.senders = new ExecutorService[serials.length];
+        for (int c = 0; c < serials.length; c++) {
+            final String name = "CONTROLLER " + c;
+            this.senders[c] = Executors.newSingleThreadExecutor((r) -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /**
+     * Creates the pool asked for by -Dxmod.controllers, default 1.
+     * One controller connects in the background and retries as before;
+     * several are found and connected before returning
+     * @return pool of the control boxes found
+     */
+    public static ControllerPool create() {
+        int wanted = Math.min(Integer.getInteger(CONTROLLERS_PROPERTY, 1),
+                                MAX_CONTROLLERS);
+        if (wanted <= 1) {
+            return new ControllerPool(new Serial());
+        }
+        List<SerialTransport> found = new ArrayList<SerialTransport>();
+        if (Boolean.getBoolean(Serial.SIMULATOR_PROPERTY)) {
+            for (int c = 0; c < wanted; c++) {
+                found.add(new ControlBoxSimulator());
+            }
+        } else {
+            found = JSerialCommTransport.findAll();
+        }
+        if (found.isEmpty()) {
+            // keep trying in the background as with one controller
+            return new ControllerPool(wanted - 1, new Serial());
+        }
+        int count = Math.min(wanted, found.size());
+        Serial[] serials = new Serial[count];
+        for (int c = 0; c < count; c++) {
+            serials[c] = new Serial(found.get(c));
+        }
+        return new ControllerPool(wanted - count, serials);
+    }
+
+    /** Getter for number of control boxes.
+     * @return number of control boxes in the pool
+     */
+    public int size() {
+        return this.controllers.length;
+    }
+
+    /** Getter for number of boxes across all control boxes.
+     * @return 16 per control box
+     */
+    public int getBoxCount() {
+        return this.controllers.length * BOXES_PER_CONTROLLER;
+    }
+
+    /** Getter for number of control boxes asked for but not found.
+     * @return this.missing
+     */
+    public int getMissing() {
+        return this.missing;
+    }
+
+    /**
+     * Getter for the serial link to one control box.
+     * @param controller index of the control box
+     * @return serial link
+     */
+    public Serial get(final int controller) {
+        return this.controllers[controller];
+    }
+
+    /**
+     * Whether every control box is connected.
+     * @return true if all connected
+     */
+    public Boolean isSerialConnected() {
+        for (Serial serial : this.controllers) {
+            if (!serial.isSerialConnected()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Arms a trial on every control box at once.
+     * Returns once the frame has been written to every box
+     * @param frame trial frame from Serial.encodeTrialTimings
+     */
+    public void sendTrialFrame(final byte[] frame) {
+        if (null == this.senders) {
+            this.controllers[0].sendTrialFrame(frame);
+            return;
+        }
+        Future<?>[] sent = new Future<?>[this.controllers.length];
+        for (int c = 0; c < this.controllers.length; c++) {
+            final Serial serial = this.controllers[c];
+            sent[c] = this.senders[c].submit(
+                                        () -> serial.sendTrialFrame(frame));
+        }
+        for (Future<?> f : sent) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // Serial reports its own send errors
+            }
+        }
+        return;
+    }
+
+    /**
+     * Waits up to timeoutMs for the reaction frame from every control box.
+     * Frames already received are kept if another box is still to reply,
+     * so callers can wait in short slices as with Serial.pollChunk
+     * @param chunkSize size of each control box's frame
+     * @param timeoutMs maximum time to wait in ms
+     * @return merged frame of chunkSize bytes per box or null if timed out
+     * @throws SerialBytesReceivedException if a box cannot be read
+     */
+    public byte[] pollChunk(final int chunkSize, final long timeoutMs)
+        throws SerialBytesReceivedException {
+        if (this.controllers.length == 1) {
+            return this.controllers[0].pollChunk(chunkSize, timeoutMs);
+        }
+        // every box is read by its own port thread; this only waits for
+        // the slowest, so the wait does not grow with more controllers
+        long deadline = System.nanoTime() + timeoutMs * 1000000L;
+        for (int c = 0; c < this.controllers.length; c++) {
+            if (null == this.pending[c]) {
+                long remaining = Math.max(0,
+                        (deadline - System.nanoTime()) / 1000000L);
+                this.pending[c] = this.controllers[c].pollChunk(chunkSize,
+                                                                remaining);
+                if (null == this.pending[c]) {
+                    return null;
+                }
+            }
+        }
+        byte[] merged = new byte[chunkSize * this.controllers.length];
+        for (int c = 0; c < this.controllers.length; c++) {
+            System.arraycopy(this.pending[c], 0, merged, c * chunkSize,
+                                Math.min(chunkSize, this.pending[c].length));
+            this.pending[c] = null;
+        }
+        return merged;
+    }
+
+    /**
+     * Discards partly received frames so the next trial starts cleanly.
+     * Frames already received from some boxes for this trial are dropped
+     * @return true if an incomplete frame was discarded
+     */
+    public boolean dropPartialFrame() {
+        boolean dropped = false;
+        for (int c = 0; c < this.controllers.length; c++) {
+            dropped |= this.controllers[c].dropPartialFrame();
+            dropped |= (null != this.pending[c]);
+            this.pending[c] = null;
+        }
+        return dropped;
+    }
+
+    /** Turns on the monitors on every control box. */
+    public void turnOnMonitor() {
+        for (Serial serial : this.controllers) {
+            serial.turnOnMonitor();
+        }
+        return;
+    }
+
+    /** Turns off the monitors on every control box. */
+    public void turnOffMonitor() {
+        for (Serial serial : this.controllers) {
+            serial.turnOffMonitor();
+        }
+        return;
+    }
+
+    /** Checks the connection to every control box. */
+    public void checkConnection() {
+        for (Serial serial : this.controllers) {
+            serial.checkConnection();
+        }
+        return;
+    }
+
+    /**
+     * Requests information about every control box.
+     * @return String representation of all control box info or ""
+     */
+    public String getControllerInfo() {
+        if (this.controllers.length == 1) {
+            return this.controllers[0].getControllerInfo();
+        }
+        StringBuilder info = new StringBuilder();
+        for (int c = 0; c < this.controllers.length; c++) {
+            String serialInfo = this.controllers[c].getControllerInfo();
+            if (serialInfo != "") {
+                info.append("Boxes ").append(c * BOXES_PER_CONTROLLER)
+                    .append(" to ")
+                    .append((c + 1) * BOXES_PER_CONTROLLER - 1)
+                    .append(": ").append(serialInfo).append("<br/>");
+            }
+        }
+        return info.toString();
+    }
+
+    /**
+     * Closes every control box connection.
+     */
+    public void close() {
+        for (Serial serial : this.controllers) {
+            serial.close();
+        }
+        if (null != this.senders) {
+            for (ExecutorService sender : this.senders) {
+                sender.shutdownNow();
+            }
+        }
+        return;
+    }
+
+    /**
+     * Adds a listener to every control box.
+     * @param l listener e.g. Xmod
+     */
+    public void addObserver(final PropertyChangeListener l) {
+        for (Serial serial : this.controllers) {
+            serial.addObserver(l);
+        }
+        return;
+    }
+}
@@ -0,0 +1,165 @@
+package xmod.serial;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/** FrameReceiver assembles bytes from the control box into frames.
+ * Bytes are pushed in by the serial port's data listener as they arrive
+ * and complete frames are handed to the waiting thread via a bounded queue.
+ *
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * A frame size of 0 is 'raw' mode: whatever arrives in one event is a frame.
+ * This is used for the controller info replies, which vary in length
+ */
+
+class FrameReceiver {
+    /** Completed frames waiting to be collected. */
+    private final BlockingQueue<byte[]> frames;
+    /** Frame currently being assembled. */
+    private byte[] partial;
+    /** Number of bytes in this.partial so far. */
+    private int partialLength;
+    /** Expected frame size in bytes; 0 means raw mode. */
+    private int frameSize;
+    /** Time (System.nanoTime) the last byte was appended. */
+    private long lastByteTime;
+    /** Time in ns after which an incomplete frame is treated as stale. */
+    private final long partialTimeout;
+    /** Number of stale partial frames discarded. */
+    private int droppedPartials;
+    /** Number of frames discarded because nobody collected them. */
+    private int overflows;
+
+    /** Constructor.
+     * @param capacity maximum number of completed frames to hold
+     * @param partialTimeoutMs ms after which an incomplete frame is dropped
+     */
+    FrameReceiver(final int capacity, final int partialTimeoutMs) {
+        this.frames = new ArrayBlockingQueue<byte[]>(capacity);
+        this.partialTimeout = TimeUnit.MILLISECONDS.toNanos(partialTimeoutMs);
+        this.partial = new byte[0];
+    }
+
+    /**
+     * Clears any pending bytes and sets the size of the next frames.
+     * Call before sending the command the frames will respond to.
+     * @param size expected frame size in bytes (0 for raw mode)
+     */
+    synchronized void expect(final int size) {
+        this.frameSize = Math.max(0, size);
+        if (this.partial.length != this.frameSize) {
+            this.partial = new byte[this.frameSize];
+        }
+        this.partialLength = 0;
+        this.frames.clear();
+        return;
+    }
+
+    /**
+     * Returns the frame size currently being assembled.
+     * @return frame size in bytes (0 for raw mode)
+     */
+    synchronized int getFrameSize() {
+        return this.frameSize;
+    }
+
+    /**
+     * Appends bytes received from the serial port.
+     * Called from the jSerialComm event thread
+     * @param data bytes received
+     * @param length number of valid bytes in data
+     */
+    synchronized void append(final byte[] data, final int length) {
+        if (null == data || length <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        // Bytes of a frame arrive as one burst, so a long silence mid-frame
+        // means the rest was lost: drop it and resync on the new bytes
+        if (this.partialLength > 0
+            && now - this.lastByteTime > this.partialTimeout) {
+            this.partialLength = 0;
+            this.droppedPartials++;
+        }
+        this.lastByteTime = now;
+
+        if (this.frameSize == 0) {
+            byte[] chunk = new byte[length];
+            System.arraycopy(data, 0, chunk, 0, length);
+            offer(chunk);
+            return;
+        }
+        int offset = 0;
+        while (offset < length) {
+            int toCopy = Math.min(length - offset,
+                                    this.frameSize - this.partialLength);
+            System.arraycopy(data, offset, this.partial, this.partialLength,
+                                toCopy);
+            this.partialLength += toCopy;
+            offset += toCopy;
+            if (this.partialLength == this.frameSize) {
+                offer(this.partial);
+                this.partial = new byte[this.frameSize];
+                this.partialLength = 0;
+            }
+        }
+        return;
+    }
+
+    /**
+     * Adds a completed frame, discarding the oldest if the queue is full.
+     * @param frame completed frame
+     */
+    private void offer(final byte[] frame) {
+        while (!this.frames.offer(frame)) {
+            this.frames.poll();
+            this.overflows++;
+        }
+        return;
+    }
+
+    /**
+     * Waits for the next completed frame.
+     * @param timeoutMs maximum time to wait in ms
+     * @return frame or null if none arrived in time
+     */
+    byte[] poll(final long timeoutMs) {
+        try {
+            return this.frames.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Discards an incomplete frame after the consumer has given up on it.
+     * @return true if a partial frame was discarded
+     */
+    synchronized boolean dropPartial() {
+        if (this.partialLength == 0) {
+            return false;
+        }
+        this.partialLength = 0;
+        this.droppedPartials++;
+        return true;
+    }
+
+    /** Getter for number of stale partial frames discarded.
+     * @return this.droppedPartials
+     */
+    synchronized int getDroppedPartials() {
+        return this.droppedPartials;
+    }
+
+    /** Getter for number of uncollected frames discarded.
+     * @return this.overflows
+     */
+    synchronized int getOverflows() {
+        return this.overflows;
+    }
+}
@@ -0,0 +1,177 @@
+package xmod.serial;
+
+import com.fazecast.jSerialComm.SerialPort;
+import com.fazecast.jSerialComm.SerialPortDataListener;
+import com.fazecast.jSerialComm.SerialPortEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/** JSerialCommTransport links to the control box via a real serial port.
+ * Uses jSerialComm's SerialPort class
+ *
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ */
+
+class JSerialCommTransport implements SerialTransport {
+    /** Port Parameters: Baud Rate. */
+    private static final int BAUD_RATE = 19200;
+    /** Port Parameters: Data bits. */
+    private static final int DATA_BITS = 8;
+    /** Port Parameters: Stop bots. */
+    private static final int STOP_BITS = SerialPort.ONE_STOP_BIT;
+    /** Port Parameters: Parity. */
+    private static final int PARITY = SerialPort.NO_PARITY;
+    /** time in ms to wait for data from control box. */
+    // Reads only happen once the listener reports bytes are available,
+    // so a blocking read with no timeout returns straight away
+    private static final int TIMEOUT = 0;
+
+    /** Serial port connection to controller box. */
+    private final SerialPort serialPort;
+
+    /** Constructor.
+     * @param port serial port of the control box
+     */
+    JSerialCommTransport(final SerialPort port) {
+        this.serialPort = port;
+    }
+
+    /**
+     * Finds the serial port of the control box.
+     * @return transport for the port or null if none found
+     */
+    static JSerialCommTransport find() {
+        SerialPort[] availablePorts = SerialPort.getCommPorts();
+        for (int i = 0; i < availablePorts.length; i++) {
+            String portName = availablePorts[i].getSystemPortName();
+            if (portName.contains("usbserial")) {
+                return new JSerialCommTransport(availablePorts[i]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the serial ports of all connected control boxes.
+     * Sorted by port name so boxes keep the same numbering between runs
+     * @return transport for each port, empty if none found
+     */
+    static List<SerialTransport> findAll() {
+        List<SerialTransport> found = new ArrayList<SerialTransport>();
+        for (SerialPort port : SerialPort.getCommPorts()) {
+            if (port.getSystemPortName().contains("usbserial")) {
+                found.add(new JSerialCommTransport(port));
+            }
+        }
+        found.sort(Comparator.comparing(SerialTransport::getName));
+        return found;
+    }
+
+    @Override
+    public String getName() {
+        return this.serialPort.getSystemPortName();
+    }
+
+    @Override
+    public boolean open() {
+        // Open the port if not open
+        if (!this.serialPort.isOpen()) {
+            this.serialPort.openPort();
+        }
+        // If opened, set parameters and timeouts
+        if (this.serialPort.isOpen()) {
+            this.serialPort.setComPortParameters(BAUD_RATE, DATA_BITS,
+                                                    STOP_BITS, PARITY);
+            this.serialPort.setComPortTimeouts(
+                SerialPort.TIMEOUT_READ_BLOCKING
+                | SerialPort.TIMEOUT_WRITE_BLOCKING,
+                TIMEOUT, 0);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return this.serialPort.isOpen();
+    }
+
+    @Override
+    public void close() {
+        this.serialPort.closePort();
+        return;
+    }
+
+    @Override
+    public void flushIOBuffers() {
+        this.serialPort.flushIOBuffers(); //command from jSerialComm
+        return;
+    }
+
+    @Override
+    public int writeBytes(final byte[] buffer, final int length,
+                            final int offset) {
+        return this.serialPort.writeBytes(buffer, length, offset);
+    }
+
+    /**
+     * Add data listener to serial port.
+     * Listens for disconnection and passes incoming bytes to the listener
+     * Note jSerialComm allows only one listener per port
+     * @param listener listener for bytes and events
+     */
+    @Override
+    public void setListener(final Listener listener) {
+        this.serialPort.removeDataListener();
+        this.serialPort.addDataListener(new SerialPortDataListener() {
+            @Override
+            public int getListeningEvents() {
+                return SerialPort.LISTENING_EVENT_PORT_DISCONNECTED
+                        | SerialPort.LISTENING_EVENT_DATA_AVAILABLE;
+            }
+
+            @Override
+            public void serialEvent(final SerialPortEvent serialPortEvent) {
+                if (serialPortEvent.getEventType()
+                    == SerialPort.LISTENING_EVENT_DATA_AVAILABLE) {
+                    readAvailable(serialPortEvent.getSerialPort(), listener);
+                } else if (serialPortEvent.getEventType()
+                    == SerialPort.LISTENING_EVENT_PORT_DISCONNECTED) {
+                    listener.disconnected();
+                }
+            }
+        });
+        return;
+    }
+
+    /**
+     * Reads whatever bytes are available and passes them to the listener.
+     * @param port port that raised the data available event
+     * @param listener listener for bytes and errors
+     */
+    private void readAvailable(final SerialPort port,
+                                final Listener listener) {
+        int availableBytes = port.bytesAvailable();
+        if (availableBytes == -1) {
+            listener.readError("Error (-1 bytes available) occurred while"
+                + " receiving bytes from controller box");
+            return;
+        }
+        if (availableBytes == 0) {
+            return;
+        }
+        byte[] inbuffer = new byte[availableBytes];
+        int received = port.readBytes(inbuffer, inbuffer.length);
+        if (received < 0) {
+            listener.readError("Reading Error (" + received + ") occurred"
+                + " while receiving bytes from controller box");
+            return;
+        }
+        listener.bytesReceived(inbuffer, received);
+        return;
+    }
+}
@@ -9,17 +9,14 @@ import xmod.status.ReportCategory;
 import xmod.status.ReportLabel;
 import xmod.status.Responses;
 
-import com.fazecast.jSerialComm.SerialPort;
-import com.fazecast.jSerialComm.SerialPortEvent;
-import com.fazecast.jSerialComm.SerialPortDataListener;
-
 // For reporting errors to GUI
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 
 
 /** Serial class manages communication with control box via serial port.
- * Uses jSerialComm's SerialPort class
+ * Bytes go via a SerialTransport: the real port (jSerialComm) or, when
+ * the xmod.simulator system property is true, a ControlBoxSimulator
  *
  * @author ELS
  * @version 2.1
@@ -37,22 +34,38 @@ public class Serial extends Thread {
     /** True if trying to reconnect to controller box. */
     private Boolean tryingToConnect = false;
     /** Serial port connection to controller box. */
-    private SerialPort serialPort = null;
+    private SerialTransport transport = null;
+    /** Transport given to the constructor; null to search for the port. */
+    private final SerialTransport fixedTransport;
+    /** Minimum gap in ms between bytes when sending a framed command. */
+    private int minByteGap = Math.max(0,
+                    Integer.getInteger(BYTE_GAP_PROPERTY, DEFAULT_BYTE_GAP));
+    /** Assembles bytes from the control box into frames. */
+    private FrameReceiver receiver;
     /** duration of waiting for control box bytesAvailable() > 0. */
     private static final int PAUSE_DURATION = 40;
+    /** Default gap in ms between bytes of a framed command.
+     * 0 means the whole frame goes out in a single writeBytes call
+     */
+    private static final int DEFAULT_BYTE_GAP = 0;
+    /** Number of bytes in a trial timing frame. */
+    public static final int TRIAL_FRAME_SIZE = 9;
+    /** Number of bytes in the reaction set sent back after each trial. */
+    public static final int REACTION_FRAME_SIZE = 36;
+    /** Number of completed frames held before the oldest is dropped. */
+    private static final int FRAME_QUEUE_CAPACITY = 8;
+    /** Silence in ms after which an incomplete frame is dropped. */
+    private static final int PARTIAL_FRAME_TIMEOUT = 250;
+    /** time in ms to wait for a reply to a controller info request. */
+    private static final int INFO_TIMEOUT = 2000;
+    /** time in ms receiveChunk waits for a full frame. */
+    private static final int CHUNK_TIMEOUT = 60000;
     /** duration of pause being looking for serial to connect to. */
     private static final int WAIT_DURATION = 1000;
-    /** Port Parameters: Baud Rate. */
-    private static final int BAUD_RATE = 19200;
-    /** Port Parameters: Data bits. */
-    private static final int DATA_BITS = 8;
-    /** Port Parameters: Stop bots. */
-    private static final int STOP_BITS = SerialPort.ONE_STOP_BIT;
-    /** Port Parameters: Parity. */
-    private static final int PARITY = SerialPort.NO_PARITY;
-    /** time in ms to wait for data from control box. */
-    // This needs to be 0 so it waits for as long as necessary
-    private static final int TIMEOUT = 0;
+    /** System property: if true, connect to a simulated control box. */
+    public static final String SIMULATOR_PROPERTY = "xmod.simulator";
+    /** System property: gap in ms between bytes of a trial frame. */
+    public static final String BYTE_GAP_PROPERTY = "xmod.byteGap";
 
     /** High -low byte separator. */
     private static final int HIGH_LOW_BYTE_SEPARATOR = 256;
@@ -67,38 +80,56 @@ public class Serial extends Thread {
 
     // Constants for commands to send to the control box.
     // Note variable names are same as method names in control box software;
+    // package-private so ControlBoxSimulator speaks the same protocol
     /** Send timeouts for each trial to controller box.  */
-    private static final int MAIL_TOUT = Integer.parseInt("01", 16);
+    static final int MAIL_TOUT = Integer.parseInt("01", 16);
     /** Send external interrupt trigger for each trial to controller box.  */
-    private static final int ENABLE_EXT_INT0 = Integer.parseInt("02", 16);
+    static final int ENABLE_EXT_INT0 = Integer.parseInt("02", 16);
     /** Request info about control box: source to controller box.  */
-    private static final int GET_SOURCE = Integer.parseInt("07", 16);
+    static final int GET_SOURCE = Integer.parseInt("07", 16);
     /** Request info about control box: source to controller box.  */
-    private static final int GET_VERSION = Integer.parseInt("08", 16);
+    static final int GET_VERSION = Integer.parseInt("08", 16);
     /** Request info about control box: source to controller box.  */
-    private static final int GET_CREATED = Integer.parseInt("09", 16);
+    static final int GET_CREATED = Integer.parseInt("09", 16);
     /** Request info about control box: source to controller box.  */
-    private static final int GET_MODIFIED = Integer.parseInt("0A", 16);
+    static final int GET_MODIFIED = Integer.parseInt("0A", 16);
     /** Request info about control box: source to controller box.  */
-    private static final int GET_BOXES = Integer.parseInt("0B", 16);
+    static final int GET_BOXES = Integer.parseInt("0B", 16);
     /** Request info about control box: source to controller box.  */
-    private static final int GET_KEYS = Integer.parseInt("0C", 16);
+    static final int GET_KEYS = Integer.parseInt("0C", 16);
     /** Send request to turn off monitors to controller box.  */
-    private static final int ADJUST_OFF = Integer.parseInt("0F", 16);
+    static final int ADJUST_OFF = Integer.parseInt("0F", 16);
     /** Send request to turn on monitors  to controller box.  */
-    private static final int ADJUST_ON = Integer.parseInt("12", 16);
+    static final int ADJUST_ON = Integer.parseInt("12", 16);
     /** Request flashing leds to controller box.  */
-    private static final int FLASH_LED = Integer.parseInt("10", 16);
+    static final int FLASH_LED = Integer.parseInt("10", 16);
     /** Send experiment start to controller box.  */
-    private static final int CROSSMODEL = Integer.parseInt("20", 16);
+    static final int CROSSMODEL = Integer.parseInt("20", 16);
 
 
     /**Constructor to connect to serial port. */
     public Serial() {
         pcs = new PropertyChangeSupport(this);
+        receiver = new FrameReceiver(FRAME_QUEUE_CAPACITY,
+                                        PARTIAL_FRAME_TIMEOUT);
+        fixedTransport = null;
         connectRepeatedly();
     }
 
+    /**Constructor to connect via a given transport e.g. a simulator.
+     * Connects before returning rather than in a background thread
+     * @param aTransport transport to the control box
+     */
+    public Serial(final SerialTransport aTransport) {
+        pcs = new PropertyChangeSupport(this);
+        receiver = new FrameReceiver(FRAME_QUEUE_CAPACITY,
+                                        PARTIAL_FRAME_TIMEOUT);
+        fixedTransport = aTransport;
+        flipConnectFlag();
+        connectToPort(0);
+        flipConnectFlag();
+    }
+
     /** Thread to try to connect to serial port multiple times.
      * Only starts new thread if one isn't currently running.
     */
@@ -125,25 +156,22 @@ public class Serial extends Thread {
      * Identify available serial ports and select correct port.
      */
     private void selectPort() {
-        //Set serialPort and serialConnected
-        this.serialPort = null;
+        //Set transport and serialConnected
+        this.transport = null;
         this.serialConnected = false;
         //Search for port
-        SerialPort[] availablePorts = SerialPort.getCommPorts();
-        int numPorts = availablePorts.length;
-        if (numPorts > 0) {
-            for (int i = 0; i < numPorts; i++) {
-                String portName = availablePorts[i].getSystemPortName();
-                if (portName.contains("usbserial")) {
-                    this.serialPort = availablePorts[i];
-                    addPortListener();
-                    updateStatus(Responses.SERIAL_CONNECTED, "", "", "");
-                    // Turn off monitor immediately after connection to avoid
-                    // confusing participants
-                    turnOffMonitor();
-                    return;
-                }
-            }
+        SerialTransport found;
+        if (null != this.fixedTransport) {
+            found = this.fixedTransport;
+        } else if (Boolean.getBoolean(SIMULATOR_PROPERTY)) {
+            found = new ControlBoxSimulator();
+        } else {
+            found = JSerialCommTransport.find();
+        }
+        if (null != found) {
+            this.transport = found;
+            addPortListener();
+            return;
         }
         // No Update sent via PCS as this is handled within the connectToPort()
     }
@@ -155,7 +183,7 @@ public class Serial extends Thread {
      */
     private void connectToPort(final int repeatInt) {
         selectPort();
-        if (this.serialPort == null) { // if port not identified yet
+        if (this.transport == null) { // if port not identified yet
             if (repeatInt > 0) {
                 Utils.pause(this.WAIT_DURATION);
                 int decrementedRepeatInt = repeatInt - 1;
@@ -169,22 +197,13 @@ public class Serial extends Thread {
             }
         }
 
-        // Open the port if not open
-        if (!this.serialPort.isOpen()) {
-            this.serialPort.openPort();
-        }
-        // If opened, set parameters and timeouts
-        if (this.serialPort.isOpen()) {
-            this.serialPort.setComPortParameters(
-                this.BAUD_RATE,
-                this.DATA_BITS,
-                this.STOP_BITS,
-                this.PARITY);
-            this.serialPort.setComPortTimeouts(
-                SerialPort.TIMEOUT_READ_BLOCKING
-                | SerialPort.TIMEOUT_WRITE_BLOCKING,
-                this.TIMEOUT, 0);
+        // Open the port if not open, setting parameters and timeouts
+        if (this.transport.open()) {
             this.serialConnected = true; //only update here as mark of success
+            updateStatus(Responses.SERIAL_CONNECTED, "", "", "");
+            // Turn off monitor immediately after connection to avoid
+            // confusing participants; the port must be open to send it
+            turnOffMonitor();
             return;
          } else {
             if (repeatInt > 0) {
@@ -300,6 +319,56 @@ public class Serial extends Thread {
         return;
     }
 
+    /**
+     * Sets the minimum gap between bytes of a framed command.
+     * Older control boxes that drop bytes can be paced with a gap here;
+     * 0 writes each frame in a single call. Defaults to -Dxmod.byteGap
+     * @param gapMs gap in milliseconds (negative values are treated as 0)
+     */
+    public void setMinByteGap(final int gapMs) {
+        this.minByteGap = Math.max(0, gapMs);
+        return;
+    }
+
+    /**
+     * Getter for this.minByteGap.
+     * @return gap in milliseconds between bytes of a framed command
+     */
+    public int getMinByteGap() {
+        return this.minByteGap;
+    }
+
+    /**
+     * Encodes the timeout, on and off timings as a single trial frame.
+     * Frame layout is MAIL_TOUT, tOut low, tOut high, CROSSMODEL,
+     * tOn low, tOn high, tOff low, tOff high, ENABLE_EXT_INT0
+     * @param tReactionTimeoutByte : byte for timeout timings
+     * @param tMonitorOnByte byte for monitor on timings
+     * @param tMonitorOffByte byte for monitor off timings
+     * @return frame of TRIAL_FRAME_SIZE bytes
+     */
+    public static byte[] encodeTrialTimings(final int tReactionTimeoutByte,
+                                            final int tMonitorOnByte,
+                                            final int tMonitorOffByte) {
+        byte[] frame = new byte[TRIAL_FRAME_SIZE];
+        int i = 0;
+        // tell controller two timeout-bytes are coming;
+        frame[i++] = (byte) MAIL_TOUT;
+        // low then high byte of tReactionTimeout - integer division
+        frame[i++] = (byte) (tReactionTimeoutByte % HIGH_LOW_BYTE_SEPARATOR);
+        frame[i++] = (byte) (tReactionTimeoutByte / HIGH_LOW_BYTE_SEPARATOR);
+        // tell controller tOn and tOff times are coming for crossmodal exp
+        frame[i++] = (byte) CROSSMODEL;
+        frame[i++] = (byte) (tMonitorOnByte % HIGH_LOW_BYTE_SEPARATOR);
+        frame[i++] = (byte) (tMonitorOnByte / HIGH_LOW_BYTE_SEPARATOR);
+        frame[i++] = (byte) (tMonitorOffByte % HIGH_LOW_BYTE_SEPARATOR);
+        frame[i++] = (byte) (tMonitorOffByte / HIGH_LOW_BYTE_SEPARATOR);
+        // tell controller to enable external interrupt
+        // this is audio trigger to start exp run
+        frame[i++] = (byte) ENABLE_EXT_INT0;
+        return frame;
+    }
+
     /**
      * Sends timeout, on and off bytes to controller.
      * Note this does not use the sendCommand method to reduce latency
@@ -310,35 +379,21 @@ public class Serial extends Thread {
     public void sendTrialTimings(final int tReactionTimeoutByte,
                                 final int tMonitorOnByte,
                                 final int tMonitorOffByte) {
+        sendTrialFrame(encodeTrialTimings(tReactionTimeoutByte,
+                                            tMonitorOnByte,
+                                            tMonitorOffByte));
+        return;
+    }
+
+    /**
+     * Sends a trial frame already built by encodeTrialTimings.
+     * Lets the runner encode every trial up front so re-arming the box
+     * is just the serial write
+     * @param frame trial frame from encodeTrialTimings
+     */
+    public void sendTrialFrame(final byte[] frame) {
         try {
-            int tOnLowByte = tMonitorOnByte % this.HIGH_LOW_BYTE_SEPARATOR;
-            int tOnHighByte = tMonitorOnByte / this.HIGH_LOW_BYTE_SEPARATOR;
-            int tOffLowByte = tMonitorOffByte % this.HIGH_LOW_BYTE_SEPARATOR;
-            int tOffHighByte = tMonitorOffByte / this.HIGH_LOW_BYTE_SEPARATOR;
-            int tOutLowByte = tReactionTimeoutByte
-                                % this.HIGH_LOW_BYTE_SEPARATOR;
-            int tOutHighByte = tReactionTimeoutByte
-                                / this.HIGH_LOW_BYTE_SEPARATOR;
-
-            // tell controller two timeout-bytes are coming;
-            send(this.MAIL_TOUT);
-            // send low byte of tReactionTimeout
-            sendWithoutFlush(tOutLowByte);
-            // send high byte of tReactionTimeout - integer division
-            sendWithoutFlush(tOutHighByte);
-            // tell controller tOn and tOff times are coming for crossmodal exp
-            send(this.CROSSMODEL);
-            // send low byte of tOn;
-            sendWithoutFlush(tOnLowByte);
-            // send high byte of tOn;- integer division
-            sendWithoutFlush(tOnHighByte);
-            // send low byte of tOff
-            sendWithoutFlush(tOffLowByte);
-            // send high byte of tOff - integer division
-            sendWithoutFlush(tOffHighByte);
-            // tell controller to enable external interrupr
-            // this isaudio trigger to start exp run
-            send(this.ENABLE_EXT_INT0);
+            sendFrame(frame);
         } catch (SerialNotConnectedException e) {
             String stackTrace = Utils.getStackTrace(e);
             updateStatus("", "Could not send trial timings as not connected "
@@ -347,16 +402,49 @@ public class Serial extends Thread {
         return;
     }
 
+    /**
+     * Flushes IO buffers once and sends a whole frame to the serial port.
+     * Written in one call unless this.minByteGap asks for pacing
+     * @param frame bytes to send to the control box
+     */
+    private void sendFrame(final byte[] frame)
+                                        throws SerialNotConnectedException {
+        if (null == this.transport) {
+            throw new SerialNotConnectedException();
+        }
+        this.transport.flushIOBuffers();
+        // box replies to a trial frame with the full reaction set
+        this.receiver.expect(REACTION_FRAME_SIZE);
+        int sent = 0;
+        if (this.minByteGap == 0) {
+            sent = this.transport.writeBytes(frame, frame.length, 0);
+        } else {
+            for (int i = 0; i < frame.length; i++) {
+                if (i > 0) {
+                    Utils.pause(this.minByteGap);
+                }
+                sent += Math.max(0, this.transport.writeBytes(frame, 1, i));
+            }
+        }
+        if (sent != frame.length) {
+            updateStatus("", "Only " + sent + " of " + frame.length
+                + " bytes were sent to the controller box", "", "");
+        }
+        return;
+    }
+
     /**
      * Flushes IO buffers and Sends data to the serial port.
      * @param  message integer representation of the command to the control box
      */
     private void send(final int message) throws SerialNotConnectedException {
         // Tell serialPort to flush buffers
-        if (null == this.serialPort) {
+        if (null == this.transport) {
             throw new SerialNotConnectedException();
         }
-            this.serialPort.flushIOBuffers(); //command from jSerialComm
+            this.transport.flushIOBuffers();
+            // replies to single commands vary in length
+            this.receiver.expect(0);
             //Send message
             sendWithoutFlush(message);
             return;
@@ -369,14 +457,14 @@ public class Serial extends Thread {
      */
     private void sendWithoutFlush(final int message)
                                             throws SerialNotConnectedException {
-        if (null == this.serialPort) {
+        if (null == this.transport) {
             throw new SerialNotConnectedException();
         }
         //Create Message in Bytes
         byte[] sendByte = new byte[1];
         sendByte[0] = (byte) message;
         //Send message to serialPort
-        int sent = this.serialPort.writeBytes(sendByte, 1);
+        int sent = this.transport.writeBytes(sendByte, 1, 0);
         Utils.pause(this.PAUSE_DURATION);
         return;
     }
@@ -387,76 +475,78 @@ public class Serial extends Thread {
      * @return output string containing response from control box
      */
     public String receive() throws SerialBytesReceivedException {
-        //Wait til serialPort ready to send response
-        while (this.serialPort.bytesAvailable() == 0) {
-            Utils.pause(this.PAUSE_DURATION); //from Utils
-        }
-
-        int availableBytes = this.serialPort.bytesAvailable();
-        if (availableBytes == -1) {
-            String updateMsg = "Error (-1 bytes available) occurred while"
-                + " receiving bytes from controller box";
+        //Wait til the listener has received the response
+        byte[] received = this.receiver.poll(INFO_TIMEOUT);
+        if (null == received) {
+            String updateMsg = "Timed out after " + INFO_TIMEOUT
+                + "ms waiting for bytes from controller box";
             updateStatus("", updateMsg, "", "");
             throw new SerialBytesReceivedException();
         }
-        byte[] received;
-        try {
-            received = receiveChunk(availableBytes);
-        } catch (SerialBytesReceivedException e) {
-            throw new SerialBytesReceivedException();
-        }
         //Write input to string
-        String output = "";
-
+        StringBuilder output = new StringBuilder(received.length);
         for (int i = 0; i < received.length; i++) {
-            output = output + (char) received[i];
+            output.append((char) received[i]);
         }
-        return output;
+        return output.toString();
     }
 
     /**
-     * Receives the response from the serial port.
-     * must be used in conjunction with send command
+     * Receives a full frame from the serial port.
+     * must be used in conjunction with sendTrialTimings
      * @param chunkSize size of chunk to receive
-     * @return output string containing response from control box
+     * @return frame received from the control box
      */
     public byte[] receiveChunk(final int chunkSize)
         throws SerialBytesReceivedException {
-        if (chunkSize < 0) {
-            String updateMsg = "Error occurred while expected bytes from "
-                    + "controller box; should have expected more than 0 bytes";
+        byte[] chunk = pollChunk(chunkSize, CHUNK_TIMEOUT);
+        if (null == chunk) {
+            String updateMsg = "Timed out after " + CHUNK_TIMEOUT
+                + "ms waiting for " + chunkSize
+                + " bytes from controller box";
             updateStatus("", updateMsg, "", "");
             throw new SerialBytesReceivedException();
         }
-        // Receive info from Serial
-        // sets up buffer to size of incoming message
-        byte[] inbuffer = new byte[chunkSize];
-        //returns number of bytes received
-        int received = this.serialPort.readBytes(inbuffer, inbuffer.length);
-        //Check no error has occured (error response from jSerialComm)
-        final int serialReadingError = -1;
-        final int serialBuffersizeError = -1;
-        if (received == serialReadingError) {
-            String updateMsg = "Reading Error (-1) occurred while"
-                + " receiving bytes from controller box";
+        return chunk;
+    }
+
+    /**
+     * Waits up to timeoutMs for a full frame from the serial port.
+     * Returns as soon as the listener has assembled the frame, so callers
+     * can wait in short slices and still check for an abort in between
+     * @param chunkSize size of chunk to receive
+     * @param timeoutMs maximum time to wait in ms
+     * @return frame received from the control box or null if timed out
+     */
+    public byte[] pollChunk(final int chunkSize, final long timeoutMs)
+        throws SerialBytesReceivedException {
+        if (chunkSize <= 0) {
+            String updateMsg = "Error occurred while expected bytes from "
+                    + "controller box; should have expected more than 0 bytes";
             updateStatus("", updateMsg, "", "");
             throw new SerialBytesReceivedException();
         }
-        if (received == serialBuffersizeError) {
-            String updateMsg = "Buffersize Error (-2) occurred while"
-                + " receiving bytes from controller box";
-            updateStatus("", updateMsg, "", "");
-            throw new SerialBytesReceivedException();
+        if (this.receiver.getFrameSize() != chunkSize) {
+            this.receiver.expect(chunkSize);
         }
-        return inbuffer;
+        return this.receiver.poll(timeoutMs);
+    }
+
+    /**
+     * Discards any partly received frame so the next one starts cleanly.
+     * Used after giving up on a frame that never completed.
+     * @return true if an incomplete frame was discarded
+     */
+    public boolean dropPartialFrame() {
+        return this.receiver.dropPartial();
     }
 
     /**
      * Closes the serial port connection if open.
      */
     public void close() {
-        if (this.serialConnected && this.serialPort.isOpen()) {
-            this.serialPort.closePort();
+        if (this.serialConnected && this.transport.isOpen()) {
+            this.transport.close();
             this.serialConnected = false;
             return;
         }
@@ -501,26 +591,30 @@ public class Serial extends Thread {
     }
 
     /**
-     * Add data listener to serial port to listen for disconnection.
+     * Add listener to the transport.
+     * Listens for disconnection and passes incoming bytes to this.receiver
      */
     private void addPortListener() {
-        this.serialPort.addDataListener(new SerialPortDataListener() {
+        this.transport.setListener(new SerialTransport.Listener() {
             @Override
-            public int getListeningEvents() {
-                return SerialPort.LISTENING_EVENT_PORT_DISCONNECTED;
+            public void bytesReceived(final byte[] data, final int length) {
+                receiver.append(data, length);
             }
 
             @Override
-            public void serialEvent(final SerialPortEvent serialPortEvent) {
-                if (serialPortEvent.getEventType()
-                    == SerialPort.LISTENING_EVENT_PORT_DISCONNECTED) {
-                    close(); // close port
-                    notifyDisconnect();
-                    connectToPort(NUM_REATTEMPTS);
-                }
+            public void readError(final String message) {
+                updateStatus("", message, "", "");
+            }
+
+            @Override
+            public void disconnected() {
+                close(); // close port
+                notifyDisconnect();
+                connectToPort(NUM_REATTEMPTS);
             }
         });
     }
+
     /**
      * Used in Xmod.java to allow the controller to listen for pcs.
      * @param l listener i.e. Xmod.java
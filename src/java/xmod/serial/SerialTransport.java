@@ -0,0 +1,72 @@
+package xmod.serial;
+
+/** SerialTransport is the byte link between Serial and the control box.
+ * Serial speaks the control box protocol over whichever transport it is
+ * given: the real serial port (JSerialCommTransport) or an in-process
+ * simulator of the box (ControlBoxSimulator).
+ *
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ */
+
+public interface SerialTransport {
+
+    /** Receives bytes and disconnection events from a transport. */
+    interface Listener {
+        /**
+         * Called from the transport's own thread when bytes arrive.
+         * @param data bytes received
+         * @param length number of valid bytes in data
+         */
+        void bytesReceived(byte[] data, int length);
+
+        /**
+         * Called when bytes could not be read.
+         * @param message description of the error
+         */
+        void readError(String message);
+
+        /** Called when the link to the control box is lost. */
+        void disconnected();
+    }
+
+    /**
+     * Name of the transport for status messages e.g. the port name.
+     * @return name
+     */
+    String getName();
+
+    /**
+     * Opens the link and sets its parameters.
+     * @return true if the link is open
+     */
+    boolean open();
+
+    /**
+     * Whether the link is open.
+     * @return true if open
+     */
+    boolean isOpen();
+
+    /** Closes the link. */
+    void close();
+
+    /** Discards any bytes waiting to be sent or read. */
+    void flushIOBuffers();
+
+    /**
+     * Writes bytes to the control box.
+     * @param buffer bytes to write
+     * @param length number of bytes to write
+     * @param offset index of first byte to write
+     * @return number of bytes written or -1 on error
+     */
+    int writeBytes(byte[] buffer, int length, int offset);
+
+    /**
+     * Sets where received bytes and events are passed.
+     * @param listener listener, replacing any previous one
+     */
+    void setListener(Listener listener);
+}
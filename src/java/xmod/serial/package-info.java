@@ -2,6 +2,7 @@
  * This module controls communication with the controller box via serial port.
  *
  * All serial port communications use the jSerialComm library
+ * ControllerPool drives up to 4 control boxes as one, each via its own Serial
  *
  * @since 2.0
  * @author ELS
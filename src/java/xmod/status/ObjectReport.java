@@ -1,6 +1,8 @@
 package xmod.status;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.LinkedHashMap;
 import java.util.Set;
@@ -14,18 +16,42 @@ import java.util.Set;
  * @version 2.1
  * @since 2025-09-16
  * KNOWN BUGS:
+ * NOTES:
+ * Each category keeps at most capacity values, oldest evicted first, so a
+ * long session does not grow the report. Duplicates are found with a hash
+ * set rather than a scan of the list
  */
 public class ObjectReport {
     /**Map to hold info for each ReportCategory. */
     private Map<ReportCategory, ArrayList<String>> report;
     /** Name of category e.g. audio, tms, connection etc. */
     private ReportLabel name;
+    /** Number of times a value has been added or cleared. */
+    private long modCount;
+    /** Values held for each ReportCategory, for finding duplicates. */
+    private Map<ReportCategory, HashSet<String>> held;
+    /** Most values kept for each ReportCategory, 0 for no limit. */
+    private final int capacity;
+    /** Default most values kept for each ReportCategory. */
+    public static final int DEFAULT_CAPACITY = 50;
+
     /**
      * Constructor.
      * @param className name of category e.g. audio, tms, connection etc.
      */
     public ObjectReport(final ReportLabel className) {
+        this(className, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     * @param className name of category e.g. audio, tms, connection etc.
+     * @param aCapacity most values kept for each ReportCategory, oldest
+     * evicted first; 0 for no limit
+     */
+    public ObjectReport(final ReportLabel className, final int aCapacity) {
         this.name = className;
+        this.capacity = Math.max(0, aCapacity);
         final int initialCapacity = 6; //Number of categories + 1/3
         final float loadFactor = (float) 0.75;
         // To prints keys in insertion order not recent access order
@@ -86,6 +112,12 @@ public class ObjectReport {
         this.report.put(ReportCategory.ADVICE, adviceInitialValue);
         this.report.put(ReportCategory.STACKTRACE, stackTraceInitialValue);
 
+        this.held = new EnumMap<ReportCategory, HashSet<String>>(
+                                                    ReportCategory.class);
+        for (ReportCategory category : this.report.keySet()) {
+            this.held.put(category, new HashSet<String>());
+        }
+
         return;
     }
 
@@ -115,23 +147,30 @@ public class ObjectReport {
      * Update single string report map values.
      * @param category ReportCategory enum (Status, Message, Advice, StackTrace)
      * @param newValue single new value string
-     * Adds newValue
+     * Adds newValue, evicting the oldest value if at capacity
+     * @return true if added, false if a duplicate or not valid
      */
-    public void updateValues(final ReportCategory category,
+    public boolean updateValues(final ReportCategory category,
                                 final String newValue) {
         if (null == category || null == newValue) {
-            return;
+            return false;
         }
         if (!this.report.containsKey(category)) { // if cateogry label not found
-            return;
+            return false;
         }
         //Check for duplication
-        if (this.report.get(category).contains(newValue)) {
-            return;
+        if (!this.held.get(category).add(newValue)) {
+            return false;
         }
         // append new value
-        this.report.get(category).add(newValue);
-        return;
+        ArrayList<String> values = this.report.get(category);
+        values.add(newValue);
+        if (this.capacity > 0 && values.size() > this.capacity) {
+            // at most capacity values to shift
+            this.held.get(category).remove(values.remove(0));
+        }
+        this.modCount++;
+        return true;
     }
 
     /**
@@ -145,37 +184,67 @@ public class ObjectReport {
         if (!this.report.containsKey(category)) { // if category label not found
             return;
         }
-        // append new value
+        if (this.report.get(category).isEmpty()) {
+            return;
+        }
         this.report.get(category).clear();
+        this.held.get(category).clear();
+        this.modCount++;
         return;
     }
 
+    /**
+     * Returns number of times a value has been added or cleared.
+     * Unchanged if an update only repeats existing values
+     * @return modCount
+     */
+    public long getModCount() {
+        return this.modCount;
+    }
+
+    /**
+     * Returns most values kept for each ReportCategory.
+     * @return capacity, 0 for no limit
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
     /**
      * Returns string representation of status to display to user.
      * html used to format here
      * @return htmlstring representation of report
      */
     public String toString() {
-        String output = "";
+        StringBuilder output = new StringBuilder();
+        appendTo(output);
+        return output.toString();
+    }
+
+    /**
+     * Appends string representation of status to display to user.
+     * html used to format here
+     * @param output builder to append to
+     */
+    public void appendTo(final StringBuilder output) {
         //No need for Category Name - this is handled in Reporter
         for (Map.Entry<ReportCategory, ArrayList<String>> e
             : this.report.entrySet()) {
-            ReportCategory key = e.getKey(); //get name of key
             ArrayList<String> values = e.getValue(); // get values
             // check if no values are set
             if (null != values && !values.isEmpty()) {
-                output += "<p style="
+                output.append("<p style="
                         + "\"display:inline-block;"
-                        + "margin-left:40px;\">";
+                        + "margin-left:40px;\">");
                 for (String value: values) { //add each on a separate line
-                    if (value != "") {
-                        output = output + value + "<br/><br/>";
+                    if (!value.isEmpty()) {
+                        output.append(value).append("<br/><br/>");
                     }
                 }
-                output = output + "</p>";
+                output.append("</p>");
             }
         }
-        return output;
+        return;
     }
 
     /**
@@ -10,18 +10,37 @@ import java.util.concurrent.ConcurrentHashMap;
  * @version 2.1
  * @since 2025-09-16
  * BUGS:
- *
+ * NOTES:
+ * Updated by whichever thread reports and read by the Event Dispatch
+ * Thread, so updates and printing are synchronized
  *  */
 
 public class Reporter {
     /**Contains ObjectReport for each label. */
     private Map<ReportLabel, ObjectReport> status;
+    /** Most values kept for each category of each label. */
+    private final int historyCapacity;
+    /** System property for most values kept for each category. */
+    public static final String HISTORY_PROPERTY = "xmod.statusHistory";
+    /** Log of every value added, or null if not logging. */
+    private StatusLog log;
 
     /**
      * Constructor.
      * creates the the status hashmap  and initialises its values
      */
     public Reporter() {
+        this(ObjectReport.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     * creates the the status hashmap  and initialises its values
+     * @param capacity most values kept for each category of each label,
+     * oldest evicted first; 0 for no limit
+     */
+    public Reporter(final int capacity) {
+        this.historyCapacity = capacity;
         final int initialCapacity = 8; //Number of categories + 1/3
         final float loadFactor = (float) 0.75;
         // so it prints keys in insertion order not recent access order
@@ -65,28 +84,34 @@ public class Reporter {
     private void initialiseValues() {
         // Initialise initial value arraylists
         ObjectReport statusInitialValue = new ObjectReport(
-                                                ReportLabel.STATUS);
+                                                ReportLabel.STATUS,
+                                                this.historyCapacity);
         statusInitialValue.updateValues(ReportCategory.MESSAGE,
                                         Responses.WELCOME);
 
         ObjectReport tmsInitialValue = new ObjectReport(
-                                            ReportLabel.TMS);
+                                            ReportLabel.TMS,
+                                            this.historyCapacity);
         /*
         tmsInitialValue.updateValues(ReportCategory.MESSAGE,
                                     Responses.NO_FILE_SELECTED);
         */
         ObjectReport audioInitialValue = new ObjectReport(
-                                            ReportLabel.AUDIO);
+                                            ReportLabel.AUDIO,
+                                            this.historyCapacity);
         ObjectReport audioLoopInitialValue = new ObjectReport(
-                                            ReportLabel.AUDIO_LOOP);
+                                            ReportLabel.AUDIO_LOOP,
+                                            this.historyCapacity);
         /*
         audioInitialValue.updateValues(ReportCategory.MESSAGE,
                                         Responses.NO_FILE_SELECTED);
         */
         ObjectReport connectionInitialValue = new ObjectReport(
-                                            ReportLabel.CONNECTION);
+                                            ReportLabel.CONNECTION,
+                                            this.historyCapacity);
         ObjectReport fontInitialValue = new ObjectReport(
-                                            ReportLabel.FONT);
+                                            ReportLabel.FONT,
+                                            this.historyCapacity);
         /*
         ObjectReport monitorInitialValue = new ObjectReport(
                                             ReportLabel.MONITORS);
@@ -108,7 +133,7 @@ public class Reporter {
      * If the ReportCategory STATUS is different, the existing content will be
      * removed; if it is the same, it will just append
      */
-    public void updateValues(final ReportLabel category,
+    public synchronized void updateValues(final ReportLabel category,
                             final ObjectReport newValues) {
         Boolean clearOldValues = false;
         // If ReportCategory.STATUS is not null and has changed,
@@ -138,16 +163,30 @@ public class Reporter {
                     this.status.get(category).clearValues(key);
                 }
                 //If old value equals new value, do nothing
-                this.status.get(category).updateValues(key, value);
+                for (String newValue : value) {
+                    if (this.status.get(category).updateValues(key, newValue)
+                        && null != this.log) {
+                        this.log.append(category, key, newValue);
+                    }
+                }
         }
 
     }
 
+    /**
+     * Sets the log to write every value added to.
+     * @param aLog log, or null to stop logging
+     */
+    public synchronized void setLog(final StatusLog aLog) {
+        this.log = aLog;
+        return;
+    }
+
     /** Clears all the status for the given ReportLabel category.
      * @param category ReportLabel e.g. STATUS, TMS, AUDIO etc.
      */
 
-    public void clearValues(final ReportLabel category) {
+    public synchronized void clearValues(final ReportLabel category) {
         ObjectReport currentValues = this.status.get(category);
         for (Map.Entry<ReportCategory, ArrayList<String>> e
             :currentValues.entrySet()) {
@@ -157,18 +196,28 @@ public class Reporter {
             }
     }
 
+    /**
+     * Returns a number which changes whenever the values for a label change.
+     * Used to skip redrawing sections of the GUI which have not changed
+     * @param key ReportLabel e.g. STATUS, TMS, AUDIO etc.
+     * @return version of the values
+     */
+    public synchronized long getVersion(final ReportLabel key) {
+        ObjectReport values = this.status.get(key);
+        return (null == values) ? 0 : values.getModCount();
+    }
+
     /**
      * Creates a string representation of the status to display to user.
      * To control the visuals, html is used here
      * @return htmlstring representation of the status
      */
-    public String toString() {
-        String output = "";
+    public synchronized String toString() {
+        StringBuilder output = new StringBuilder();
         for (Map.Entry<ReportLabel, ObjectReport> e: this.status.entrySet()) {
-            ReportLabel key = e.getKey(); //get name of key
-             output = output + printValues(key);
+            appendValues(e.getKey(), output);
         }
-        return output;
+        return output.toString();
     }
 
     /**
@@ -178,31 +227,44 @@ public class Reporter {
      * @return htmlstring representation of the status
      */
     public String printValues(final ReportLabel key) {
-            String output = "";
-            ObjectReport values = this.status.get(key);
-            // check if no values are set
-            if (null != values && !values.isEmpty()) {
-                output += "<span style=\"font-weight:bold\">"
-                        + key.getValue()
-                        + "</span>"; //<br/>";
-                output += "<span style=\"display:inline-block;"
-                        + "margin-left:40px;\">";
-                output += values.toString();
-                output = output + "</span>";
-            }
-            return output;
+        StringBuilder output = new StringBuilder();
+        appendValues(key, output);
+        return output.toString();
+    }
+
+    /**
+     * Appends a string of the key in the status to display to user.
+     * To control the visuals, html is used here
+     * @param key status[key]
+     * @param output builder to append to
+     */
+    public synchronized void appendValues(final ReportLabel key,
+                                            final StringBuilder output) {
+        ObjectReport values = this.status.get(key);
+        // check if no values are set
+        if (null != values && !values.isEmpty()) {
+            output.append("<span style=\"font-weight:bold\">")
+                .append(key.getValue())
+                .append("</span>"); //<br/>";
+            output.append("<span style=\"display:inline-block;"
+                    + "margin-left:40px;\">");
+            values.appendTo(output);
+            output.append("</span>");
+        }
+        return;
     }
+
     /**
      * Creates a string representation of the MAIN status to display to user.
      * To control the visuals, html is used here
      * @return htmlstring representation of the status
      */
-    public String toStringMain() {
-        String output = "";
-        output = output + printValues(ReportLabel.STATUS);
-        output = output + printValues(ReportLabel.TMS);
-        output = output + printValues(ReportLabel.AUDIO);
-        return output;
+    public synchronized String toStringMain() {
+        StringBuilder output = new StringBuilder();
+        appendValues(ReportLabel.STATUS, output);
+        appendValues(ReportLabel.TMS, output);
+        appendValues(ReportLabel.AUDIO, output);
+        return output.toString();
     }
 
 
@@ -211,8 +273,8 @@ public class Reporter {
      * To control the visuals, html is used here
      * @return htmlstring representation of the status
      */
-    public String toStringTool() {
-        String output = "";
+    public synchronized String toStringTool() {
+        StringBuilder output = new StringBuilder();
         for (Map.Entry<ReportLabel, ObjectReport> e: this.status.entrySet()) {
             ReportLabel key = e.getKey(); //get name of key
             if ((key == ReportLabel.STATUS)
@@ -220,8 +282,8 @@ public class Reporter {
                 || (key == ReportLabel.AUDIO)) {
                     continue;
                 }
-           output = output + printValues(key);
+            appendValues(key, output);
         }
-        return output;
+        return output.toString();
     }
 }
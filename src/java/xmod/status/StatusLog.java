@@ -0,0 +1,227 @@
+package xmod.status;
+
+import xmod.utils.Utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/** StatusLog keeps a rolling log on disk of every status update.
+ * Reporter only holds the most recent values for each category, so the
+ * log is the full record of a session
+ * Once the log reaches maxBytes it is renamed name.1.log, the previous
+ * name.1.log becomes name.2.log and so on, keeping at most maxFiles
+ *
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * One line per value: date, time, label, category, value
+ * Line breaks and tabs within a value (e.g. stack traces) are written as
+ * \n and \t
+ * Lines are written on the STATUS LOG thread, in the order they were
+ * appended, so a slow disk never holds up Reporter or the GUI
+ */
+
+public final class StatusLog {
+    /** System property for the directory to keep the log in. */
+    public static final String DIRECTORY_PROPERTY = "xmod.statusLog";
+    /** Default size in bytes at which to start a new log file. */
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    /** Default number of log files to keep. */
+    public static final int DEFAULT_MAX_FILES = 5;
+    /** Log file extension. */
+    private static final String EXTENSION = ".log";
+    /** Separator between fields of a line. */
+    private static final String TAB = "\t";
+    /** Time in ms close waits for the lines still queued to be written. */
+    private static final int CLOSE_TIMEOUT = 2000;
+
+    /** Directory of the log. */
+    private final Path directory;
+    /** Name of the log without extension. */
+    private final String name;
+    /** Size in bytes at which to start a new log file. */
+    private final long maxBytes;
+    /** Number of log files to keep. */
+    private final int maxFiles;
+    /** Writes the lines in the background. */
+    private final ExecutorService thread;
+    /** Current log file; only used on the log thread once open. */
+    private Writer writer;
+    /** Bytes written to the current log file. */
+    private long written;
+
+    /**
+     * Constructor. Opens the log, appending to any existing log.
+     * @param aDirectory directory to keep the log in
+     * @param aName name of the log without extension e.g. xmod_status
+     * @param aMaxBytes size in bytes at which to start a new log file
+     * @param aMaxFiles number of log files to keep, at least 1
+     * @throws IOException if the log cannot be opened
+     */
+    public StatusLog(final Path aDirectory, final String aName,
+                        final long aMaxBytes, final int aMaxFiles)
+                        throws IOException {
+        this.directory = aDirectory;
+        this.name = aName;
+        this.maxBytes = aMaxBytes;
+        this.maxFiles = Math.max(1, aMaxFiles);
+        Files.createDirectories(this.directory);
+        open();
+        this.thread = Executors.newSingleThreadExecutor((r) -> {
+            Thread t = new Thread(r, "STATUS LOG");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Path of a log file.
+     * @param index 0 for current log, 1 for the one before etc.
+     * @return path
+     */
+    Path getFile(final int index) {
+        String suffix = (index == 0) ? "" : "." + index;
+        return this.directory.resolve(this.name + suffix + EXTENSION);
+    }
+
+    /**
+     * Opens the current log file for appending.
+     * @throws IOException if the log cannot be opened
+     */
+    private void open() throws IOException {
+        Path file = getFile(0);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                        StandardOpenOption.CREATE,
+                                        StandardOpenOption.APPEND);
+        this.written = Files.size(file);
+        return;
+    }
+
+    /**
+     * Appends a status value to the log.
+     * Returns at once; the line is written on the log thread. Failures to
+     * write are ignored: the log must never stop the GUI
+     * @param label ReportLabel of the value
+     * @param category ReportCategory of the value
+     * @param value value added to the status
+     */
+    public void append(final ReportLabel label,
+                        final ReportCategory category,
+                        final String value) {
+        // formatted now so the line has the time of the update
+        String line = formatLine(label, category, value)
+                    + System.lineSeparator();
+        try {
+            this.thread.execute(() -> write(line));
+        } catch (RejectedExecutionException e) {
+            // log closed
+        }
+        return;
+    }
+
+    /**
+     * Writes a line to the log, starting a new file first if it would not
+     * fit in this one.
+     * Runs on the log thread
+     * @param line line to write, with its line ending
+     */
+    private void write(final String line) {
+        if (null == this.writer) {
+            return;
+        }
+        int lineBytes = line.getBytes(StandardCharsets.UTF_8).length;
+        try {
+            if (this.written > 0
+                && this.written + lineBytes > this.maxBytes) {
+                roll();
+            }
+            this.writer.write(line);
+            this.writer.flush();
+            this.written += lineBytes;
+        } catch (IOException e) {
+            closeWriter();
+        }
+        return;
+    }
+
+    /**
+     * Formats a status value as one line, without the line ending.
+     * e.g. 17.10.26 TAB 10.11.12 TAB STATUS TAB MESSAGE TAB value
+     * @param label ReportLabel of the value
+     * @param category ReportCategory of the value
+     * @param value value added to the status
+     * @return line
+     */
+    public static String formatLine(final ReportLabel label,
+                                    final ReportCategory category,
+                                    final String value) {
+        return Utils.getDate() + TAB + Utils.getTime() + TAB
+                + label + TAB + category + TAB
+                + value.replace("\r", "").replace("\n", "\\n")
+                        .replace(TAB, "\\t");
+    }
+
+    /**
+     * Starts a new log file, keeping the previous maxFiles - 1.
+     * @throws IOException if the files cannot be renamed
+     */
+    private void roll() throws IOException {
+        this.writer.close();
+        Files.deleteIfExists(getFile(this.maxFiles - 1));
+        for (int i = this.maxFiles - 2; i >= 0; i--) {
+            if (Files.exists(getFile(i))) {
+                Files.move(getFile(i), getFile(i + 1),
+                            StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        open();
+        return;
+    }
+
+    /**
+     * Closes the log; later values are not written.
+     * Waits up to CLOSE_TIMEOUT ms for the lines already appended
+     */
+    public void close() {
+        try {
+            this.thread.execute(this::closeWriter);
+        } catch (RejectedExecutionException e) {
+            return; // already closed
+        }
+        this.thread.shutdown();
+        try {
+            this.thread.awaitTermination(CLOSE_TIMEOUT,
+                                        TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return;
+    }
+
+    /**
+     * Closes the current log file.
+     * Runs on the log thread
+     */
+    private void closeWriter() {
+        if (null == this.writer) {
+            return;
+        }
+        try {
+            this.writer.close();
+        } catch (IOException e) {
+            // nothing more can be logged
+        }
+        this.writer = null;
+        return;
+    }
+}
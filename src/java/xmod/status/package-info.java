@@ -25,6 +25,8 @@
  * Reporter
  * <br/>
  * Responses are string constants for different messages to the user
+ * <br/>
+ * StatusLog is an optional rolling log on disk of every update to Reporter
  * </p>
  *
  * @since 2.0
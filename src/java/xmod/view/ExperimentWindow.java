@@ -6,6 +6,7 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 
 import java.awt.BorderLayout;
 
@@ -13,21 +14,30 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Font;
 import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
+import java.util.SortedMap;
 
 /** ExperimentWindow is the GUI shown during the experiment.
  *
  * @author ELS
- * @version 2.0
+ * @version 2.1
  * @since 2025-06-09
  * NOTES:
  * Many of the integers used in setting borders etc are magic numbers
  * so adjust these cautiously
+ * While the experiment runs, items are drawn by a StimulusRenderer on a
+ * canvas in place of the label, so each appears in one step at a known
+ * time. FontWindow keeps the label for its preview
+ * The items are shaped when the experiment loads (see warmText) and the
+ * layouts kept, so no text is shaped during the trials
  */
 
 public class ExperimentWindow implements KeyListener {
@@ -43,6 +53,15 @@ public class ExperimentWindow implements KeyListener {
      /** Graphics Device for window sizing. */
     private GraphicsDevice device;
 
+    /** Shaped layouts of the items, shared with stimulus. */
+    private final TextLayoutCache layouts = new TextLayoutCache();
+    /** Items of the loaded experiment, or null. */
+    private String[] warmedItems;
+    /** Draws the items during the experiment; null until first shown. */
+    private StimulusRenderer stimulus;
+    /** Whether items are being drawn by stimulus rather than the label. */
+    private volatile boolean drawing;
+
     /** Central text area. */
     private JTextArea textArea;
     /** Font name. Protected so FontWindow can access. */
@@ -102,7 +121,7 @@ public class ExperimentWindow implements KeyListener {
         // Add text to centre
         this.text = new JLabel("", SwingConstants.CENTER);
         this.text.setText(ScreenWords.getWords()[0]);
-        this.text.setFont(new Font(this.currentFontName,
+        this.text.setFont(TextLayoutCache.getFont(this.currentFontName,
         this.defaultStyle, this.currentSize));
         this.text.setForeground(Color.WHITE);
         this.f.setLayout(new BorderLayout());
@@ -125,21 +144,75 @@ public class ExperimentWindow implements KeyListener {
                 && fontsize <= this.MAX_FONT_SIZE) {
             this.currentFontName = fontname;
             this.currentSize = fontsize;
-            this.text.setFont(new Font(this.currentFontName,
+            this.text.setFont(TextLayoutCache.getFont(this.currentFontName,
                 this.defaultStyle, this.currentSize));
+            if (null != this.stimulus) {
+                this.stimulus.setFont(this.text.getFont());
+            }
+            if (null != this.warmedItems) {
+                this.layouts.warm(this.text.getFont(), this.warmedItems);
+            }
             this.f.repaint();
         }
         return;
     }
 
     /** Updates the text.
+     * While the window is showing, waits until the text is on screen.
+     * If the canvas cannot show it, the label is put back for the rest of
+     * the run and the time returned is when the label was given the text
      * @param newText new text to show
+     * @return System.nanoTime when the text was put on screen, or -1 if
+     * the text was empty and nothing changed
      */
-    public void updateText(final String newText) {
+    public long updateText(final String newText) {
         if (newText == "") {
-            return;
+            return -1L;
+        }
+        if (this.drawing) {
+            long flipped = this.stimulus.show(newText);
+            if (flipped >= 0) {
+                return flipped;
+            }
+            // canvas lost or renderer stuck; show the rest on the label
+            this.drawing = false;
+            showLabel();
         }
         this.text.setText(newText);
+        return System.nanoTime();
+    }
+
+    /** Shapes the items of an experiment in the current font.
+     * Returns straight away; shaping happens in the background so the
+     * trials do not have to. The items are shaped again if the font changes
+     * @param items trial items of the loaded experiment
+     */
+    public void warmText(final String[] items) {
+        this.warmedItems = items.clone();
+        this.layouts.warm(this.text.getFont(), this.warmedItems);
+        return;
+    }
+
+    /** Checks every item can be shown on this window's screen.
+     * Uses the current font and size; see StimulusValidator
+     * @param items trial items of the loaded experiment
+     * @return description of each problem by trial index, in trial order;
+     * empty if every item can be shown
+     */
+    public SortedMap<Integer, String> checkText(final String[] items) {
+        Rectangle screen = this.device.getDefaultConfiguration().getBounds();
+        return StimulusValidator.check(this.layouts, this.text.getFont(),
+                                        screen.width, screen.height, items);
+    }
+
+    /** Draws the next text off screen so updateText can show it at once.
+     * Returns straight away
+     * @param nextText text which will be shown next
+     */
+    public void prepareText(final String nextText) {
+        if (this.drawing && nextText != "") {
+            this.stimulus.prepare(nextText);
+        }
         return;
     }
 
@@ -151,16 +224,68 @@ public class ExperimentWindow implements KeyListener {
         //Make full-screen
         //this.f.setLocationRelativeTo(null);
         this.f.setResizable(false);
+        if (null == this.stimulus) {
+            this.stimulus = new StimulusRenderer(this.layouts);
+            this.stimulus.setFont(this.text.getFont());
+        }
+        setCentre(this.stimulus.getCanvas());
         this.device.setFullScreenWindow(f);
         this.f.setVisible(true);
+        this.drawing = this.stimulus.start();
+        if (!this.drawing) {
+            // no accelerated buffers; fall back to the label
+            setCentre(this.text);
+        }
     }
 
     /**
      * Makes the experiment screen invisible.
      */
     public void hide() {
+        this.drawing = false;
+        if (null != this.stimulus) {
+            this.stimulus.stop();
+        }
         this.device.setFullScreenWindow(null);
         this.f.setVisible(false);
+        if (null != this.stimulus) {
+            setCentre(this.text);
+        }
+    }
+
+    /**
+     * Puts the label back in the centre of the window from any thread.
+     * The swap is done on the Event Dispatch Thread; waits until done
+     */
+    private void showLabel() {
+        if (SwingUtilities.isEventDispatchThread()) {
+            setCentre(this.text);
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(() -> setCentre(this.text));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            // label not put back; the text is still set on it
+        }
+        return;
+    }
+
+    /**
+     * Puts a component in the centre of the window in place of the other.
+     * @param centre the label or the stimulus canvas
+     */
+    private void setCentre(final Component centre) {
+        if (centre.getParent() == this.f.getContentPane()) {
+            return;
+        }
+        Component other = (centre == this.text) ? this.stimulus.getCanvas()
+                                                : this.text;
+        this.f.remove(other);
+        this.f.add(centre, BorderLayout.CENTER);
+        this.f.validate();
+        return;
     }
 
     /**
@@ -16,7 +16,6 @@ import java.awt.event.WindowEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.awt.Color;
-import java.awt.Font;
 
 
 /** FontWindow is where the font size and family can be updated by the user.
@@ -118,7 +117,8 @@ public class FontWindow extends ExperimentWindow {
     public void undoChanges() {
         this.currentFontName = this.originalFontName;
         this.currentSize = this.originalSize;
-        this.text.setFont(new Font(this.currentFontName, this.defaultStyle,
+        this.text.setFont(TextLayoutCache.getFont(this.currentFontName,
+                                this.defaultStyle,
                                 this.currentSize));
         this.fontChooser.setSelectedItem(this.currentFontName);
         this.sizeChooser.setSelectedItem(this.currentSize);
@@ -141,7 +141,7 @@ public class FontWindow extends ExperimentWindow {
         this.fontChooser.addActionListener((e) -> {
             String newFontName = (String) this.fontChooser.getSelectedItem();
             this.currentFontName = newFontName;
-            this.text.setFont(new Font(this.currentFontName,
+            this.text.setFont(TextLayoutCache.getFont(this.currentFontName,
                                 this.defaultStyle, this.currentSize));
             this.f.repaint();
         });
@@ -166,7 +166,7 @@ public class FontWindow extends ExperimentWindow {
         this.sizeChooser.addActionListener((e) -> {
             int selectedSize = (int) this.sizeChooser.getSelectedItem();
             this.currentSize = selectedSize;
-            this.text.setFont(new Font(this.currentFontName,
+            this.text.setFont(TextLayoutCache.getFont(this.currentFontName,
                              this.defaultStyle, this.currentSize));
             this.f.repaint();
         });
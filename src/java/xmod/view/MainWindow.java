@@ -44,7 +44,7 @@ import java.awt.Font;
  * @since 2025-09-15
  */
 
-public class MainWindow {
+public class MainWindow implements StatusView {
     // Components
     /** Main frame. */
     private JFrame f;
@@ -430,9 +430,7 @@ private void createConnectionPanel() {
         this.f.repaint();
     };
 
-    /** Updates the text.
-     * @param newText new text to show
-     */
+    @Override
     public void updateMainText(final String newText) {
         if (newText == "") {
             return;
@@ -442,9 +440,7 @@ private void createConnectionPanel() {
         return;
     }
 
-    /** Updates the text.
-     * @param newText new text to show
-     */
+    @Override
     public void updateToolText(final String newText) {
         if (newText == "") {
             return;
@@ -454,9 +450,7 @@ private void createConnectionPanel() {
         return;
     }
 
-    /** Updates the text.
-     * @param newText new text to show
-     */
+    @Override
     public void updateConnectionText(final String newText) {
         if (newText == "") {
             return;
@@ -0,0 +1,162 @@
+package xmod.view;
+
+import xmod.status.ReportLabel;
+import xmod.status.Reporter;
+
+import java.awt.EventQueue;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * StatusRenderer shows the status held by Reporter in MainWindow.
+ * Requests to render can come from any thread at any rate; they are
+ * coalesced so MainWindow is updated at most once every RENDER_PERIOD ms,
+ * and only the panels whose ReportLabels have changed are redrawn
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Rendering itself happens on the Event Dispatch Thread
+ * MainWindow is reached through StatusView, so StatusRendererTest can
+ * check the coalescing without a screen
+ */
+
+public final class StatusRenderer {
+    /** Shortest time in ms between renders. */
+    static final int RENDER_PERIOD = 50;
+    /** Labels shown in the main panel. */
+    private static final ReportLabel[] MAIN_LABELS = {ReportLabel.STATUS,
+                                        ReportLabel.TMS, ReportLabel.AUDIO};
+    /** Labels shown in the connection panel. */
+    private static final ReportLabel[] CONNECTION_LABELS = {
+                                        ReportLabel.CONNECTION};
+    /** Labels shown in the tool panel. */
+    private static final ReportLabel[] TOOL_LABELS = {ReportLabel.FONT,
+                                        ReportLabel.AUDIO_LOOP};
+    /** Version of each label when last rendered, -1 if never. */
+    private final long[] renderedVersions;
+    /** Status to show. */
+    private final Reporter reporter;
+    /** Where to show it. */
+    private final StatusView view;
+    /** Whether a render is already on its way. */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    /** Delays renders that come too soon after the last. */
+    private final ScheduledExecutorService delayer;
+    /** System.nanoTime of the last render. */
+    private volatile long lastRender;
+    /** Number of renders; for testing. */
+    private volatile int renders;
+
+    /**
+     * Constructor.
+     * @param aReporter status to show
+     * @param aMainWindow window to show it in
+     */
+    public StatusRenderer(final Reporter aReporter,
+                            final MainWindow aMainWindow) {
+        this(aReporter, (StatusView) aMainWindow);
+    }
+
+    /**
+     * Constructor.
+     * @param aReporter status to show
+     * @param aView where to show it
+     */
+    StatusRenderer(final Reporter aReporter, final StatusView aView) {
+        this.reporter = aReporter;
+        this.view = aView;
+        this.renderedVersions = new long[ReportLabel.values().length];
+        Arrays.fill(this.renderedVersions, -1);
+        this.lastRender = System.nanoTime()
+                        - TimeUnit.MILLISECONDS.toNanos(RENDER_PERIOD);
+        this.delayer = Executors.newSingleThreadScheduledExecutor((r) -> {
+            Thread t = new Thread(r, "STATUS RENDERER");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Asks for the status to be shown.
+     * Safe to call from any thread; returns straight away
+     */
+    public void requestRender() {
+        // a render already on its way will show this update too
+        if (!this.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long wait = TimeUnit.MILLISECONDS.toNanos(RENDER_PERIOD)
+                    - (System.nanoTime() - this.lastRender);
+        if (wait <= 0) {
+            EventQueue.invokeLater(this::render);
+        } else {
+            this.delayer.schedule(() -> EventQueue.invokeLater(this::render),
+                                    wait, TimeUnit.NANOSECONDS);
+        }
+        return;
+    }
+
+    /**
+     * Redraws the panels which have changed since the last render.
+     * Runs on the Event Dispatch Thread
+     */
+    void render() {
+        // clear first so updates from here on ask for another render
+        this.scheduled.set(false);
+        this.lastRender = System.nanoTime();
+        this.renders++;
+        if (changed(MAIN_LABELS)) {
+            this.view.updateMainText(createText(MAIN_LABELS));
+        }
+        if (changed(CONNECTION_LABELS)) {
+            this.view.updateConnectionText(
+                                        createText(CONNECTION_LABELS));
+        }
+        if (changed(TOOL_LABELS)) {
+            this.view.updateToolText(createText(TOOL_LABELS));
+        }
+        return;
+    }
+
+    /**
+     * Whether any of the labels have changed since last rendered.
+     * Records the current versions as rendered
+     * @param labels labels of a panel
+     * @return true if the panel should be redrawn
+     */
+    private boolean changed(final ReportLabel[] labels) {
+        boolean changed = false;
+        for (ReportLabel label : labels) {
+            long version = this.reporter.getVersion(label);
+            if (version != this.renderedVersions[label.ordinal()]) {
+                this.renderedVersions[label.ordinal()] = version;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Creates the html for a panel in one pass.
+     * @param labels labels of a panel
+     * @return html text
+     */
+    private String createText(final ReportLabel[] labels) {
+        StringBuilder text = new StringBuilder();
+        for (ReportLabel label : labels) {
+            this.reporter.appendValues(label, text);
+        }
+        return text.toString();
+    }
+
+    /** Getter for number of renders.
+     * @return this.renders
+     */
+    int getRenders() {
+        return this.renders;
+    }
+}
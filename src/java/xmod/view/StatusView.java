@@ -0,0 +1,27 @@
+package xmod.view;
+
+/** StatusView is where StatusRenderer shows the status.
+ * MainWindow in the application; a plain recorder in tests, so the
+ * rendering can be checked without a screen.
+ *
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ */
+
+interface StatusView {
+    /** Updates the text of the main panel.
+     * @param newText new text to show
+     */
+    void updateMainText(String newText);
+
+    /** Updates the text of the connection panel.
+     * @param newText new text to show
+     */
+    void updateConnectionText(String newText);
+
+    /** Updates the text of the tool panel.
+     * @param newText new text to show
+     */
+    void updateToolText(String newText);
+}
@@ -0,0 +1,279 @@
+package xmod.view;
+
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Toolkit;
+import java.awt.font.TextLayout;
+import java.awt.image.BufferStrategy;
+import java.awt.image.VolatileImage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * StimulusRenderer draws the trial items on the experiment window.
+ * Each item is drawn off screen in advance, while the box waits for
+ * reactions, then copied to the screen in one step when it is due, so the
+ * moment it appears is known rather than left to Swing's repaint
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * All drawing happens on the STIMULUS RENDERER thread, in the order asked
+ * for, so the canvas is never drawn on from two threads at once
+ * The canvas ignores repaints; it only changes when an item is shown
+ * The off screen image can be lost (e.g. the screen mode changes); it is
+ * checked before each copy and drawn again if needed
+ * Items are drawn from their shaped layouts in a TextLayoutCache, so text
+ * shaped when the experiment was loaded is not shaped again
+ */
+
+final class StimulusRenderer {
+    /** Number of buffers: one on screen, one being drawn. */
+    private static final int BUFFERS = 2;
+    /** Time in ms to wait for the canvas to be set up or taken down. */
+    private static final int SETUP_TIMEOUT = 2000;
+    /** Time in ms to wait for an item to reach the screen. */
+    private static final int SHOW_TIMEOUT = 1000;
+
+    /** Canvas the items are drawn on. */
+    private final Canvas canvas;
+    /** Shaped layouts of the items. */
+    private final TextLayoutCache layouts;
+    /** Runs all the drawing. */
+    private final ExecutorService thread;
+    /** Font to draw the items in. */
+    private volatile Font font;
+    /** Buffers copied to the screen; null when not showing. */
+    private BufferStrategy strategy;
+    /** Item drawn off screen and ready to show, or null. */
+    private VolatileImage prepared;
+    /** Text of the prepared item. */
+    private String preparedText;
+    /** Font of the prepared item. */
+    private Font preparedFont;
+
+    /**
+     * Constructor.
+     * @param aLayouts where to get the shaped layouts of the items
+     */
+    StimulusRenderer(final TextLayoutCache aLayouts) {
+        this.layouts = aLayouts;
+        this.canvas = new Canvas();
+        this.canvas.setBackground(Color.BLACK);
+        this.canvas.setIgnoreRepaint(true);
+        // keys (e.g. Esc to abort) must still reach the window's listener
+        this.canvas.setFocusable(false);
+        this.thread = Executors.newSingleThreadExecutor((r) -> {
+            Thread t = new Thread(r, "STIMULUS RENDERER");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Getter for the canvas to add to the window.
+     * @return this.canvas
+     */
+    Canvas getCanvas() {
+        return this.canvas;
+    }
+
+    /** Sets the font for items drawn from now on.
+     * @param aFont font to draw in
+     */
+    void setFont(final Font aFont) {
+        this.font = aFont;
+        return;
+    }
+
+    /**
+     * Sets up the buffers once the window is on screen and clears it.
+     * Waits until done
+     * @return true if items can be shown on the canvas
+     */
+    boolean start() {
+        await(this.thread.submit(() -> {
+            this.canvas.createBufferStrategy(BUFFERS);
+            this.strategy = this.canvas.getBufferStrategy();
+            flip(null);
+        }));
+        return await(this.thread.submit(() -> null != this.strategy));
+    }
+
+    /**
+     * Releases the buffers before the window is hidden.
+     * Waits until done
+     */
+    void stop() {
+        await(this.thread.submit(() -> {
+            if (null != this.strategy) {
+                this.strategy.dispose();
+                this.strategy = null;
+            }
+            if (null != this.prepared) {
+                this.prepared.flush();
+                this.prepared = null;
+            }
+            this.preparedText = null;
+        }));
+        return;
+    }
+
+    /**
+     * Draws an item off screen ready to be shown.
+     * Returns at once; the drawing happens on the renderer thread
+     * @param text item to draw
+     */
+    void prepare(final String text) {
+        this.thread.execute(() -> {
+            if (null != this.strategy) {
+                draw(text);
+            }
+        });
+        return;
+    }
+
+    /**
+     * Shows an item, drawing it first if it was not prepared.
+     * Waits until it is on screen
+     * @param text item to show
+     * @return System.nanoTime just after the item was put on screen, or
+     * -1 if it could not be shown within SHOW_TIMEOUT
+     */
+    long show(final String text) {
+        Future<Long> shown = this.thread.submit(() -> {
+            if (null == this.strategy) {
+                return -1L;
+            }
+            return flip(text);
+        });
+        try {
+            return shown.get(SHOW_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // nothing shown
+        } catch (TimeoutException e) {
+            // renderer stuck; do not let it flip this item late
+            shown.cancel(false);
+        }
+        return -1L;
+    }
+
+    /**
+     * Copies an item to the screen.
+     * Runs on the renderer thread
+     * @param text item to show, or null to clear the screen
+     * @return System.nanoTime just after the copy reached the screen
+     */
+    private long flip(final String text) {
+        do {
+            do {
+                Graphics2D g = (Graphics2D) this.strategy.getDrawGraphics();
+                try {
+                    if (null == text) {
+                        g.setColor(Color.BLACK);
+                        g.fillRect(0, 0, this.canvas.getWidth(),
+                                    this.canvas.getHeight());
+                    } else {
+                        g.drawImage(image(text), 0, 0, null);
+                    }
+                } finally {
+                    g.dispose();
+                }
+            } while (this.strategy.contentsRestored());
+            this.strategy.show();
+            Toolkit.getDefaultToolkit().sync();
+        } while (this.strategy.contentsLost());
+        return System.nanoTime();
+    }
+
+    /**
+     * Gets the off screen image of an item, drawing it if need be.
+     * Runs on the renderer thread
+     * @param text item
+     * @return image of the item ready to copy
+     */
+    private VolatileImage image(final String text) {
+        GraphicsConfiguration gc = this.canvas.getGraphicsConfiguration();
+        boolean current = null != this.prepared
+                            && text.equals(this.preparedText)
+                            && this.font == this.preparedFont;
+        if (!current || this.prepared.validate(gc)
+                                        != VolatileImage.IMAGE_OK) {
+            draw(text);
+        }
+        return this.prepared;
+    }
+
+    /**
+     * Draws an item centred on a black background off screen.
+     * Runs on the renderer thread
+     * @param text item to draw
+     */
+    private void draw(final String text) {
+        GraphicsConfiguration gc = this.canvas.getGraphicsConfiguration();
+        int width = Math.max(1, this.canvas.getWidth());
+        int height = Math.max(1, this.canvas.getHeight());
+        if (null == this.prepared
+            || this.prepared.getWidth() != width
+            || this.prepared.getHeight() != height
+            || this.prepared.validate(gc)
+                                == VolatileImage.IMAGE_INCOMPATIBLE) {
+            if (null != this.prepared) {
+                this.prepared.flush();
+            }
+            this.prepared = gc.createCompatibleVolatileImage(width, height);
+        }
+        Font drawFont = this.font;
+        TextLayout layout = this.layouts.get(drawFont, text);
+        do {
+            this.prepared.validate(gc);
+            Graphics2D g = this.prepared.createGraphics();
+            try {
+                g.setColor(Color.BLACK);
+                g.fillRect(0, 0, width, height);
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g.setColor(Color.WHITE);
+                if (null != layout) {
+                    float x = (width - layout.getAdvance()) / 2;
+                    float y = (height - layout.getAscent()
+                                - layout.getDescent()) / 2
+                                + layout.getAscent();
+                    layout.draw(g, x, y);
+                }
+            } finally {
+                g.dispose();
+            }
+        } while (this.prepared.contentsLost());
+        this.preparedText = text;
+        this.preparedFont = drawFont;
+        return;
+    }
+
+    /**
+     * Waits for a set up task on the renderer thread.
+     * @param task task to wait for
+     * @return true if the task finished without error and did not return
+     * false
+     */
+    private boolean await(final Future<?> task) {
+        try {
+            return !Boolean.FALSE.equals(
+                        task.get(SETUP_TIMEOUT, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // canvas not ready
+        }
+        return false;
+    }
+}
@@ -0,0 +1,157 @@
+package xmod.view;
+
+import java.awt.Font;
+import java.awt.font.TextLayout;
+import java.awt.geom.Rectangle2D;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * StimulusValidator checks every trial item can be shown before a run.
+ * An item fails if the font has no glyph for one of its characters, or if
+ * it is wider or taller than the screen at the chosen size
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * The items are split between the threads of the common fork-join pool,
+ * so a list of 10000 items is checked in a few seconds at most
+ * Sizes are in the same units the items are drawn in, i.e. the screen
+ * bounds from its GraphicsConfiguration
+ */
+
+final class StimulusValidator {
+    private StimulusValidator() { }; // Private Constructor
+
+    /** Most items checked by one task before it is split. */
+    static final int SPLIT_SIZE = 64;
+
+    /** Checks a range of items, splitting it if large. */
+    private static final class CheckTask extends RecursiveAction {
+        /** Serial version. */
+        private static final long serialVersionUID = 1L;
+        /** Shaped layouts of the items. */
+        private final transient TextLayoutCache layouts;
+        /** Font the items will be drawn in. */
+        private final Font font;
+        /** Screen width. */
+        private final int width;
+        /** Screen height. */
+        private final int height;
+        /** All the items. */
+        private final String[] items;
+        /** First item to check. */
+        private final int from;
+        /** One past the last item to check. */
+        private final int to;
+        /** Problems found, by trial index. */
+        private final SortedMap<Integer, String> problems;
+
+        /**
+         * Constructor.
+         * @param aLayouts where to get the shaped layouts of the items
+         * @param aFont font the items will be drawn in
+         * @param aWidth screen width
+         * @param aHeight screen height
+         * @param aItems all the items
+         * @param aFrom first item to check
+         * @param aTo one past the last item to check
+         * @param aProblems where to put problems found
+         */
+        CheckTask(final TextLayoutCache aLayouts, final Font aFont,
+                    final int aWidth, final int aHeight,
+                    final String[] aItems, final int aFrom, final int aTo,
+                    final SortedMap<Integer, String> aProblems) {
+            this.layouts = aLayouts;
+            this.font = aFont;
+            this.width = aWidth;
+            this.height = aHeight;
+            this.items = aItems;
+            this.from = aFrom;
+            this.to = aTo;
+            this.problems = aProblems;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.to - this.from > SPLIT_SIZE) {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new CheckTask(this.layouts, this.font, this.width,
+                                this.height, this.items, this.from, middle,
+                                this.problems),
+                          new CheckTask(this.layouts, this.font, this.width,
+                                this.height, this.items, middle, this.to,
+                                this.problems));
+                return;
+            }
+            for (int i = this.from; i < this.to; i++) {
+                String problem = checkItem(this.layouts, this.font,
+                                    this.width, this.height, this.items[i]);
+                if (null != problem) {
+                    this.problems.put(i, problem);
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Checks every item can be shown.
+     * @param layouts where to get the shaped layouts, e.g. those warmed
+     * when the experiment loaded, so items are not shaped twice
+     * @param font font the items will be drawn in
+     * @param width screen width
+     * @param height screen height
+     * @param items items in trial order
+     * @return description of each problem by trial index, in trial order;
+     * empty if every item can be shown
+     */
+    static SortedMap<Integer, String> check(final TextLayoutCache layouts,
+                                            final Font font, final int width,
+                                            final int height,
+                                            final String[] items) {
+        SortedMap<Integer, String> problems =
+                            new ConcurrentSkipListMap<Integer, String>();
+        ForkJoinPool.commonPool().invoke(new CheckTask(layouts, font, width,
+                                height, items, 0, items.length, problems));
+        return problems;
+    }
+
+    /**
+     * Checks one item can be shown.
+     * @param layouts where to get the shaped layout of the item
+     * @param font font the item will be drawn in
+     * @param width screen width
+     * @param height screen height
+     * @param item item; empty items show nothing and always pass
+     * @return description of the problem or null if none
+     */
+    static String checkItem(final TextLayoutCache layouts, final Font font,
+                            final int width, final int height,
+                            final String item) {
+        if (null == item || item.isEmpty()) {
+            return null;
+        }
+        int missing = font.canDisplayUpTo(item);
+        if (missing != -1) {
+            return String.format("%s has no character U+%04X",
+                                font.getFamily(), item.codePointAt(missing));
+        }
+        TextLayout layout = layouts.get(font, item);
+        Rectangle2D bounds = layout.getBounds();
+        double itemWidth = Math.max(layout.getAdvance(), bounds.getWidth());
+        double itemHeight = Math.max(layout.getAscent()
+                                    + layout.getDescent(), bounds.getHeight());
+        if (itemWidth > width) {
+            return "too wide: " + Math.round(Math.ceil(itemWidth))
+                    + " pixels on a screen " + width + " wide";
+        }
+        if (itemHeight > height) {
+            return "too tall: " + Math.round(Math.ceil(itemHeight))
+                    + " pixels on a screen " + height + " high";
+        }
+        return null;
+    }
+}
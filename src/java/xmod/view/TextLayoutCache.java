@@ -0,0 +1,183 @@
+package xmod.view;
+
+import java.awt.Font;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * TextLayoutCache keeps the shaped layout of recently drawn items.
+ * Shaping text (choosing glyphs, joining Arabic or Bengali letters,
+ * ordering right-to-left text) is slow at large sizes, so each item is
+ * shaped once per font and size, ideally before the experiment starts
+ * @author ELS
+ * @version 2.1
+ * @since 2026-10-17
+ * NOTES:
+ * Bounded: once full, the least recently used layout is dropped. Set the
+ * number kept with -Dxmod.layoutCache=n (default 4096)
+ * Layouts are shaped for antialiased text with an identity transform, as
+ * StimulusRenderer draws them
+ */
+
+final class TextLayoutCache {
+    /** System property for the number of layouts kept. */
+    static final String CAPACITY_PROPERTY = "xmod.layoutCache";
+    /** Default number of layouts kept. */
+    static final int DEFAULT_CAPACITY = 4096;
+    /** How the layouts are drawn. */
+    static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(
+                    null, RenderingHints.VALUE_TEXT_ANTIALIAS_ON,
+                    RenderingHints.VALUE_FRACTIONALMETRICS_DEFAULT);
+    /** Fonts created so far, by name, style and size. */
+    private static final Map<String, Font> FONTS =
+                                        new HashMap<String, Font>();
+
+    /** Most layouts kept. */
+    private final int capacity;
+    /** Layouts by font and text, least recently used first. */
+    private final LinkedHashMap<Key, TextLayout> layouts;
+    /** Shapes the items of an experiment in the background. */
+    private final ExecutorService warmer;
+    /** Number of layouts shaped; for testing. */
+    private int shaped;
+
+    /** Font and text of a layout; the font includes its size. */
+    private static final class Key {
+        /** Font the text is shaped in. */
+        private final Font font;
+        /** Text shaped. */
+        private final String text;
+
+        /**
+         * Constructor.
+         * @param aFont font
+         * @param aText text
+         */
+        Key(final Font aFont, final String aText) {
+            this.font = aFont;
+            this.text = aText;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return this.font.equals(other.font)
+                    && this.text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.font, this.text);
+        }
+    }
+
+    /**
+     * Constructor with the capacity from -Dxmod.layoutCache.
+     */
+    TextLayoutCache() {
+        this(Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Constructor.
+     * @param aCapacity most layouts kept, at least 1
+     */
+    TextLayoutCache(final int aCapacity) {
+        this.capacity = Math.max(1, aCapacity);
+        this.layouts = new LinkedHashMap<Key, TextLayout>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                                final Map.Entry<Key, TextLayout> eldest) {
+                return size() > TextLayoutCache.this.capacity;
+            }
+        };
+        this.warmer = Executors.newSingleThreadExecutor((r) -> {
+            Thread t = new Thread(r, "TEXT LAYOUT");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Gets a font, reusing the same Font object for the same request.
+     * @param name font family name
+     * @param style e.g. Font.PLAIN
+     * @param size point size
+     * @return font
+     */
+    static Font getFont(final String name, final int style, final int size) {
+        synchronized (FONTS) {
+            return FONTS.computeIfAbsent(name + "\t" + style + "\t" + size,
+                                        (k) -> new Font(name, style, size));
+        }
+    }
+
+    /**
+     * Gets the layout of some text, shaping it if not already kept.
+     * @param font font to shape in
+     * @param text text to shape
+     * @return layout, or null if the text is empty
+     */
+    TextLayout get(final Font font, final String text) {
+        if (null == text || text.isEmpty()) {
+            return null;
+        }
+        Key key = new Key(font, text);
+        synchronized (this) {
+            TextLayout layout = this.layouts.get(key);
+            if (null != layout) {
+                return layout;
+            }
+        }
+        // shaped outside the lock so drawing is not held up by warming
+        TextLayout layout = new TextLayout(text, font, RENDER_CONTEXT);
+        synchronized (this) {
+            this.shaped++;
+            this.layouts.put(key, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Shapes the items of an experiment in the background.
+     * Only the first capacity items are shaped, so the first trials are
+     * not pushed out by the last
+     * @param font font the items will be shown in
+     * @param items items in trial order
+     * @return completes once all are shaped
+     */
+    Future<?> warm(final Font font, final String[] items) {
+        final String[] copy = items.clone();
+        return this.warmer.submit(() -> {
+            int count = Math.min(copy.length, this.capacity);
+            for (int i = 0; i < count; i++) {
+                get(font, copy[i]);
+            }
+        });
+    }
+
+    /** Getter for number of layouts kept.
+     * @return number kept
+     */
+    synchronized int size() {
+        return this.layouts.size();
+    }
+
+    /** Getter for number of layouts shaped so far.
+     * @return this.shaped
+     */
+    synchronized int getShaped() {
+        return this.shaped;
+    }
+}
@@ -4,6 +4,10 @@
  * MainWindow is the first, main GUI
  * FontWindow is where the user updates the font size and font family
  * ExperimentWindow is where the experiment is shown
+ * StatusRenderer shows the status from Reporter in MainWindow
+ * StimulusRenderer draws the trial items in ExperimentWindow off screen
+ * TextLayoutCache keeps the shaped text of the trial items
+ * StimulusValidator checks every trial item can be shown before a run
  *
  * @since 2.0
  * @author ELS
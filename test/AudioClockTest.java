@@ -0,0 +1,112 @@
+package xmod.audio;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.SourceDataLine;
+
+class AudioClockTest {
+    /** Frames per second of the test line. */
+    private static final float RATE = 1000;
+
+    /** Utility func to make a line whose frame position can be set.
+     * @param position frame position reported by the line
+     * @return line
+     */
+    SourceDataLine makeLine(final AtomicLong position) {
+        AudioFormat format = new AudioFormat(RATE, 16, 1, true, false);
+        return (SourceDataLine) Proxy.newProxyInstance(
+            SourceDataLine.class.getClassLoader(),
+            new Class<?>[] {SourceDataLine.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getFormat":
+                        return format;
+                    case "getLongFramePosition":
+                        return position.get();
+                    default:
+                        throw new UnsupportedOperationException();
+                }
+            });
+    }
+
+    @DisplayName("Check clock before playing")
+    @Test
+    public void checkNotPlaying() {
+        AudioClock clock = new AudioClock();
+        Assertions.assertFalse(clock.isRunning());
+        Assertions.assertEquals(0, clock.getFramePosition());
+        Assertions.assertEquals(0, clock.getDriftNanos());
+        Assertions.assertEquals(AudioClock.UNSET,
+                                clock.getStartLatencyNanos());
+        Assertions.assertEquals(AudioClock.UNSET,
+                                clock.getOpenLatencyNanos());
+    }
+
+    @DisplayName("Check first sample and position")
+    @Test
+    public void checkFirstSample() {
+        AtomicLong position = new AtomicLong();
+        AudioClock clock = new AudioClock();
+        long requested = System.nanoTime();
+        clock.reset(requested);
+        clock.lineOpened(makeLine(position), requested + 5000000);
+        Assertions.assertEquals(5000000, clock.getOpenLatencyNanos());
+        // nothing played yet
+        clock.checkFirstSample();
+        Assertions.assertFalse(clock.isRunning());
+        Assertions.assertEquals(AudioClock.UNSET, clock.getFirstSampleNanos());
+
+        // 50 frames at 1000 frames/s is 50ms ago
+        position.set(50);
+        long before = System.nanoTime();
+        clock.checkFirstSample();
+        long after = System.nanoTime();
+        Assertions.assertTrue(clock.isRunning());
+        long first = clock.getFirstSampleNanos();
+        Assertions.assertTrue(first >= before - 50000000);
+        Assertions.assertTrue(first <= after - 50000000);
+        Assertions.assertEquals(first - requested,
+                                clock.getStartLatencyNanos());
+        Assertions.assertEquals(50000000, clock.getPositionNanos());
+
+        // stamped once only
+        position.set(500);
+        clock.checkFirstSample();
+        Assertions.assertEquals(first, clock.getFirstSampleNanos());
+    }
+
+    @DisplayName("Check drift")
+    @Test
+    public void checkDrift() {
+        AtomicLong position = new AtomicLong();
+        AudioClock clock = new AudioClock();
+        clock.reset(System.nanoTime());
+        clock.lineOpened(makeLine(position), System.nanoTime());
+        position.set(1);
+        clock.checkFirstSample();
+        long first = clock.getFirstSampleNanos();
+
+        // line stopped 2s after first sample having played 1.5s
+        position.set(1500);
+        clock.lineStopped(first + 2000000000L);
+        Assertions.assertFalse(clock.isRunning());
+        Assertions.assertEquals(1500, clock.getFramePosition());
+        Assertions.assertEquals(500000000L, clock.getDriftNanos());
+
+        // audio ahead of the system clock
+        clock.reset(System.nanoTime());
+        clock.lineOpened(makeLine(position), System.nanoTime());
+        position.set(1);
+        clock.checkFirstSample();
+        first = clock.getFirstSampleNanos();
+        position.set(2100);
+        clock.lineStopped(first + 2000000000L);
+        Assertions.assertEquals(-100000000L, clock.getDriftNanos());
+    }
+}
@@ -0,0 +1,32 @@
+package xmod.audio;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class AudioHealthTest {
+
+    @DisplayName("Check underruns and stalls counted")
+    @Test
+    public void checkCounts() {
+        AudioHealth health = new AudioHealth();
+        health.reset(8192, 4096);
+        // line is empty before the first write: not an underrun
+        health.recordWrite(8192, 1000);
+        health.recordWrite(4096, 2000000);
+        health.recordWrite(0, 23000000);
+        health.recordWrite(8192, 5000);
+        health.recordWrite(9000, 5000);
+        Assertions.assertEquals(5, health.getWrites());
+        Assertions.assertEquals(2, health.getUnderruns());
+        Assertions.assertEquals(23000000, health.getMaxWriteNanos());
+        Assertions.assertEquals("2 underruns in 5 writes, longest write stall"
+            + " 23.0ms (line buffer 8192 bytes, writes of 4096 bytes)",
+            health.getSummary());
+
+        health.reset(4096, 1024);
+        Assertions.assertEquals(0, health.getWrites());
+        Assertions.assertEquals(0, health.getUnderruns());
+        Assertions.assertEquals(0, health.getMaxWriteNanos());
+    }
+}
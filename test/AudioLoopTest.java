@@ -1,6 +1,7 @@
 package xmod.audio;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -9,6 +10,10 @@ import org.junit.jupiter.api.Test;
 import xmod.utils.Utils;
 import xmod.constants.Locations;
 
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.Clip;
+
 class AudioLoopTest {
     /**AudioPlayer object. */
     private AudioLoopPlayer player;
@@ -24,9 +29,27 @@ class AudioLoopTest {
         Assertions.assertEquals(expected, file, "Test audio file not correct");
     }
 
+    /** Utility func to check a clip of the test audio can be opened.
+     * @return false on machines without a sound device
+     */
+    private static boolean lineAvailable() {
+        try (AudioInputStream stream = AudioSystem.getAudioInputStream(
+                AudioLoopTest.class.getResource(
+                                        Locations.TEST_AUDIO_LOCATION))) {
+            Clip clip = AudioSystem.getClip();
+            clip.open(stream);
+            clip.close();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     @DisplayName("Check audio playing")
     @Test
     public void checkPlaying() {
+        // the clip is only running once it has been opened on a line
+        Assumptions.assumeTrue(lineAvailable(), "No audio line available");
         player = new AudioLoopPlayer();
         try {
             player.loopAudio(); //toggles on
@@ -45,6 +45,28 @@ class AudioTest {
     }
 
 
+    @DisplayName("Check audio decoded into memory")
+    @Test
+    public void checkPreload() {
+        player = new AudioPlayer();
+        player.loadAudio(this.realFile);
+        Assertions.assertTrue(player.isPreloaded(),
+                                "Audio should be decoded when loaded");
+        player.setUpPlayer();
+        Assertions.assertTrue(player.isPreloaded(),
+                                "Decoded audio should be kept for replays");
+
+        player = new AudioPlayer();
+        player.setPreload(false);
+        player.loadAudio(this.realFile);
+        Assertions.assertEquals(true, player.isAudioLoaded(),
+                                 "Audio should be loaded");
+        Assertions.assertFalse(player.isPreloaded(),
+                                "Audio should be streamed from disk");
+        Assertions.assertEquals(29, player.getAudioLengthInSeconds(),
+                                "Audio file should be 29s long");
+    }
+
     @DisplayName("Check invalid audio Length")
     @Test
     public void checkInvalidLength() {
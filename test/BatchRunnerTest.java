@@ -0,0 +1,77 @@
+package xmod.experimenter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import xmod.audio.AudioPlayer;
+import xmod.serial.ControlBoxSimulator;
+import xmod.serial.ControllerPool;
+import xmod.serial.Serial;
+import xmod.status.Responses;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+class BatchRunnerTest {
+    /** Folder of the test tms file. */
+    private static final Path TEST_FILES = Paths.get("./test/testFiles");
+
+    @DisplayName("Run experiment without windows against the simulator")
+    @Test
+    public void checkBatchRun(@TempDir final Path dir) throws IOException {
+        for (String name : new String[] {"charlie_short.tms",
+                                            "charlie_short.wav"}) {
+            Files.copy(TEST_FILES.resolve(name), dir.resolve(name));
+        }
+        ControlBoxSimulator box = new ControlBoxSimulator();
+        box.setLatency(trial -> 5);
+        Serial serial = new Serial(box);
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(lines, true, "UTF-8");
+        try {
+            BatchRunner batch = new BatchRunner(new ControllerPool(serial),
+                                                new AudioPlayer(), out);
+            Assertions.assertTrue(batch.awaitConnection(1000));
+            int status = batch.run(dir.resolve("charlie_short.tms")
+                                        .toString());
+            Assertions.assertEquals(BatchRunner.EXIT_FINISHED, status,
+                                    "Experiment should run to the end");
+        } finally {
+            serial.close();
+        }
+        String output = lines.toString(StandardCharsets.UTF_8);
+        for (String line : output.split("\\R")) {
+            // date, time, label, category, value
+            Assertions.assertEquals(5, line.split("\t", -1).length, line);
+        }
+        Assertions.assertTrue(output.contains("\tSTATUS\tSTATUS\t"
+                                + Responses.EXPERIMENT_COMPLETE));
+        try (var results = Files.list(dir.resolve("results"))) {
+            Assertions.assertTrue(results.anyMatch(
+                        (p) -> p.toString().endsWith(".txt")),
+                        "Results should be printed");
+        }
+    }
+
+    @DisplayName("Missing tms file is not started")
+    @Test
+    public void checkMissingFile() {
+        Serial serial = new Serial(new ControlBoxSimulator());
+        try {
+            BatchRunner batch = new BatchRunner(new ControllerPool(serial),
+                    new AudioPlayer(),
+                    new PrintStream(new ByteArrayOutputStream()));
+            Assertions.assertEquals(BatchRunner.EXIT_NOT_STARTED,
+                batch.run(TEST_FILES.resolve("missing.tms").toString()));
+        } finally {
+            serial.close();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package xmod.serial;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import xmod.constants.Actions;
+import xmod.status.ObjectReport;
+import xmod.status.ReportCategory;
+import xmod.status.Responses;
+import xmod.utils.Utils;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+class ControlBoxSimulatorTest {
+    /** Simulated control box. */
+    private ControlBoxSimulator box;
+    /** Serial connected to the simulated box. */
+    private Serial serial;
+    /** Statuses reported by serial. */
+    private CopyOnWriteArrayList<String> statuses;
+    /** Frame size. */
+    private static final int SIZE = Serial.REACTION_FRAME_SIZE;
+
+    @BeforeEach
+    void setup() {
+        box = new ControlBoxSimulator();
+        box.setLatency(trial -> 5);
+        statuses = new CopyOnWriteArrayList<String>();
+        serial = new Serial(box);
+        serial.addObserver(evt -> {
+            if (evt.getPropertyName() == Actions.UPDATE) {
+                ObjectReport report = (ObjectReport) evt.getNewValue();
+                statuses.addAll(report.get(ReportCategory.STATUS));
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        serial.close();
+    }
+
+    /** Arms a trial and waits for its frame.
+     * @param trial trial number, used for the timeout
+     * @return frame or null if none arrived
+     * @throws SerialBytesReceivedException on error
+     */
+    byte[] runTrial(final int trial) throws SerialBytesReceivedException {
+        serial.sendTrialTimings(1000 + trial, 500, 1500);
+        return serial.pollChunk(SIZE, 500);
+    }
+
+    @DisplayName("Full session runs against the simulator")
+    @Test
+    public void checkSession() throws SerialBytesReceivedException {
+        Assertions.assertTrue(serial.isSerialConnected(),
+            "Serial should connect to the simulator");
+        Assertions.assertFalse(box.isMonitorsOn(),
+            "Monitors should be turned off on connection");
+        final int trials = 50;
+        final int latency = 5;
+        long worstJitter = 0;
+        for (int trial = 0; trial < trials; trial++) {
+            long start = System.nanoTime();
+            byte[] frame = runTrial(trial);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(
+                                        System.nanoTime() - start);
+            Assertions.assertArrayEquals(ControlBoxSimulator.pressKey(trial),
+                frame, "Frame for trial " + trial + " wrong");
+            worstJitter = Math.max(worstJitter, elapsed - latency);
+        }
+        Assertions.assertEquals(trials, box.getTrialsArmed(),
+            "Every trial should have been armed");
+        Assertions.assertEquals(1000 + trials - 1, box.getReactionTimeout(),
+            "Last timeout should be decoded");
+        Assertions.assertEquals(500, box.getMonitorOn(), "Monitor on wrong");
+        Assertions.assertEquals(1500, box.getMonitorOff(),
+            "Monitor off wrong");
+        Assertions.assertEquals(0, box.getUnknownBytes(),
+            "Every byte should be a known command");
+        Assertions.assertTrue(worstJitter < 250,
+            "Frames should arrive close to their scripted latency, worst "
+            + worstJitter + "ms late");
+    }
+
+    @DisplayName("Controller commands are answered")
+    @Test
+    public void checkCommands() {
+        Assertions.assertTrue(serial.getControllerInfo()
+            .contains("SIMULATOR"), "Controller info should be returned");
+        serial.turnOnMonitor();
+        Assertions.assertTrue(box.isMonitorsOn(), "Monitors should be on");
+        serial.turnOffMonitor();
+        Assertions.assertFalse(box.isMonitorsOn(), "Monitors should be off");
+        serial.checkConnection();
+        Assertions.assertEquals(1, box.getLedFlashes(),
+            "LEDs should have flashed");
+    }
+
+    @DisplayName("Injected faults")
+    @Test
+    public void checkFaults() throws SerialBytesReceivedException {
+        box.splitFrames(7);
+        Assertions.assertArrayEquals(ControlBoxSimulator.pressKey(0),
+            runTrial(0), "Split frame should be reassembled");
+        box.dropFrames(1);
+        Assertions.assertNull(runTrial(1), "Dropped frame should time out");
+        box.truncateNextFrame(20);
+        Assertions.assertNull(runTrial(2),
+            "Truncated frame should time out");
+        Assertions.assertTrue(serial.dropPartialFrame(),
+            "Truncated frame should be discarded");
+        Assertions.assertArrayEquals(ControlBoxSimulator.pressKey(3),
+            runTrial(3), "Next frame should arrive whole");
+    }
+
+    @DisplayName("Disconnection is reported and reconnected")
+    @Test
+    public void checkDisconnect() throws SerialBytesReceivedException {
+        box.disconnectAfter(1);
+        Assertions.assertNotNull(runTrial(0), "Frame should arrive");
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!statuses.contains(Responses.SERIAL_CONNECTED)
+                && System.currentTimeMillis() < deadline) {
+            Utils.pause(10);
+        }
+        Assertions.assertTrue(statuses.contains(Responses.SERIAL_DISCONNECTED),
+            "Disconnection should be reported");
+        Assertions.assertTrue(statuses.contains(Responses.SERIAL_CONNECTED),
+            "Should reconnect to the simulator");
+        Assertions.assertNotNull(runTrial(1),
+            "Frames should arrive after reconnecting");
+    }
+}
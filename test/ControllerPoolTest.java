@@ -0,0 +1,81 @@
+package xmod.serial;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ControllerPoolTest {
+    /** Frame size of each control box. */
+    private static final int SIZE = Serial.REACTION_FRAME_SIZE;
+    /** Simulated control boxes. */
+    private ControlBoxSimulator[] boxes;
+    /** Pool of the simulated boxes. */
+    private ControllerPool pool;
+
+    @BeforeEach
+    void setup() {
+        boxes = new ControlBoxSimulator[3];
+        Serial[] serials = new Serial[boxes.length];
+        for (int c = 0; c < boxes.length; c++) {
+            final int controller = c;
+            boxes[c] = new ControlBoxSimulator();
+            boxes[c].setLatency(trial -> 5 + 10 * controller);
+            // first byte of each frame says which box sent it
+            boxes[c].setReactions(trial -> {
+                byte[] frame = new byte[SIZE];
+                frame[0] = (byte) (controller + 1);
+                frame[SIZE - 1] = (byte) trial;
+                return frame;
+            });
+            serials[c] = new Serial(boxes[c]);
+        }
+        pool = new ControllerPool(serials);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @DisplayName("Frames from every controller merged in order")
+    @Test
+    public void checkMerged() throws SerialBytesReceivedException {
+        Assertions.assertTrue(pool.isSerialConnected());
+        Assertions.assertEquals(48, pool.getBoxCount());
+        for (int trial = 0; trial < 5; trial++) {
+            pool.sendTrialFrame(Serial.encodeTrialTimings(1000, 500, 1500));
+            byte[] merged = pool.pollChunk(SIZE, 1000);
+            Assertions.assertNotNull(merged, "Trial " + trial);
+            Assertions.assertEquals(3 * SIZE, merged.length);
+            for (int c = 0; c < boxes.length; c++) {
+                Assertions.assertEquals(c + 1, merged[c * SIZE]);
+                Assertions.assertEquals(trial, merged[c * SIZE + SIZE - 1]);
+            }
+        }
+        for (ControlBoxSimulator box : boxes) {
+            Assertions.assertEquals(5, box.getTrialsArmed());
+        }
+    }
+
+    @DisplayName("Frames kept while waiting in slices for a slow controller")
+    @Test
+    public void checkSlices() throws SerialBytesReceivedException {
+        boxes[2].setLatency(trial -> 300);
+        pool.sendTrialFrame(Serial.encodeTrialTimings(1000, 500, 1500));
+        byte[] merged = null;
+        int slices = 0;
+        while (null == merged && slices < 20) {
+            merged = pool.pollChunk(SIZE, 50);
+            slices++;
+        }
+        Assertions.assertNotNull(merged);
+        Assertions.assertTrue(slices > 1, "Should have waited in slices");
+        for (int c = 0; c < boxes.length; c++) {
+            Assertions.assertEquals(c + 1, merged[c * SIZE]);
+        }
+        Assertions.assertNull(pool.pollChunk(SIZE, 50),
+                                "No frames left over for the next trial");
+    }
+}
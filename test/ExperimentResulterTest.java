@@ -7,12 +7,16 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
+
+import xmod.constants.Typesetting;
 
 public final class ExperimentResulterTest {
     /** TMS file used for tests. */
@@ -21,6 +25,12 @@ public final class ExperimentResulterTest {
         private ExperimentResulter resulter;
     /** Listener. */
         private TestListener tester;
+    /** Screen items from the loader. */
+        private String[] screenItems;
+    /** Coding array from the loader. */
+        private String[] codingArray;
+    /** Codehead from the loader. */
+        private String codehead;
 
 
 
@@ -40,6 +50,9 @@ public final class ExperimentResulterTest {
         String[] screenItems = loader.getScreenItems();
         int[] tReactionOffset = loader.getTReactionOffset();
         String codehead = loader.getCodehead();
+        this.screenItems = screenItems;
+        this.codingArray = codingArray;
+        this.codehead = codehead;
         resulter = new ExperimentResulter(this.testFile,
                                             expLength,
                                             tReactionOffset,
@@ -115,6 +128,21 @@ public final class ExperimentResulterTest {
         "RFlag should = false");
     }
 
+    /** Check trials not yet collected have no key or flag. */
+    @DisplayName("Check uncollected trials")
+    @Test
+    public void checkUncollected() {
+        resulter.getPressedKeys(1, 4, 0);
+        Assertions.assertNull(this.resulter.getCKey()[4][1],
+            "Uncollected trial should have no key");
+        Assertions.assertNull(this.resulter.getRFlag()[4][1],
+            "Uncollected trial should have no flag");
+        Assertions.assertNull(this.resulter.getRFlag()[5][0],
+            "Uncollected box should have no flag");
+        Assertions.assertEquals(0, this.resulter.getReacTime()[4][1],
+            "Uncollected trial should have no reaction time");
+    }
+
     /** Utility func to reverse engineer the reaction array.
      * @param num expected reaction as integer
      * @param boxNo which box
@@ -153,4 +181,187 @@ public final class ExperimentResulterTest {
                                     "Recorded RT should equal " + expectedRT);
         }
     }
+
+    /** Results text as built before streaming, kept to prove parity.
+     * @param date date string
+     * @param time time string
+     * @return results text in the legacy format
+     */
+    String legacyResultsText(final String date, final String time) {
+        String results = "Item" + Typesetting.TAB + "File" + Typesetting.TAB
+                        + "Date Time SJ" + Typesetting.TAB
+                        + "Target" + Typesetting.TAB
+                        + "ReacTime" + Typesetting.TAB
+                        + "Key" + Typesetting.TAB + this.codehead;
+        Boolean[][] rFlag = this.resulter.getRFlag();
+        for (int trial = 0; trial < this.screenItems.length; trial++) {
+            for (int boxNo = 0; boxNo < 16; boxNo++) {
+                Boolean inUse = false;
+                for (Boolean flag : rFlag[boxNo]) {
+                    inUse = inUse || (null != flag && flag);
+                }
+                if (!inUse || null == rFlag[boxNo][trial]) {
+                    continue;
+                }
+                results = results + Integer.toString(trial + 1)
+                    + Typesetting.TAB + this.testFile + Typesetting.TAB
+                    + date + " " + time + " "
+                    + ((boxNo >= 10) ? Integer.toString(boxNo)
+                                    : "0" + Integer.toString(boxNo))
+                    + Typesetting.TAB + this.screenItems[trial]
+                    + Typesetting.TAB
+                    + Integer.toString(this.resulter.getReacTime()[boxNo][trial])
+                    + Typesetting.TAB + this.resulter.getNKey()[boxNo][trial]
+                    + Typesetting.TAB + this.codingArray[trial]
+                    + Typesetting.CR;
+            }
+        }
+        return results;
+    }
+
+    /** Check streamed results are byte identical to the legacy format.
+     * @throws IOException if results file cannot be read
+     */
+    @DisplayName("Check results text parity")
+    @Test
+    public void checkResultsParity() throws IOException {
+        int[] boxes = {0, 3, 10, 15};
+        for (int trial = 0; trial < this.screenItems.length - 2; trial++) {
+            byte[] reaction = new byte[36];
+            for (int box : boxes) {
+                byte[] dummy = getDummyReaction(100 * trial + box, box);
+                int rtByte = 2 * box + 4;
+                System.arraycopy(dummy, rtByte, reaction, rtByte, 2);
+                // key code (trial % 4) in the two bits for this box
+                reaction[box / 4] |= (byte) ((trial % 4) << (2 * (box % 4)));
+            }
+            this.resulter.collectTrialResults(reaction, trial);
+        }
+        String expected = legacyResultsText("01.02.26", "10.11.12");
+        Assertions.assertEquals(expected,
+            this.resulter.createResultsText("01.02.26", "10.11.12"),
+            "Results text should match legacy format");
+
+        this.resulter.printResults();
+        Path written = Paths.get(this.resulter.getResultsFile());
+        String fileName = written.getFileName().toString();
+        // name is <tms>_<date>_<time>.txt and <tms> may contain '_'
+        String stamp = fileName.substring(0,
+                                fileName.length() - ".txt".length());
+        String time = stamp.substring(stamp.lastIndexOf('_') + 1);
+        stamp = stamp.substring(0, stamp.lastIndexOf('_'));
+        String date = stamp.substring(stamp.lastIndexOf('_') + 1);
+        try {
+            Assertions.assertArrayEquals(
+                legacyResultsText(date, time).getBytes(),
+                Files.readAllBytes(written),
+                "Results file should be byte identical to legacy format");
+        } finally {
+            Files.deleteIfExists(written);
+            Files.deleteIfExists(Paths.get(written.toString()
+                                .replaceFirst("\\.txt$", ".xmr")));
+        }
+    }
+
+    /** Check columnar results hold the same rows as the results text.
+     * @param dir temporary directory
+     * @throws IOException if columnar file cannot be written or read
+     */
+    @DisplayName("Check columnar results match text")
+    @Test
+    public void checkColumnarResults(@TempDir final Path dir)
+                                        throws IOException {
+        int[] boxes = {1, 7};
+        for (int trial = 0; trial < this.screenItems.length - 1; trial++) {
+            byte[] reaction = new byte[36];
+            for (int box : boxes) {
+                byte[] dummy = getDummyReaction(10 * trial + box, box);
+                int rtByte = 2 * box + 4;
+                System.arraycopy(dummy, rtByte, reaction, rtByte, 2);
+                reaction[box / 4] |= (byte) ((trial % 4) << (2 * (box % 4)));
+            }
+            this.resulter.collectTrialResults(reaction, trial);
+        }
+        Path file = dir.resolve("results.xmr");
+        this.resulter.createColumnarResults().write(file, this.testFile,
+                                                    "01.02.26", "10.11.12");
+        Map<String, Object> columns = ColumnarResults.read(file);
+        Assertions.assertEquals(this.testFile, columns.get("#tms"));
+        Assertions.assertEquals("01.02.26", columns.get("#date"));
+
+        String[] lines = this.resulter.createResultsText("01.02.26",
+                                "10.11.12").split(Typesetting.CR, -1);
+        String[] codeNames = this.codehead.trim().split(Typesetting.TAB);
+        int[] items = (int[]) columns.get("Item");
+        byte[] sj = (byte[]) columns.get("SJ");
+        String[] targets = (String[]) columns.get("Target");
+        int[] times = (int[]) columns.get("ReacTime");
+        byte[] keys = (byte[]) columns.get("Key");
+        String[] firstCode = (String[]) columns.get(codeNames[0]);
+        // header and trailing empty line are not rows
+        Assertions.assertEquals(lines.length - 2, items.length);
+        for (int row = 0; row < items.length; row++) {
+            String[] text = lines[row + 1].split(Typesetting.TAB, -1);
+            Assertions.assertEquals(text[0], Integer.toString(items[row]));
+            Assertions.assertTrue(text[2].endsWith(
+                            String.format("%02d", sj[row])));
+            Assertions.assertEquals(text[3], targets[row]);
+            Assertions.assertEquals(text[4], Integer.toString(times[row]));
+            String key = (keys[row] == 0) ? "." : Integer.toString(keys[row]);
+            Assertions.assertEquals(text[5], key);
+            Assertions.assertEquals(text[6], firstCode[row]);
+        }
+    }
+
+    /** Check boxes on a second controller are numbered after the first.
+     * @param dir temporary directory
+     * @throws IOException if tms file cannot be copied
+     */
+    @DisplayName("Check results from two controllers")
+    @Test
+    public void checkTwoControllers(@TempDir final Path dir)
+                                        throws IOException {
+        Path tms = dir.resolve("two.tms");
+        Files.copy(Paths.get(this.testFile), tms);
+        ExperimentLoader loader = new ExperimentLoader();
+        loader.loadFile(tms.toString());
+        loader.parseFile();
+        ExperimentResulter two = new ExperimentResulter(tms.toString(),
+                                    this.screenItems.length,
+                                    loader.getTReactionOffset(),
+                                    this.codehead, this.codingArray,
+                                    this.screenItems, 2);
+        int size = ReactionFrameDecoder.FRAME_SIZE;
+        byte[] reaction = new byte[2 * size];
+        // box 1 of the first controller presses key 1 after 300ms
+        reaction[0] = 1 << 2;
+        reaction[6] = (byte) 44;
+        reaction[7] = (byte) 1;
+        // box 4 of the second controller presses key 3 after 513ms
+        reaction[size + 1] = 2;
+        reaction[size + 12] = (byte) 1;
+        reaction[size + 13] = (byte) 2;
+        two.openJournal();
+        two.collectTrialResults(reaction, 0);
+        String[][] keys = two.getNKey();
+        int[][] times = two.getReacTime();
+        Assertions.assertEquals(32, keys.length);
+        Assertions.assertEquals("1", keys[1][0]);
+        Assertions.assertEquals("3", keys[20][0]);
+        Assertions.assertEquals(".", keys[4][0]);
+        int offset = loader.getTReactionOffset()[0];
+        Assertions.assertEquals(300 - offset, times[1][0]);
+        Assertions.assertEquals(513 - offset, times[20][0]);
+        String text = two.createResultsText("01.02.26", "10.11.12");
+        Assertions.assertTrue(text.contains(" 20" + Typesetting.TAB),
+                                "Box 20 should be in the results");
+
+        // journal keeps both frames so the run can be recovered
+        two.printResults("01.02.26", "10.11.12");
+        try (var files = Files.list(dir.resolve("results"))) {
+            Assertions.assertTrue(files.noneMatch(
+                (p) -> p.toString().endsWith(ResultsJournal.EXTENSION)),
+                "Journal should be deleted once results are printed");
+        }
+    }
 }
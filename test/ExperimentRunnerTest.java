@@ -10,6 +10,7 @@ import xmod.view.ExperimentWindow;
 import xmod.utils.TestListener;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
@@ -67,4 +68,31 @@ public final class ExperimentRunnerTest {
             Assertions.assertEquals(1, 1, "Invalid file not loaded for test");
         }
     }
+
+    /** Test the reaction wait limit follows each trial's own timings. */
+    @DisplayName("Reaction wait limit from trial timings")
+    @Test
+    public void checkReactionWaitLimit() {
+        String file = "./test/testFiles/charlie_short.tms";
+        ExperimentRunner runner = new ExperimentRunner(new Serial(), null,
+                                                        new AudioPlayer());
+        runner.setUpExperiment(file);
+        ExperimentLoader loader = new ExperimentLoader();
+        loader.loadFile(file);
+        loader.parseFile();
+        for (int i = 0; i < loader.getScreenItems().length; i++) {
+            long own = (long) loader.getTMonitorOn()[i]
+                        + loader.getTReactionTimeout()[i]
+                        + loader.getTMonitorOff()[i];
+            Assertions.assertEquals(
+                own + ExperimentRunner.DEFAULT_REACTION_WAIT,
+                runner.reactionWaitLimit(i), "Trial " + i);
+        }
+        System.setProperty(ExperimentRunner.REACTION_WAIT_PROPERTY, "0");
+        try {
+            Assertions.assertEquals(0, runner.reactionWaitLimit(0));
+        } finally {
+            System.clearProperty(ExperimentRunner.REACTION_WAIT_PROPERTY);
+        }
+    }
 }
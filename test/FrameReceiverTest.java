@@ -0,0 +1,102 @@
+package xmod.serial;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import xmod.utils.Utils;
+
+class FrameReceiverTest {
+    /** Receiver object. */
+    private FrameReceiver receiver;
+    /** Frame size used for tests. */
+    private static final int SIZE = 36;
+
+    @BeforeEach
+    void setup() {
+        receiver = new FrameReceiver(2, 50);
+        receiver.expect(SIZE);
+    }
+
+    /** Utility func to make a frame counting up from start.
+     * @param start first byte value
+     * @param length number of bytes
+     * @return byte array
+     */
+    byte[] makeBytes(final int start, final int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (start + i);
+        }
+        return bytes;
+    }
+
+    @DisplayName("Frame split across events is reassembled")
+    @Test
+    public void checkSplitFrame() {
+        byte[] whole = makeBytes(0, SIZE);
+        byte[] first = new byte[10];
+        byte[] second = new byte[SIZE - 10];
+        System.arraycopy(whole, 0, first, 0, 10);
+        System.arraycopy(whole, 10, second, 0, SIZE - 10);
+        receiver.append(first, first.length);
+        Assertions.assertNull(receiver.poll(0),
+            "Partial frame should not be delivered");
+        receiver.append(second, second.length);
+        Assertions.assertArrayEquals(whole, receiver.poll(0),
+            "Frame should be reassembled in order");
+    }
+
+    @DisplayName("Two frames in one event are split")
+    @Test
+    public void checkTwoFrames() {
+        byte[] both = makeBytes(0, SIZE * 2);
+        receiver.append(both, both.length);
+        Assertions.assertEquals(0, receiver.poll(0)[0],
+            "First frame should start at 0");
+        Assertions.assertEquals(SIZE, receiver.poll(0)[0],
+            "Second frame should start at " + SIZE);
+    }
+
+    @DisplayName("Stale partial frame is dropped")
+    @Test
+    public void checkStalePartial() {
+        receiver.append(makeBytes(100, 5), 5);
+        Utils.pause(100);
+        byte[] whole = makeBytes(0, SIZE);
+        receiver.append(whole, whole.length);
+        Assertions.assertArrayEquals(whole, receiver.poll(0),
+            "Stale bytes should not prefix the new frame");
+        Assertions.assertEquals(1, receiver.getDroppedPartials(),
+            "One partial frame should have been dropped");
+    }
+
+    @DisplayName("Full queue drops oldest frame")
+    @Test
+    public void checkOverflow() {
+        for (int i = 0; i < 3; i++) {
+            receiver.append(makeBytes(i, SIZE), SIZE);
+        }
+        Assertions.assertEquals(1, receiver.getOverflows(),
+            "One frame should have overflowed");
+        Assertions.assertEquals(1, receiver.poll(0)[0],
+            "Oldest remaining frame should be the second");
+    }
+
+    @DisplayName("Raw mode delivers each chunk")
+    @Test
+    public void checkRawMode() {
+        receiver.expect(0);
+        receiver.append(makeBytes(0, 3), 3);
+        Assertions.assertEquals(3, receiver.poll(0).length,
+            "Raw chunk should be delivered as received");
+    }
+
+    @DisplayName("Poll times out")
+    @Test
+    public void checkTimeout() {
+        Assertions.assertNull(receiver.poll(10),
+            "Poll with nothing received should return null");
+    }
+}
@@ -228,4 +228,38 @@ public final class ObjectReportTest {
         Assertions.assertEquals(expectedOutput, output,
         "The conversion to string is not correct");
     }
+    /** Check oldest values evicted at capacity. */
+    @DisplayName("Evicting oldest values at capacity")
+    @Test
+    public void testCapacity() {
+        ObjectReport bounded = new ObjectReport(ReportLabel.AUDIO, 3);
+        Assertions.assertEquals(3, bounded.getCapacity());
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(
+                bounded.updateValues(ReportCategory.MESSAGE, "m" + i));
+        }
+        Assertions.assertFalse(
+            bounded.updateValues(ReportCategory.MESSAGE, "m4"),
+            "Duplicate should not be added");
+        ArrayList<String> values = bounded.get(ReportCategory.MESSAGE);
+        Assertions.assertEquals(3, values.size());
+        Assertions.assertEquals("m2", values.get(0));
+        Assertions.assertEquals("m4", values.get(2));
+        // evicted values can be added again
+        Assertions.assertTrue(
+            bounded.updateValues(ReportCategory.MESSAGE, "m0"));
+        Assertions.assertEquals("m0", values.get(2));
+
+        bounded.clearValues(ReportCategory.MESSAGE);
+        Assertions.assertTrue(
+            bounded.updateValues(ReportCategory.MESSAGE, "m4"),
+            "Cleared values can be added again");
+
+        ObjectReport unbounded = new ObjectReport(ReportLabel.AUDIO, 0);
+        for (int i = 0; i < 500; i++) {
+            unbounded.updateValues(ReportCategory.MESSAGE, "m" + i);
+        }
+        Assertions.assertEquals(500,
+                        unbounded.get(ReportCategory.MESSAGE).size());
+    }
 }
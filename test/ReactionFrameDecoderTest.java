@@ -0,0 +1,103 @@
+package xmod.experimenter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class ReactionFrameDecoderTest {
+    /** Number of boxes. */
+    private static final int BOXES = ReactionFrameDecoder.NUM_BOXES;
+
+    /** Key code as decoded per box before the lookup table.
+     * @param frame reaction frame
+     * @param box box number
+     * @return key code
+     */
+    byte legacyKeyCode(final byte[] frame, final int box) {
+        int[] masks = {3, 12, 48, 192};
+        int[] shifts = {0, 2, 4, 6};
+        int output = (frame[box / 4] & masks[box % 4]) >> shifts[box % 4];
+        return (byte) ((output == 0) ? ReactionFrameDecoder.KEY_NONE
+                                    : output + 1);
+    }
+
+    /** Reaction time as decoded per box before the lookup table.
+     * @param frame reaction frame
+     * @param box box number
+     * @param offset trial offset
+     * @return reaction time
+     */
+    int legacyReactionTime(final byte[] frame, final int box,
+                            final int offset) {
+        final int x = ((box + 1) * 2) + 2;
+        int lowByte = frame[x];
+        if (lowByte < 0) {
+            lowByte += 256;
+        }
+        return frame[x + 1] * 256 + lowByte - offset;
+    }
+
+    @DisplayName("All key byte values decode as before")
+    @Test
+    public void checkAllKeyBytes() {
+        byte[] keyCodes = new byte[BOXES];
+        int[] reacTimes = new int[BOXES];
+        for (int keyByte = 0; keyByte < 4; keyByte++) {
+            for (int value = 0; value < 256; value++) {
+                byte[] frame = new byte[ReactionFrameDecoder.FRAME_SIZE];
+                frame[keyByte] = (byte) value;
+                for (int box = 0; box < BOXES; box++) {
+                    frame[2 * box + 4] = (byte) (box + 1);
+                }
+                int pressed = ReactionFrameDecoder.decode(frame, 0, keyCodes,
+                                                            reacTimes, 0);
+                for (int box = 0; box < BOXES; box++) {
+                    byte expected = legacyKeyCode(frame, box);
+                    Assertions.assertEquals(expected, keyCodes[box],
+                        "Key code wrong for byte " + keyByte + " = " + value
+                        + ", box " + box);
+                    boolean isPressed =
+                                expected != ReactionFrameDecoder.KEY_NONE;
+                    Assertions.assertEquals(isPressed,
+                        (pressed & (1 << box)) != 0,
+                        "Pressed bit wrong for box " + box);
+                    Assertions.assertEquals(isPressed ? box + 1 : 0,
+                        reacTimes[box], "Reaction time wrong for box " + box);
+                }
+            }
+        }
+    }
+
+    @DisplayName("All reaction time byte pairs decode as before")
+    @Test
+    public void checkAllReactionTimes() {
+        byte[] frame = new byte[ReactionFrameDecoder.FRAME_SIZE];
+        // every box presses key 1
+        for (int keyByte = 0; keyByte < 4; keyByte++) {
+            frame[keyByte] = 0x55;
+        }
+        byte[] keyCodes = new byte[BOXES];
+        int[] reacTimes = new int[BOXES];
+        final int offset = 500;
+        for (int high = 0; high < 256; high++) {
+            for (int low = 0; low < 256; low++) {
+                int box = (high + low) % BOXES;
+                frame[2 * box + 4] = (byte) low;
+                frame[2 * box + 5] = (byte) high;
+                ReactionFrameDecoder.decode(frame, offset, keyCodes,
+                                            reacTimes, 0);
+                Assertions.assertEquals(
+                    legacyReactionTime(frame, box, offset), reacTimes[box],
+                    "Reaction time wrong for " + high + ", " + low);
+            }
+        }
+    }
+
+    @DisplayName("Short frame is rejected")
+    @Test
+    public void checkShortFrame() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> ReactionFrameDecoder.decode(new byte[10], 0,
+                                new byte[BOXES], new int[BOXES], 0));
+    }
+}
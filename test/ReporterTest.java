@@ -256,4 +256,55 @@ public class ReporterTest {
             "The second new value was not corrected added");
     }
 
+    /** Check version changes only when values change. */
+    @DisplayName("Version changes only when values change")
+    @Test
+    public void testVersion() {
+        long initial = this.reporter.getVersion(ReportLabel.TMS);
+        long audio = this.reporter.getVersion(ReportLabel.AUDIO);
+        ObjectReport reportUpdate = new ObjectReport(ReportLabel.TMS);
+        reportUpdate.updateValues(ReportCategory.STATUS, "loaded");
+        reportUpdate.updateValues(ReportCategory.MESSAGE, "file.tms");
+        this.reporter.updateValues(ReportLabel.TMS, reportUpdate);
+        long updated = this.reporter.getVersion(ReportLabel.TMS);
+        Assertions.assertNotEquals(initial, updated,
+            "Version should change when values are added");
+
+        // same values again: nothing visible changes
+        this.reporter.updateValues(ReportLabel.TMS, reportUpdate);
+        Assertions.assertEquals(updated,
+            this.reporter.getVersion(ReportLabel.TMS),
+            "Version should not change when values are repeated");
+        Assertions.assertEquals(audio,
+            this.reporter.getVersion(ReportLabel.AUDIO),
+            "Other labels should not change");
+
+        this.reporter.clearValues(ReportLabel.TMS);
+        Assertions.assertNotEquals(updated,
+            this.reporter.getVersion(ReportLabel.TMS),
+            "Version should change when values are cleared");
+    }
+
+    /** Check html built in one pass matches printValues. */
+    @DisplayName("Html for several labels")
+    @Test
+    public void testAppendValues() {
+        ObjectReport reportUpdate = new ObjectReport(ReportLabel.TMS);
+        reportUpdate.updateValues(ReportCategory.MESSAGE, "file.tms");
+        this.reporter.updateValues(ReportLabel.TMS, reportUpdate);
+        StringBuilder text = new StringBuilder();
+        this.reporter.appendValues(ReportLabel.STATUS, text);
+        this.reporter.appendValues(ReportLabel.TMS, text);
+        this.reporter.appendValues(ReportLabel.AUDIO, text);
+        Assertions.assertEquals(this.reporter.toStringMain(), text.toString());
+        Assertions.assertEquals(this.reporter.printValues(ReportLabel.STATUS)
+            + this.reporter.printValues(ReportLabel.TMS),
+            text.toString());
+        Assertions.assertEquals("<span style=\"font-weight:bold\">"
+            + ReportLabel.TMS.getValue() + "</span>"
+            + "<span style=\"display:inline-block;margin-left:40px;\">"
+            + "<p style=\"display:inline-block;margin-left:40px;\">"
+            + "file.tms<br/><br/></p></span>",
+            this.reporter.printValues(ReportLabel.TMS));
+    }
 }
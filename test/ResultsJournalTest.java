@@ -0,0 +1,196 @@
+package xmod.experimenter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+
+class ResultsJournalTest {
+    /** TMS file used for tests. */
+    private String testFile = "./test/testFiles/charlie_short.tms";
+    /** Temporary directory for journals and results. */
+    @TempDir
+    Path tempDir;
+
+    /** Utility func to make a reaction frame.
+     * Box 0 presses key 1 and box 5 presses key 2 with given reaction time
+     * @param rt reaction time before offset
+     * @return reaction frame
+     */
+    byte[] makeReaction(final int rt) {
+        byte[] reaction = new byte[36];
+        reaction[0] = 1;
+        reaction[1] = (byte) (2 << 2);
+        for (int box : new int[] {0, 5}) {
+            reaction[2 * box + 4] = (byte) (rt % 256);
+            reaction[2 * box + 5] = (byte) (rt / 256);
+        }
+        return reaction;
+    }
+
+    /** Utility func to create a journal for one controller box.
+     * @param journalFile location of the journal
+     * @param expectedTrials number of trials to preallocate
+     * @return journal open for appending
+     * @throws IOException if the journal cannot be created
+     */
+    ResultsJournal create(final Path journalFile, final int expectedTrials)
+                                                    throws IOException {
+        return ResultsJournal.create(journalFile, "exp.tms",
+                                    new ResultsJournal.TmsStamp(123, 456),
+                                    "01.02.26", "10.11.12", expectedTrials,
+                                    ReactionFrameDecoder.FRAME_SIZE);
+    }
+
+    @DisplayName("Journal round trip")
+    @Test
+    public void checkRoundTrip() throws IOException {
+        Path journalFile = tempDir.resolve("exp.journal");
+        ResultsJournal journal = create(journalFile, 2);
+        // one more than preallocated
+        for (int trial = 0; trial < 3; trial++) {
+            journal.append(trial, makeReaction(600 + trial));
+        }
+        journal.close();
+        ResultsJournal read = ResultsJournal.read(journalFile);
+        Assertions.assertEquals("exp.tms", read.getTmsFileName(),
+            "Tms file name wrong");
+        Assertions.assertEquals("01.02.26", read.getDateString(),
+            "Date wrong");
+        Assertions.assertEquals("10.11.12", read.getTimeString(),
+            "Time wrong");
+        Assertions.assertEquals(3, read.getRecords(),
+            "All records should be read back");
+        Assertions.assertTrue(read.getTmsStamp().matches(123, 456),
+            "Tms size and crc32 should be read back");
+        Assertions.assertFalse(read.getTmsStamp().matches(123, 457),
+            "Different crc32 should not match");
+    }
+
+    @DisplayName("Unused preallocated slots are not records")
+    @Test
+    public void checkPreallocated() throws IOException {
+        Path journalFile = tempDir.resolve("exp.journal");
+        ResultsJournal journal = create(journalFile, 10);
+        journal.append(0, makeReaction(600));
+        // not closed: as left by a crash
+        ResultsJournal read = ResultsJournal.read(journalFile);
+        Assertions.assertEquals(1, read.getRecords(),
+            "Only the written record should be read back");
+        Assertions.assertTrue(Files.size(journalFile)
+            >= 10 * (4 + ReactionFrameDecoder.FRAME_SIZE), "Journal should be"
+            + " preallocated");
+        journal.close();
+    }
+
+    @DisplayName("Not a journal")
+    @Test
+    public void checkNotJournal() throws IOException {
+        Path journalFile = tempDir.resolve("exp.journal");
+        Files.write(journalFile, "not a journal".getBytes());
+        Assertions.assertThrows(IOException.class,
+            () -> ResultsJournal.read(journalFile));
+    }
+
+    /** Utility func to load a tms file and make a resulter for it.
+     * @param tms tms file
+     * @return resulter stamped with the tms file as loaded
+     */
+    ExperimentResulter makeResulter(final Path tms) {
+        ExperimentLoader loader = new ExperimentLoader();
+        loader.loadFile(tms.toString());
+        loader.parseFile();
+        ExperimentResulter resulter = new ExperimentResulter(tms.toString(),
+                                        loader.getScreenItems().length,
+                                        loader.getTReactionOffset(),
+                                        loader.getCodehead(),
+                                        loader.getCodingArray(),
+                                        loader.getScreenItems());
+        resulter.setTmsStamp(loader.getTmsSize(), loader.getTmsCrc());
+        return resulter;
+    }
+
+    /** Utility func to copy the test tms file to the temporary directory.
+     * @return copy of the tms file
+     * @throws IOException if it cannot be copied
+     */
+    Path copyTms() throws IOException {
+        Path tms = tempDir.resolve("exp.tms");
+        Files.copy(Paths.get(this.testFile), tms,
+                    StandardCopyOption.REPLACE_EXISTING);
+        return tms;
+    }
+
+    @DisplayName("Runs started in the same second get their own journals")
+    @Test
+    public void checkSameSecond() throws IOException {
+        Path tms = copyTms();
+        ExperimentResulter first = makeResulter(tms);
+        ExperimentResulter second = makeResulter(tms);
+        ExperimentResulter third = makeResulter(tms);
+        first.openJournal();
+        second.openJournal();
+        third.openJournal();
+        Assertions.assertNotNull(first.getJournalFile(),
+            "First journal should be open");
+        Assertions.assertNotNull(second.getJournalFile(),
+            "Second journal should be open");
+        Assertions.assertNotNull(third.getJournalFile(),
+            "Third journal should be open");
+        Assertions.assertEquals(3, new HashSet<String>(
+                    Arrays.asList(first.getJournalFile(),
+                                            second.getJournalFile(),
+                                            third.getJournalFile())).size(),
+            "Each run should have its own journal");
+    }
+
+    @DisplayName("Recovery refused if the tms file has changed")
+    @Test
+    public void checkRecoveryChangedTms() throws IOException {
+        Path tms = copyTms();
+        ExperimentResulter resulter = makeResulter(tms);
+        resulter.openJournal();
+        String journalFile = resulter.getJournalFile();
+        resulter.collectTrialResults(makeReaction(700), 0);
+        // edited after the run started
+        Files.write(tms, "\n".getBytes(), StandardOpenOption.APPEND);
+        IOException e = Assertions.assertThrows(IOException.class,
+            () -> JournalRecovery.recover(journalFile));
+        Assertions.assertTrue(e.getMessage().contains("has changed"),
+            "Should say the tms file has changed");
+    }
+
+    @DisplayName("Recovery rebuilds results of an unfinished run")
+    @Test
+    public void checkRecovery() throws IOException {
+        ExperimentResulter resulter = makeResulter(copyTms());
+        resulter.openJournal();
+        String journalFile = resulter.getJournalFile();
+        Assertions.assertNotNull(journalFile, "Journal should be open");
+        resulter.collectTrialResults(makeReaction(700), 0);
+        resulter.collectTrialResults(makeReaction(900), 1);
+
+        // run stops here without printing results
+        ResultsJournal journal = ResultsJournal.read(Paths.get(journalFile));
+        Path recovered = Paths.get(JournalRecovery.recover(journalFile));
+        Assertions.assertEquals(resulter.createResultsText(
+                                journal.getDateString(),
+                                journal.getTimeString()),
+            new String(Files.readAllBytes(recovered)),
+            "Recovered results should match the results collected");
+
+        Files.delete(recovered);
+        resulter.printResults();
+        Assertions.assertFalse(Files.exists(Paths.get(journalFile)),
+            "Journal should be deleted once results are printed");
+    }
+}
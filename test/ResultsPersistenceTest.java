@@ -0,0 +1,60 @@
+package xmod.experimenter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class ResultsPersistenceTest {
+    /** Directory for the files written. */
+    @TempDir
+    Path dir;
+
+    @DisplayName("File replaced whole and no temporary file left")
+    @Test
+    public void checkReplaced() throws IOException {
+        Path target = dir.resolve("results.txt");
+        Files.writeString(target, "old");
+        ResultsPersistence.writeAtomically(target, (file) -> {
+            Assertions.assertNotEquals(target, file);
+            Files.writeString(file, "new");
+            // not visible under the final name until written
+            Assertions.assertEquals("old", Files.readString(target));
+        });
+        Assertions.assertEquals("new",
+                        Files.readString(target, StandardCharsets.UTF_8));
+        Assertions.assertFalse(Files.exists(dir.resolve("results.txt"
+                                        + ResultsPersistence.TEMP_SUFFIX)));
+    }
+
+    @DisplayName("Failed write leaves the old file and no temporary file")
+    @Test
+    public void checkFailedWrite() throws IOException {
+        Path target = dir.resolve("results.txt");
+        Files.writeString(target, "old");
+        Assertions.assertThrows(IOException.class, () ->
+            ResultsPersistence.writeAtomically(target, (file) -> {
+                Files.writeString(file, "partial");
+                throw new IOException("disk full");
+            }));
+        Assertions.assertEquals("old", Files.readString(target));
+        Assertions.assertFalse(Files.exists(dir.resolve("results.txt"
+                                        + ResultsPersistence.TEMP_SUFFIX)));
+    }
+
+    @DisplayName("Saves run off the calling thread")
+    @Test
+    public void checkSubmit() throws Exception {
+        CompletableFuture<String> saved = ResultsPersistence.submit(() ->
+                                        Thread.currentThread().getName());
+        Assertions.assertEquals("RESULTS WRITER",
+                                saved.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,74 @@
+package xmod.serial;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+class SerialFrameTest {
+    /** Trial frame for timeout 1000ms, monitor on 500ms, off 1500ms. */
+    private static final byte[] FRAME = {0x01, (byte) 0xE8, 0x03, 0x20,
+                            (byte) 0xF4, 0x01, (byte) 0xDC, 0x05, 0x02};
+
+    /** Simulator which records every write it is given. */
+    private static final class RecordingBox extends ControlBoxSimulator {
+        /** Bytes written, in order. */
+        private final ByteArrayOutputStream bytes =
+                                            new ByteArrayOutputStream();
+        /** Length of each write. */
+        private final List<Integer> writes = new ArrayList<Integer>();
+
+        @Override
+        public synchronized int writeBytes(final byte[] buffer,
+                                        final int length, final int offset) {
+            this.bytes.write(buffer, offset, length);
+            this.writes.add(length);
+            return super.writeBytes(buffer, length, offset);
+        }
+
+        /** Forgets the writes so far. */
+        synchronized void clear() {
+            this.bytes.reset();
+            this.writes.clear();
+        }
+    }
+
+    @DisplayName("Trial timings encoded byte for byte")
+    @Test
+    public void checkEncoded() {
+        Assertions.assertArrayEquals(FRAME,
+                            Serial.encodeTrialTimings(1000, 500, 1500));
+    }
+
+    @DisplayName("Trial frame sent in one write")
+    @Test
+    public void checkSingleWrite() {
+        RecordingBox box = new RecordingBox();
+        Serial serial = new Serial(box);
+        box.clear();
+        serial.sendTrialTimings(1000, 500, 1500);
+        Assertions.assertArrayEquals(FRAME, box.bytes.toByteArray());
+        Assertions.assertEquals(List.of(FRAME.length), box.writes);
+        Assertions.assertEquals(1000, box.getReactionTimeout());
+        Assertions.assertEquals(500, box.getMonitorOn());
+        Assertions.assertEquals(1500, box.getMonitorOff());
+        serial.close();
+    }
+
+    @DisplayName("Trial frame paced one byte at a time with a gap")
+    @Test
+    public void checkPaced() {
+        RecordingBox box = new RecordingBox();
+        Serial serial = new Serial(box);
+        serial.setMinByteGap(2);
+        box.clear();
+        serial.sendTrialFrame(FRAME);
+        Assertions.assertArrayEquals(FRAME, box.bytes.toByteArray());
+        Assertions.assertEquals(FRAME.length, box.writes.size());
+        Assertions.assertEquals(1, box.getTrialsArmed());
+        serial.close();
+    }
+}
@@ -0,0 +1,105 @@
+package xmod.status;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class StatusLogTest {
+    /** Temporary directory for logs. */
+    @TempDir
+    Path tempDir;
+
+    @DisplayName("Check reporter logs each new value once")
+    @Test
+    public void checkReporterLog() throws IOException {
+        StatusLog log = new StatusLog(tempDir, "status", 1024 * 1024, 3);
+        Reporter reporter = new Reporter(2);
+        reporter.setLog(log);
+        ObjectReport report = new ObjectReport(ReportLabel.CONNECTION);
+        report.updateValues(ReportCategory.STATUS, "Connected");
+        report.updateValues(ReportCategory.STACKTRACE, "line 1\nline 2");
+        reporter.updateValues(ReportLabel.CONNECTION, report);
+        reporter.updateValues(ReportLabel.CONNECTION, report);
+        for (int i = 0; i < 5; i++) {
+            ObjectReport message = new ObjectReport(ReportLabel.CONNECTION);
+            message.updateValues(ReportCategory.MESSAGE, "message " + i);
+            reporter.updateValues(ReportLabel.CONNECTION, message);
+        }
+        log.close();
+
+        // memory keeps the last 2, the log keeps everything
+        Assertions.assertEquals(2, reporter.get(ReportLabel.CONNECTION)
+                                .get(ReportCategory.MESSAGE).size());
+        List<String> lines = Files.readAllLines(log.getFile(0));
+        Assertions.assertEquals(7, lines.size());
+        Assertions.assertTrue(lines.get(0).endsWith(
+            "\tCONNECTION\tSTATUS\tConnected"), lines.get(0));
+        Assertions.assertTrue(lines.get(1).endsWith(
+            "\tCONNECTION\tSTACKTRACE\tline 1\\nline 2"), lines.get(1));
+        Assertions.assertTrue(lines.get(6).endsWith("\tmessage 4"));
+    }
+
+    @DisplayName("Check log rolls over")
+    @Test
+    public void checkRolling() throws IOException {
+        StatusLog log = new StatusLog(tempDir, "status", 200, 3);
+        for (int i = 0; i < 40; i++) {
+            log.append(ReportLabel.STATUS, ReportCategory.MESSAGE,
+                        "message " + i);
+        }
+        log.close();
+        Assertions.assertTrue(Files.exists(log.getFile(0)));
+        Assertions.assertTrue(Files.exists(log.getFile(1)));
+        Assertions.assertTrue(Files.exists(log.getFile(2)));
+        Assertions.assertFalse(Files.exists(log.getFile(3)));
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(Files.size(log.getFile(i)) <= 200);
+        }
+        List<String> current = Files.readAllLines(log.getFile(0));
+        Assertions.assertTrue(
+            current.get(current.size() - 1).endsWith("\tmessage 39"));
+
+        // reopening appends to the current file
+        long size = Files.size(log.getFile(0));
+        StatusLog reopened = new StatusLog(tempDir, "status", 1000, 3);
+        reopened.append(ReportLabel.STATUS, ReportCategory.MESSAGE, "again");
+        reopened.close();
+        Assertions.assertTrue(Files.size(reopened.getFile(0)) > size);
+    }
+
+    @DisplayName("Check log rolls over by bytes, not characters")
+    @Test
+    public void checkRollingMultiByte() throws IOException {
+        StatusLog log = new StatusLog(tempDir, "status", 200, 3);
+        for (int i = 0; i < 20; i++) {
+            // three bytes per character in UTF-8
+            log.append(ReportLabel.STATUS, ReportCategory.MESSAGE,
+                        "\u0995\u0996\u0997\u0998\u0999 " + i);
+        }
+        log.close();
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(Files.size(log.getFile(i)) <= 200,
+                "File " + i + " is " + Files.size(log.getFile(i))
+                + " bytes");
+        }
+    }
+
+    @DisplayName("Check values appended after close are not written")
+    @Test
+    public void checkClosed() throws IOException {
+        StatusLog log = new StatusLog(tempDir, "status", 1000, 3);
+        log.append(ReportLabel.STATUS, ReportCategory.MESSAGE, "before");
+        log.close();
+        log.append(ReportLabel.STATUS, ReportCategory.MESSAGE, "after");
+        log.close();
+        List<String> lines = Files.readAllLines(log.getFile(0));
+        Assertions.assertEquals(1, lines.size());
+        Assertions.assertTrue(lines.get(0).endsWith("\tbefore"));
+    }
+}
@@ -0,0 +1,121 @@
+package xmod.view;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import xmod.status.ObjectReport;
+import xmod.status.ReportCategory;
+import xmod.status.ReportLabel;
+import xmod.status.Reporter;
+
+import java.awt.EventQueue;
+import java.util.concurrent.TimeUnit;
+
+class StatusRendererTest {
+    /** Status shown. */
+    private Reporter reporter;
+    /** Counts the updates of each panel. */
+    private CountingView view;
+    /** Renderer under test. */
+    private StatusRenderer renderer;
+
+    /** Counts the updates of each panel instead of showing them. */
+    private static final class CountingView implements StatusView {
+        /** Number of main panel updates. */
+        private volatile int main;
+        /** Number of connection panel updates. */
+        private volatile int connection;
+        /** Number of tool panel updates. */
+        private volatile int tool;
+
+        @Override
+        public void updateMainText(final String newText) {
+            this.main++;
+        }
+
+        @Override
+        public void updateConnectionText(final String newText) {
+            this.connection++;
+        }
+
+        @Override
+        public void updateToolText(final String newText) {
+            this.tool++;
+        }
+    }
+
+    /** New reporter, view and renderer for every test. */
+    @BeforeEach
+    void makeRenderer() {
+        this.reporter = new Reporter();
+        this.view = new CountingView();
+        this.renderer = new StatusRenderer(this.reporter, this.view);
+    }
+
+    /** Utility func to update the status of a label.
+     * @param label label to update
+     * @param status new status
+     */
+    void update(final ReportLabel label, final String status) {
+        ObjectReport report = new ObjectReport(label);
+        report.updateValues(ReportCategory.STATUS, status);
+        this.reporter.updateValues(label, report);
+    }
+
+    /** Utility func to wait for any render on its way to finish.
+     * @throws Exception if interrupted or the render fails
+     */
+    void settle() throws Exception {
+        Thread.sleep(3 * StatusRenderer.RENDER_PERIOD);
+        EventQueue.invokeAndWait(() -> { });
+    }
+
+    @DisplayName("Burst of requests is coalesced into few renders")
+    @Test
+    public void checkBurst() throws Exception {
+        final int requests = 10000;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            update(ReportLabel.STATUS, "Status " + i);
+            this.renderer.requestRender();
+        }
+        long burst = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                                                    - start);
+        settle();
+        int renders = this.renderer.getRenders();
+        Assertions.assertTrue(renders >= 1, "Status should be rendered");
+        Assertions.assertTrue(renders
+                        <= burst / StatusRenderer.RENDER_PERIOD + 2,
+            renders + " renders for a burst of " + burst + " ms");
+    }
+
+    @DisplayName("Panels which have not changed are not redrawn")
+    @Test
+    public void checkUnchangedSkipped() throws Exception {
+        this.renderer.requestRender();
+        settle();
+        Assertions.assertEquals(1, this.view.main, "Main drawn first time");
+        Assertions.assertEquals(1, this.view.connection,
+            "Connection drawn first time");
+        Assertions.assertEquals(1, this.view.tool, "Tool drawn first time");
+
+        update(ReportLabel.CONNECTION, "Connected");
+        this.renderer.requestRender();
+        settle();
+        Assertions.assertEquals(2, this.renderer.getRenders(),
+            "Should render again");
+        Assertions.assertEquals(1, this.view.main, "Main unchanged");
+        Assertions.assertEquals(2, this.view.connection,
+            "Connection changed");
+        Assertions.assertEquals(1, this.view.tool, "Tool unchanged");
+
+        this.renderer.requestRender();
+        settle();
+        Assertions.assertEquals(1, this.view.main, "Main unchanged");
+        Assertions.assertEquals(2, this.view.connection,
+            "Connection unchanged");
+        Assertions.assertEquals(1, this.view.tool, "Tool unchanged");
+    }
+}
@@ -0,0 +1,72 @@
+package xmod.view;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+import java.util.Arrays;
+import java.util.SortedMap;
+
+class StimulusValidatorTest {
+    /** Font for the tests. */
+    private final Font font = TextLayoutCache.getFont(Font.SERIF,
+                                                        Font.PLAIN, 150);
+    /** Layouts shared by the checks. */
+    private final TextLayoutCache layouts = new TextLayoutCache(20000);
+    /** Character in a private use plane no font has. */
+    private static final String NO_GLYPH = new String(
+                                    Character.toChars(0x10FFFD));
+
+    @DisplayName("Items which fit and have every glyph pass")
+    @Test
+    public void checkPass() {
+        String[] items = {"cat", "", "dog", "Hello World"};
+        Assertions.assertTrue(StimulusValidator.check(layouts, font, 1920,
+                                                1080, items).isEmpty());
+    }
+
+    @DisplayName("Missing glyph and overflowing items reported by trial")
+    @Test
+    public void checkProblems() {
+        String[] items = {"cat", "a" + NO_GLYPH, "cat cat cat cat cat cat",
+                            "dog"};
+        SortedMap<Integer, String> problems = StimulusValidator.check(
+                                        layouts, font, 800, 600, items);
+        Assertions.assertEquals(Arrays.asList(1, 2),
+                        Arrays.asList(problems.keySet().toArray()));
+        Assertions.assertTrue(problems.get(1).contains("U+10FFFD"),
+                                problems.get(1));
+        Assertions.assertTrue(problems.get(2).startsWith("too wide"),
+                                problems.get(2));
+        Assertions.assertTrue(StimulusValidator.checkItem(layouts, font,
+                                800, 100, "cat").startsWith("too tall"));
+    }
+
+    @DisplayName("Long lists checked across the pool in trial order")
+    @Test
+    public void checkLongList() {
+        String[] items = new String[10000];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = (i % 1000 == 999) ? NO_GLYPH : "item " + i;
+        }
+        long start = System.nanoTime();
+        SortedMap<Integer, String> problems = StimulusValidator.check(
+                                        layouts, font, 1920, 1080, items);
+        long ms = (System.nanoTime() - start) / 1000000;
+        Assertions.assertEquals(10, problems.size());
+        Assertions.assertEquals(999, (int) problems.firstKey());
+        Assertions.assertEquals(9999, (int) problems.lastKey());
+        Assertions.assertTrue(ms < 10000, "Took " + ms + "ms");
+    }
+
+    @DisplayName("Items shaped when warmed are not shaped again")
+    @Test
+    public void checkUsesWarmed() throws Exception {
+        TextLayoutCache warmed = new TextLayoutCache(100);
+        String[] items = {"কাজ", "cat", "dog"};
+        warmed.warm(font, items).get();
+        StimulusValidator.check(warmed, font, 1920, 1080, items);
+        Assertions.assertEquals(items.length, warmed.getShaped());
+    }
+}
@@ -0,0 +1,64 @@
+package xmod.view;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Font;
+import java.awt.font.TextLayout;
+import java.util.concurrent.TimeUnit;
+
+class TextLayoutCacheTest {
+    /** Font for the tests. */
+    private final Font font = TextLayoutCache.getFont(Font.SERIF,
+                                                        Font.PLAIN, 150);
+
+    @DisplayName("Same font object for the same name, style and size")
+    @Test
+    public void checkFonts() {
+        Assertions.assertSame(font,
+                    TextLayoutCache.getFont(Font.SERIF, Font.PLAIN, 150));
+        Assertions.assertNotSame(font,
+                    TextLayoutCache.getFont(Font.SERIF, Font.PLAIN, 151));
+    }
+
+    @DisplayName("Text shaped once per font and size")
+    @Test
+    public void checkShapedOnce() {
+        TextLayoutCache cache = new TextLayoutCache(10);
+        TextLayout layout = cache.get(font, "মাছ");
+        Assertions.assertSame(layout, cache.get(font, "মাছ"));
+        Assertions.assertNotSame(layout, cache.get(
+            TextLayoutCache.getFont(Font.SERIF, Font.PLAIN, 100), "মাছ"));
+        Assertions.assertEquals(2, cache.getShaped());
+        Assertions.assertNull(cache.get(font, ""));
+    }
+
+    @DisplayName("Least recently used layout dropped when full")
+    @Test
+    public void checkBounded() {
+        TextLayoutCache cache = new TextLayoutCache(2);
+        TextLayout first = cache.get(font, "one");
+        cache.get(font, "two");
+        cache.get(font, "one"); // now "two" is least recently used
+        cache.get(font, "three");
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertSame(first, cache.get(font, "one"));
+        Assertions.assertEquals(3, cache.getShaped());
+        cache.get(font, "two");
+        Assertions.assertEquals(4, cache.getShaped());
+    }
+
+    @DisplayName("Warming shapes the items so showing them does not")
+    @Test
+    public void checkWarm() throws Exception {
+        TextLayoutCache cache = new TextLayoutCache(100);
+        String[] items = {"кот", "قطة", "cat", "cat", ""};
+        cache.warm(font, items).get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(3, cache.getShaped());
+        for (String item : items) {
+            cache.get(font, item);
+        }
+        Assertions.assertEquals(3, cache.getShaped());
+    }
+}
@@ -0,0 +1,128 @@
+package xmod.experimenter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+class TmsCacheTest {
+    /** TMS file used for tests. */
+    private String testFile = "./test/testFiles/charlie_short.tms";
+    /** Temporary directory for cache files. */
+    @TempDir
+    Path tempDir;
+    /** Cache built from known values. */
+    private TmsCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new TmsCache("list\twnw\n",
+                            new int[] {2000, 1000},
+                            new int[] {500, 500},
+                            new int[] {500, 400},
+                            new int[] {2000, 1500},
+                            new String[] {"0\t1\tnw", "0\t1\tnw"},
+                            new String[] {"নিরুপদ্রব", "perfume"});
+    }
+
+    @DisplayName("Cache round trip")
+    @Test
+    public void checkRoundTrip() throws IOException {
+        Path cacheFile = tempDir.resolve("exp.tmsc");
+        cache.write(cacheFile, 10, 20, 30, "UTF-8");
+        TmsCache read = TmsCache.read(cacheFile, 10, 20, 30, "UTF-8");
+        Assertions.assertNotNull(read, "Cache should be read back");
+        Assertions.assertEquals(cache.getCodehead(), read.getCodehead(),
+            "Codehead wrong");
+        Assertions.assertArrayEquals(cache.getTReactionTimeout(),
+            read.getTReactionTimeout(), "Timeouts wrong");
+        Assertions.assertArrayEquals(cache.getTMonitorOn(),
+            read.getTMonitorOn(), "Monitor on wrong");
+        Assertions.assertArrayEquals(cache.getTMonitorOff(),
+            read.getTMonitorOff(), "Monitor off wrong");
+        Assertions.assertArrayEquals(cache.getCodingArray(),
+            read.getCodingArray(), "Coding array wrong");
+        Assertions.assertArrayEquals(cache.getScreenItems(),
+            read.getScreenItems(), "Screen items wrong");
+    }
+
+    @DisplayName("Stale or corrupt cache is ignored")
+    @Test
+    public void checkStale() throws IOException {
+        Path cacheFile = tempDir.resolve("exp.tmsc");
+        cache.write(cacheFile, 10, 20, 30, "UTF-8");
+        Assertions.assertNull(TmsCache.read(cacheFile, 11, 20, 30, "UTF-8"),
+            "Different size should miss");
+        Assertions.assertNull(TmsCache.read(cacheFile, 10, 21, 30, "UTF-8"),
+            "Different mtime should miss");
+        Assertions.assertNull(TmsCache.read(cacheFile, 10, 20, 31, "UTF-8"),
+            "Different crc should miss");
+        Assertions.assertNull(TmsCache.read(cacheFile, 10, 20, 30,
+                                            "windows-1252"),
+            "Different charset should miss");
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        Files.write(cacheFile, Arrays.copyOf(bytes, 50));
+        Assertions.assertNull(TmsCache.read(cacheFile, 10, 20, 30, "UTF-8"),
+            "Truncated cache should miss");
+    }
+
+    @DisplayName("Corrupt lengths are a miss, not a huge allocation")
+    @Test
+    public void checkCorruptLengths() throws IOException {
+        Path cacheFile = tempDir.resolve("exp.tmsc");
+        cache.write(cacheFile, 10, 20, 30, "UTF-8");
+        byte[] bytes = Files.readAllBytes(cacheFile);
+        // magic, version, size, mtime, crc, then the charset name
+        final int charsetAt = 32;
+        final int trialsAt = charsetAt + 4 + "UTF-8".length();
+        for (int at : new int[] {charsetAt, trialsAt, trialsAt + 4,
+                                    trialsAt + 8}) {
+            byte[] corrupt = bytes.clone();
+            ByteBuffer.wrap(corrupt).putInt(at, Integer.MAX_VALUE - 8);
+            Files.write(cacheFile, corrupt);
+            Assertions.assertNull(TmsCache.read(cacheFile, 10, 20, 30,
+                                                "UTF-8"),
+                "Length at " + at + " should miss");
+        }
+    }
+
+    @DisplayName("Loader reuses cache until tms changes")
+    @Test
+    public void checkLoaderUsesCache() throws IOException {
+        Path tms = tempDir.resolve("exp.tms");
+        Files.copy(Paths.get(this.testFile), tms,
+                    StandardCopyOption.REPLACE_EXISTING);
+        ExperimentLoader first = new ExperimentLoader();
+        first.loadFile(tms.toString());
+        first.parseFile();
+        Assertions.assertEquals(false, first.isLoadedFromCache(),
+            "First load should parse");
+        ExperimentLoader second = new ExperimentLoader();
+        second.loadFile(tms.toString());
+        second.parseFile();
+        Assertions.assertEquals(true, second.isLoadedFromCache(),
+            "Second load should use cache");
+        Assertions.assertArrayEquals(first.getTReactionTimeout(),
+            second.getTReactionTimeout(), "Cached timeouts should match");
+        Assertions.assertArrayEquals(first.getScreenItems(),
+            second.getScreenItems(), "Cached items should match");
+
+        Files.write(tms, "\n".getBytes(),
+                    StandardOpenOption.APPEND);
+        ExperimentLoader third = new ExperimentLoader();
+        third.loadFile(tms.toString());
+        third.parseFile();
+        Assertions.assertEquals(false, third.isLoadedFromCache(),
+            "Changed tms should be parsed again");
+    }
+}
@@ -0,0 +1,96 @@
+package xmod.experimenter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.CharBuffer;
+
+class TmsParserTest {
+    /** Header lines of a tms file. */
+    private static final String HEADER = "%%CROSSMODAL STRING\n"
+                                        + "V\t2\t1\n"
+                                        + "list\twnw\n";
+
+    /** Utility func to parse a string.
+     * @param contents tms file contents
+     * @return parser after parsing
+     * @throws ExperimentLoaderException if parsing fails
+     */
+    TmsParser parse(final String contents) throws ExperimentLoaderException {
+        TmsParser parser = new TmsParser(CharBuffer.wrap(contents));
+        parser.parse();
+        return parser;
+    }
+
+    @DisplayName("Parses fields in place")
+    @Test
+    public void checkFields() throws ExperimentLoaderException {
+        TmsParser parser = parse(HEADER
+                            + "2000.0\t500.0\t0\t1\tnw \r\n"
+                            + " darsh \t500.9\t2000.0\r\n"
+                            + "1000\t-12.5\tw\n"
+                            + "perfume\t500.0\t1.5e3\n\n");
+        Assertions.assertEquals(2, parser.getScreenItems().length,
+            "Should have parsed two trials");
+        Assertions.assertEquals("list\twnw" + System.lineSeparator(),
+            parser.getCodehead(), "Codehead should be third line");
+        Assertions.assertArrayEquals(new int[] {2000, 1000},
+            parser.getTReactionTimeout(), "Timeouts wrong");
+        Assertions.assertArrayEquals(new int[] {500, -12},
+            parser.getTReactionOffset(), "Offsets should truncate");
+        Assertions.assertArrayEquals(new int[] {500, 500},
+            parser.getTMonitorOn(), "Monitor on wrong");
+        Assertions.assertArrayEquals(new int[] {2000, 1500},
+            parser.getTMonitorOff(), "Monitor off wrong");
+        Assertions.assertArrayEquals(new String[] {"0\t1\tnw", "w"},
+            parser.getCodingArray(), "Coding fields should be trimmed");
+        Assertions.assertArrayEquals(new String[] {"darsh", "perfume"},
+            parser.getScreenItems(), "Screen items should be trimmed");
+    }
+
+    @DisplayName("Grows past initial capacity")
+    @Test
+    public void checkManyTrials() throws ExperimentLoaderException {
+        StringBuilder contents = new StringBuilder(HEADER);
+        final int numTrials = 1000;
+        for (int i = 0; i < numTrials; i++) {
+            contents.append(i).append(".0\t0\t0\n");
+            contents.append("item").append(i).append("\t0\t0\n");
+        }
+        TmsParser parser = parse(contents.toString());
+        Assertions.assertEquals(numTrials, parser.getScreenItems().length,
+            "All trials should be parsed");
+        Assertions.assertEquals(numTrials - 1,
+            parser.getTReactionTimeout()[numTrials - 1],
+            "Last timeout wrong");
+    }
+
+    /** Check errors name the line at fault.
+     * @param trialLines trial lines where line 6 is broken
+     */
+    @DisplayName("Errors report line number")
+    @ParameterizedTest
+    @ValueSource(strings = {"1\t2\t0\na\t1\t2\nx\t2\t0\nb\t1\t2\n",
+                            "1\t2\t0\na\t1\t2\n1\t2\t0\n",
+                            "1\t2\t0\na\t1\t2\n1\t2\t0\n\n",
+                            "1\t2\t0\na\t1\t2\n1\t2\n"})
+    public void checkErrorLine(final String trialLines) {
+        ExperimentLoaderException e = Assertions.assertThrows(
+            ExperimentLoaderException.class,
+            () -> parse(HEADER + trialLines));
+        Assertions.assertTrue(e.getMessage().startsWith("Line 6"),
+            "Error should name line 6: " + e.getMessage());
+    }
+
+    @DisplayName("No trials")
+    @Test
+    public void checkNoTrials() {
+        Assertions.assertThrows(ExperimentLoaderException.class,
+            () -> parse(HEADER));
+        Assertions.assertThrows(ExperimentLoaderException.class,
+            () -> parse("%%CROSSMODAL STRING\n"));
+    }
+}
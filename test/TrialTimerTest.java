@@ -0,0 +1,120 @@
+package xmod.experimenter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class TrialTimerTest {
+    /** Temporary directory for reports. */
+    @TempDir
+    Path tempDir;
+
+    @DisplayName("Check histogram buckets")
+    @Test
+    public void checkBuckets() {
+        long[] values = {0, 1, 31, 32, 33, 1000, 999999, 123456789L,
+                        Long.MAX_VALUE};
+        for (long v : values) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            Assertions.assertTrue(LatencyHistogram.lowestValueIn(bucket) <= v);
+            Assertions.assertTrue(
+                LatencyHistogram.highestValueIn(bucket) >= v);
+            // within 1/16 of the value
+            Assertions.assertTrue(LatencyHistogram.highestValueIn(bucket)
+                - LatencyHistogram.lowestValueIn(bucket) <= v / 16);
+        }
+        // buckets are contiguous
+        for (int b = 1; b < 200; b++) {
+            Assertions.assertEquals(LatencyHistogram.highestValueIn(b - 1) + 1,
+                                    LatencyHistogram.lowestValueIn(b));
+        }
+    }
+
+    @DisplayName("Check histogram percentiles")
+    @Test
+    public void checkPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        Assertions.assertEquals(0, h.percentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i * 1000L);
+        }
+        Assertions.assertEquals(1000, h.getCount());
+        Assertions.assertEquals(1000, h.getMin());
+        Assertions.assertEquals(1000000, h.getMax());
+        Assertions.assertEquals(500500.0, h.getMean(), 0.001);
+        long[][] expected = {{50, 500000}, {90, 900000}, {99, 990000}};
+        for (long[] e : expected) {
+            long p = h.percentile(e[0]);
+            Assertions.assertTrue(p >= e[1], "p" + e[0] + " " + p);
+            Assertions.assertTrue(p <= e[1] + e[1] / 16, "p" + e[0] + " " + p);
+        }
+        Assertions.assertEquals(1000000, h.percentile(100));
+    }
+
+    @DisplayName("Check ring buffer keeps last trials")
+    @Test
+    public void checkRing() {
+        TrialTimer timer = new TrialTimer(3);
+        for (int trial = 0; trial < 5; trial++) {
+            timer.record(TrialTimer.WAIT, trial, trial * 10);
+            if (trial != 3) {
+                timer.record(TrialTimer.ARM, trial, trial * 20);
+            }
+        }
+        Assertions.assertEquals(5, timer.getTrialsTimed());
+        Assertions.assertEquals(TrialTimer.UNSET,
+                                timer.getDuration(TrialTimer.WAIT, 1));
+        Assertions.assertEquals(20, timer.getDuration(TrialTimer.WAIT, 2));
+        Assertions.assertEquals(TrialTimer.UNSET,
+                                timer.getDuration(TrialTimer.ARM, 3));
+        Assertions.assertEquals(80, timer.getDuration(TrialTimer.ARM, 4));
+        // histograms keep every trial
+        Assertions.assertEquals(5,
+                    timer.getHistogram(TrialTimer.WAIT).getCount());
+        Assertions.assertEquals(4,
+                    timer.getHistogram(TrialTimer.ARM).getCount());
+    }
+
+    @DisplayName("Check timing report")
+    @Test
+    public void checkReport() throws IOException {
+        TrialTimer timer = new TrialTimer(2);
+        timer.record(TrialTimer.DISPLAY, 0, 1500000);
+        timer.record(TrialTimer.WAIT, 0, 2000000);
+        timer.recordAudio(0, 1000000000L, 3000000);
+        timer.record(TrialTimer.COLLECT, 0, 250);
+        timer.record(TrialTimer.ONSET, 1, 3000000);
+        timer.recordAudio(1, 2000000000L, -1000000);
+        timer.setAudioLatency(12000000, TrialTimer.UNSET);
+        Path report = tempDir.resolve("exp_timing.txt");
+        timer.writeReport(report, "Trial timing for exp.txt");
+        List<String> lines = Files.readAllLines(report);
+        Assertions.assertEquals("Trial timing for exp.txt", lines.get(0));
+        Assertions.assertEquals("Trials timed: 2", lines.get(1));
+        Assertions.assertEquals(
+            "Audio start latency: 12.000 (line open after -)", lines.get(3));
+        Assertions.assertEquals(
+            "Audio drift: last -1.000, largest 3.000", lines.get(4));
+        Assertions.assertEquals(
+            "phase\tcount\tmean\tp50\tp90\tp99\tp99.9\tmax", lines.get(6));
+        Assertions.assertEquals(
+            "wait\t1\t2.000\t2.000\t2.000\t2.000\t2.000\t2.000", lines.get(7));
+        Assertions.assertEquals(
+            "submit\t0\t0.000\t0.000\t0.000\t0.000\t0.000\t0.000",
+            lines.get(11));
+        Assertions.assertEquals("trial\twait\tarm\tdisplay\tonset\tsubmit"
+            + "\tcollect\taudio\tdrift", lines.get(14));
+        Assertions.assertEquals(
+            "1\t2.000\t-\t1.500\t-\t-\t0.000\t1000.000\t3.000",
+            lines.get(15));
+        Assertions.assertEquals("2\t-\t-\t-\t3.000\t-\t-\t2000.000\t-1.000",
+                                lines.get(16));
+        Assertions.assertEquals(-1000000, timer.getDrift(1));
+    }
+}